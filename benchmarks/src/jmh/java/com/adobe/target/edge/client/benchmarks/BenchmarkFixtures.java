@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.benchmarks;
+
+import com.adobe.target.delivery.v1.model.Address;
+import com.adobe.target.delivery.v1.model.ChannelType;
+import com.adobe.target.delivery.v1.model.Context;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.PrefetchRequest;
+import com.adobe.target.delivery.v1.model.ViewRequest;
+import com.adobe.target.edge.client.model.TargetCookie;
+import com.adobe.target.edge.client.model.TargetDeliveryRequestBuilder;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.service.VisitorProvider;
+import com.adobe.target.edge.client.utils.CookieUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+final class BenchmarkFixtures {
+
+    static final String ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+    static final String SESSION_ID = "430a140336d545daacde53af9636eef5";
+    static final String TNT_ID = "20250794242226839061607285880759069379.22_33";
+    static final String THIRD_PARTY_ID = "12345678";
+    static final String TRACKING_SERVER = "jimsbrims.sc.omtrds.net";
+
+    private BenchmarkFixtures() {
+    }
+
+    static TargetDeliveryRequestBuilder requestBuilder() {
+        VisitorProvider.init(ORG_ID);
+        ExecuteRequest execute = new ExecuteRequest().mboxes(Arrays.asList(
+                new MboxRequest().name("server-side-mbox").index(1),
+                new MboxRequest().name("server-side-mbox").index(2)));
+        PrefetchRequest prefetch = new PrefetchRequest()
+                .mboxes(Collections.singletonList(new MboxRequest().name("server-side-mbox-prefetch").index(1)))
+                .views(Collections.singletonList(new ViewRequest()));
+        return TargetDeliveryRequest.builder()
+                .context(new Context()
+                        .channel(ChannelType.WEB)
+                        .timeOffsetInMinutes(330.0)
+                        .address(new Address().url("http://localhost:8080")))
+                .execute(execute)
+                .prefetch(prefetch)
+                .thirdPartyId(THIRD_PARTY_ID)
+                .trackingServer(TRACKING_SERVER)
+                .cookies(cookies());
+    }
+
+    static List<TargetCookie> cookies() {
+        return Collections.singletonList(CookieUtils.createTargetCookie(SESSION_ID, TNT_ID).get());
+    }
+
+    static String resource(String name) {
+        try (InputStream in = BenchmarkFixtures.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing benchmark resource " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read benchmark resource " + name, e);
+        }
+    }
+}
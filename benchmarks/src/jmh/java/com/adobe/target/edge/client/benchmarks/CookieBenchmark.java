@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.benchmarks;
+
+import com.adobe.target.edge.client.model.TargetCookie;
+import com.adobe.target.edge.client.utils.CookieUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.Optional;
+
+@State(Scope.Benchmark)
+public class CookieBenchmark {
+
+    private String targetCookie;
+
+    @Setup
+    public void setup() {
+        targetCookie = BenchmarkFixtures.cookies().get(0).getValue();
+    }
+
+    @Benchmark
+    public Map<String, String> parseTargetCookies() {
+        return CookieUtils.parseTargetCookies(targetCookie);
+    }
+
+    @Benchmark
+    public Optional<TargetCookie> createTargetCookie() {
+        return CookieUtils.createTargetCookie(BenchmarkFixtures.SESSION_ID, BenchmarkFixtures.TNT_ID);
+    }
+
+    @Benchmark
+    public Optional<TargetCookie> createClusterCookie() {
+        return CookieUtils.createClusterCookie(BenchmarkFixtures.TNT_ID);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.benchmarks;
+
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.edge.client.http.JacksonObjectMapper;
+import com.adobe.target.edge.client.model.TargetCookie;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class DeliveryRequestBenchmark {
+
+    private TargetDeliveryResponse deliveryResponse;
+
+    @Setup
+    public void setup() {
+        TargetDeliveryRequest deliveryRequest = BenchmarkFixtures.requestBuilder().build();
+        DeliveryResponse response = new JacksonObjectMapper()
+                .readValue(BenchmarkFixtures.resource("delivery-response.json"), DeliveryResponse.class);
+        deliveryResponse = new TargetDeliveryResponse(deliveryRequest, response, 200, "OK");
+    }
+
+    @Benchmark
+    public TargetDeliveryRequest buildDeliveryRequest() {
+        return BenchmarkFixtures.requestBuilder().build();
+    }
+
+    @Benchmark
+    public List<TargetCookie> getCookies() {
+        return deliveryResponse.getCookies();
+    }
+}
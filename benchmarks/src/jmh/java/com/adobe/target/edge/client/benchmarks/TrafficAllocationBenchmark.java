@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.benchmarks;
+
+import com.adobe.target.delivery.v1.model.VisitorId;
+import com.adobe.target.edge.client.utils.MurmurHash3;
+import com.adobe.target.edge.client.utils.TrafficAllocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class TrafficAllocationBenchmark {
+
+    private static final String CLIENT = "testclient";
+    private static final long ACTIVITY_ID = 125873L;
+
+    private VisitorId tntVisitor;
+    private VisitorId marketingCloudVisitor;
+
+    @Setup
+    public void setup() {
+        tntVisitor = new VisitorId().tntId(BenchmarkFixtures.TNT_ID);
+        marketingCloudVisitor = new VisitorId()
+                .tntId(BenchmarkFixtures.TNT_ID)
+                .marketingCloudVisitorId("63513393284916440003394744302410521497");
+    }
+
+    @Benchmark
+    public int bucketByTntId() {
+        return TrafficAllocation.bucket(CLIENT, ACTIVITY_ID, tntVisitor);
+    }
+
+    @Benchmark
+    public int bucketByMarketingCloudVisitorId() {
+        return TrafficAllocation.bucket(CLIENT, ACTIVITY_ID, marketingCloudVisitor);
+    }
+
+    /**
+     * Baseline building the hash key as a string first.
+     */
+    @Benchmark
+    public int bucketByConcatenatedKey() {
+        String tntId = tntVisitor.getTntId().substring(0, tntVisitor.getTntId().indexOf('.'));
+        String key = CLIENT + "." + ACTIVITY_ID + "." + tntId + "." + TrafficAllocation.DEFAULT_SALT;
+        return Math.abs(MurmurHash3.hashUtf8(key) % TrafficAllocation.TOTAL_BUCKETS);
+    }
+}
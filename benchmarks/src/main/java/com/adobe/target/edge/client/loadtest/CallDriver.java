@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.loadtest;
+
+import com.adobe.target.edge.client.TargetClient;
+import com.adobe.target.edge.client.metrics.CallType;
+import com.adobe.target.edge.client.metrics.LatencyHistogram;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Issues scheduled calls for a load generator and records how long each took from its scheduled start, as well
+ * as the JVM resources used while doing so. Synchronous calls run on {@code workers}; without workers the async
+ * client API is used.
+ */
+final class CallDriver {
+
+    private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long DRAIN_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final TargetClient client;
+    private final ExecutorService workers;
+    private final int maxOutstanding;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Set<Call> inFlight = ConcurrentHashMap.newKeySet();
+    private long dropped;
+    private long startNanos;
+    private ResourceUsage startUsage;
+
+    CallDriver(TargetClient client, ExecutorService workers, int maxOutstanding) {
+        this.client = client;
+        this.workers = workers;
+        this.maxOutstanding = maxOutstanding;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} the measurement started at, to schedule calls from
+     */
+    long begin() {
+        threads.resetPeakThreadCount();
+        startUsage = ResourceUsage.sample();
+        startNanos = System.nanoTime();
+        return startNanos;
+    }
+
+    /**
+     * Waits until {@code scheduled} and starts the call, or drops it if too many calls are outstanding.
+     */
+    void call(long scheduled, CallType callType, Supplier<TargetDeliveryRequest> request) {
+        waitUntil(scheduled);
+        if (outstanding.get() >= maxOutstanding) {
+            dropped++;
+            return;
+        }
+        outstanding.incrementAndGet();
+        Call call = new Call(scheduled);
+        inFlight.add(call);
+        if (workers != null) {
+            workers.execute(() -> {
+                long sent = System.nanoTime();
+                try {
+                    complete(call, sent, callType == CallType.NOTIFICATIONS
+                            ? client.sendNotifications(request.get()).getStatus()
+                            : client.getOffers(request.get()).getStatus(), null);
+                } catch (RuntimeException e) {
+                    complete(call, sent, 0, e);
+                }
+            });
+            return;
+        }
+        long sent = System.nanoTime();
+        try {
+            CompletableFuture<Integer> status = callType == CallType.NOTIFICATIONS
+                    ? client.sendNotificationsAsync(request.get()).thenApply(response -> response.getStatus())
+                    : client.getOffersAsync(request.get()).thenApply(response -> response.getStatus());
+            status.whenComplete((result, error) -> complete(call, sent, result == null ? 0 : result, error));
+        } catch (RuntimeException e) {
+            complete(call, sent, 0, e);
+        }
+    }
+
+    /**
+     * Waits up to {@code drainTimeoutNanos} for outstanding calls. Calls still outstanding after that are counted
+     * as timed out, with their latency so far, and dropped calls are recorded at {@code drainTimeoutNanos}, so that
+     * a client which stops answering cannot look healthy.
+     */
+    LoadTestResult finish(double targetRate, long drainTimeoutNanos) {
+        long drainDeadline = System.nanoTime() + drainTimeoutNanos;
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(DRAIN_POLL_NANOS);
+        }
+        long now = System.nanoTime();
+        long timedOut = 0;
+        for (Call call : inFlight) {
+            if (inFlight.remove(call)) {
+                latency.record(now - call.scheduled);
+                timedOut++;
+            }
+        }
+        for (long i = 0; i < dropped; i++) {
+            latency.record(drainTimeoutNanos);
+        }
+        long elapsed = now - startNanos;
+        ResourceUsage endUsage = ResourceUsage.sample();
+        return new LoadTestResult(targetRate, elapsed, completed.sum(), failed.sum() + timedOut, timedOut, dropped,
+                latency.snapshot(), serviceTime.snapshot(), endUsage.allocatedBytesSince(startUsage),
+                endUsage.gcCountSince(startUsage), endUsage.gcTimeMillisSince(startUsage), threads.getThreadCount(),
+                threads.getPeakThreadCount());
+    }
+
+    private void complete(Call call, long sent, int status, Throwable error) {
+        if (!inFlight.remove(call)) {
+            return;
+        }
+        long now = System.nanoTime();
+        latency.record(now - call.scheduled);
+        serviceTime.record(now - sent);
+        completed.increment();
+        if (error != null || status < 200 || status > 299) {
+            failed.increment();
+        }
+        outstanding.decrementAndGet();
+    }
+
+    private static final class Call {
+
+        private final long scheduled;
+
+        Call(long scheduled) {
+            this.scheduled = scheduled;
+        }
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            }
+        }
+    }
+}
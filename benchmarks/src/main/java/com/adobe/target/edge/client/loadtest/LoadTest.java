@@ -0,0 +1,268 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.loadtest;
+
+import com.adobe.target.delivery.v1.model.ChannelType;
+import com.adobe.target.delivery.v1.model.Context;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.TargetClient;
+import com.adobe.target.edge.client.metrics.CallType;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.testing.LatencyDistribution;
+import com.adobe.target.edge.client.testing.MockDeliveryEdge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Open-loop load generator for {@link TargetClient#getOffers} and {@link TargetClient#getOffersAsync} against a
+ * {@link MockDeliveryEdge}.
+ * <p>
+ * Calls are started on a fixed (or Poisson) schedule regardless of how many are still in flight, and latency is
+ * measured from each call's scheduled start rather than from when it was actually sent. A client that stalls
+ * therefore shows up in the latency percentiles instead of silently lowering the offered load, which is the
+ * coordinated omission problem closed-loop generators have.
+ */
+public final class LoadTest {
+
+    private final ClientConfig.ClientConfigBuilder clientConfig;
+    private final Supplier<TargetDeliveryRequest> requests;
+    private final MockDeliveryEdge edge;
+    private final LatencyDistribution edgeLatency;
+    private final boolean async;
+    private final int workerThreads;
+    private final int maxOutstanding;
+    private final boolean poissonArrivals;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final long drainTimeoutNanos;
+    private final long seed;
+
+    private LoadTest(Builder builder) {
+        this.clientConfig = builder.clientConfig;
+        this.requests = builder.requests;
+        this.edge = builder.edge;
+        this.edgeLatency = builder.edgeLatency;
+        this.async = builder.async;
+        this.workerThreads = builder.workerThreads;
+        this.maxOutstanding = builder.maxOutstanding;
+        this.poissonArrivals = builder.poissonArrivals;
+        this.warmupNanos = builder.warmupNanos;
+        this.durationNanos = builder.durationNanos;
+        this.drainTimeoutNanos = builder.drainTimeoutNanos;
+        this.seed = builder.seed;
+    }
+
+    public static Builder builder(ClientConfig.ClientConfigBuilder clientConfig) {
+        return new Builder(clientConfig);
+    }
+
+    /**
+     * Warms up and then measures a fresh client at {@code rate} calls per second.
+     */
+    public LoadTestResult run(double rate) throws Exception {
+        MockDeliveryEdge target = edge != null ? edge : MockDeliveryEdge.builder().latency(edgeLatency).start();
+        ExecutorService workers = async ? null : Executors.newFixedThreadPool(workerThreads);
+        try (TargetClient client = TargetClient.create(target.configure(clientConfig).build())) {
+            if (warmupNanos > 0) {
+                drive(client, workers, rate, warmupNanos);
+            }
+            return drive(client, workers, rate, durationNanos);
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+            if (target != edge) {
+                target.close();
+            }
+        }
+    }
+
+    /**
+     * Runs at increasing rates until one is not sustainable, see {@link LoadTestResult#isSustainable}.
+     * The last result returned is the first unsustainable rate, unless {@code toRate} was sustained.
+     */
+    public List<LoadTestResult> ramp(double fromRate, double toRate, double step, long p99Limit, TimeUnit unit)
+            throws Exception {
+        List<LoadTestResult> results = new ArrayList<>();
+        for (double rate = fromRate; rate <= toRate; rate += step) {
+            LoadTestResult result = run(rate);
+            results.add(result);
+            if (!result.isSustainable(p99Limit, unit)) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private LoadTestResult drive(TargetClient client, ExecutorService workers, double rate, long phaseNanos) {
+        CallDriver driver = new CallDriver(client, workers, maxOutstanding);
+        Random random = new Random(seed);
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = driver.begin();
+        double offset = 0;
+        while (offset < phaseNanos) {
+            driver.call(start + (long) offset, CallType.OFFERS, requests);
+            offset += poissonArrivals
+                    ? -Math.log(1 - random.nextDouble()) * meanIntervalNanos
+                    : meanIntervalNanos;
+        }
+        return driver.finish(rate, drainTimeoutNanos);
+    }
+
+    /**
+     * Runs a ramp or a single rate from the command line, e.g. {@code rate=500 rampTo=5000 rampStep=500 async=true}.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+        double rate = Double.parseDouble(options.getOrDefault("rate", "500"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "100"));
+        long edgeLatencyMillis = Long.parseLong(options.getOrDefault("edgeLatencyMs", "20"));
+        long p99LimitMillis = Long.parseLong(options.getOrDefault("p99Ms", "250"));
+
+        LoadTest loadTest = LoadTest.builder(ClientConfig.builder()
+                .client("loadtest")
+                .organizationId("0DD934B85278256B0A490D44@AdobeOrg")
+                .maxConnectionsPerHost(connections)
+                .maxConnectionsTotal(connections))
+                .async(Boolean.parseBoolean(options.getOrDefault("async", "false")))
+                .workerThreads(Integer.parseInt(options.getOrDefault("workers", String.valueOf(connections))))
+                .poissonArrivals(Boolean.parseBoolean(options.getOrDefault("poisson", "false")))
+                .warmup(Long.parseLong(options.getOrDefault("warmupSeconds", "5")), TimeUnit.SECONDS)
+                .duration(Long.parseLong(options.getOrDefault("durationSeconds", "20")), TimeUnit.SECONDS)
+                .edgeLatency(LatencyDistribution.logNormal(edgeLatencyMillis, 0.3, TimeUnit.MILLISECONDS))
+                .build();
+
+        if (!options.containsKey("rampTo")) {
+            System.out.println(loadTest.run(rate));
+            return;
+        }
+        double rampTo = Double.parseDouble(options.get("rampTo"));
+        double rampStep = Double.parseDouble(options.getOrDefault("rampStep", String.valueOf(rate)));
+        double maxSustainable = 0;
+        for (LoadTestResult result : loadTest.ramp(rate, rampTo, rampStep, p99LimitMillis, TimeUnit.MILLISECONDS)) {
+            System.out.println(result);
+            if (result.isSustainable(p99LimitMillis, TimeUnit.MILLISECONDS)) {
+                maxSustainable = result.getTargetRate();
+            }
+        }
+        System.out.printf("max sustainable rate: %.0f/s (p99 <= %d ms)%n", maxSustainable, p99LimitMillis);
+    }
+
+    public static final class Builder {
+        private final ClientConfig.ClientConfigBuilder clientConfig;
+        private Supplier<TargetDeliveryRequest> requests = Builder::defaultRequest;
+        private MockDeliveryEdge edge;
+        private LatencyDistribution edgeLatency = LatencyDistribution.none();
+        private boolean async;
+        private int workerThreads = 100;
+        private int maxOutstanding = 10_000;
+        private boolean poissonArrivals;
+        private long warmupNanos = TimeUnit.SECONDS.toNanos(5);
+        private long durationNanos = TimeUnit.SECONDS.toNanos(20);
+        private long drainTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+        private long seed = 42;
+
+        private Builder(ClientConfig.ClientConfigBuilder clientConfig) {
+            this.clientConfig = clientConfig;
+        }
+
+        public Builder requests(Supplier<TargetDeliveryRequest> requests) {
+            this.requests = requests;
+            return this;
+        }
+
+        /**
+         * Drives an edge the caller manages instead of starting one per run.
+         */
+        public Builder edge(MockDeliveryEdge edge) {
+            this.edge = edge;
+            return this;
+        }
+
+        public Builder edgeLatency(LatencyDistribution edgeLatency) {
+            this.edgeLatency = edgeLatency;
+            return this;
+        }
+
+        public Builder async(boolean async) {
+            this.async = async;
+            return this;
+        }
+
+        /**
+         * Threads issuing synchronous calls; unused when {@link #async} is set.
+         */
+        public Builder workerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+            return this;
+        }
+
+        public Builder maxOutstanding(int maxOutstanding) {
+            this.maxOutstanding = maxOutstanding;
+            return this;
+        }
+
+        public Builder poissonArrivals(boolean poissonArrivals) {
+            this.poissonArrivals = poissonArrivals;
+            return this;
+        }
+
+        public Builder warmup(long warmup, TimeUnit unit) {
+            this.warmupNanos = unit.toNanos(warmup);
+            return this;
+        }
+
+        public Builder duration(long duration, TimeUnit unit) {
+            this.durationNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder drainTimeout(long drainTimeout, TimeUnit unit) {
+            this.drainTimeoutNanos = unit.toNanos(drainTimeout);
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public LoadTest build() {
+            return new LoadTest(this);
+        }
+
+        private static TargetDeliveryRequest defaultRequest() {
+            return TargetDeliveryRequest.builder()
+                    .context(new Context().channel(ChannelType.WEB))
+                    .execute(new ExecuteRequest().mboxes(
+                            Collections.singletonList(new MboxRequest().name("home").index(1))))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.loadtest;
+
+import com.adobe.target.edge.client.metrics.LatencySnapshot;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of one {@link LoadTest} run at a fixed offered rate.
+ * <p>
+ * {@link #getLatency()} is measured from the time each request was scheduled to start, so it includes any time
+ * spent waiting for a free worker or connection; {@link #getServiceTime()} is measured from the time the request
+ * was actually handed to the client. A large gap between the two means the client could not keep up.
+ */
+public class LoadTestResult {
+
+    private final double targetRate;
+    private final long durationNanos;
+    private final long completed;
+    private final long failed;
+    private final long timedOut;
+    private final long dropped;
+    private final LatencySnapshot latency;
+    private final LatencySnapshot serviceTime;
+    private final long allocatedBytes;
+    private final long gcCount;
+    private final long gcTimeMillis;
+    private final int threadCount;
+    private final int peakThreadCount;
+
+    LoadTestResult(double targetRate, long durationNanos, long completed, long failed, long timedOut,
+                   long dropped, LatencySnapshot latency, LatencySnapshot serviceTime, long allocatedBytes, long gcCount,
+                   long gcTimeMillis, int threadCount, int peakThreadCount) {
+        this.targetRate = targetRate;
+        this.durationNanos = durationNanos;
+        this.completed = completed;
+        this.failed = failed;
+        this.timedOut = timedOut;
+        this.dropped = dropped;
+        this.latency = latency;
+        this.serviceTime = serviceTime;
+        this.allocatedBytes = allocatedBytes;
+        this.gcCount = gcCount;
+        this.gcTimeMillis = gcTimeMillis;
+        this.threadCount = threadCount;
+        this.peakThreadCount = peakThreadCount;
+    }
+
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    public double getAchievedRate() {
+        return durationNanos == 0 ? 0 : completed * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Calls that threw, returned a non-2xx status or timed out.
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Calls still outstanding when the run stopped waiting for them. They are not counted as completed, but their
+     * latency up to that point is recorded.
+     */
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Scheduled calls that were never sent because the outstanding call limit was reached.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    public LatencySnapshot getLatency() {
+        return latency;
+    }
+
+    public LatencySnapshot getServiceTime() {
+        return serviceTime;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getAllocatedBytesPerCall() {
+        return completed == 0 ? 0 : allocatedBytes / completed;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getGcTimeMillis() {
+        return gcTimeMillis;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public int getPeakThreadCount() {
+        return peakThreadCount;
+    }
+
+    /**
+     * Whether the client kept up with the offered rate: at least 95% of it was achieved, no call was dropped, fewer
+     * than 1% of the calls failed and p99 latency stayed within {@code p99Limit}. Dropped calls are counted in the
+     * latency distribution at the drain timeout.
+     */
+    public boolean isSustainable(long p99Limit, TimeUnit unit) {
+        return getAchievedRate() >= targetRate * 0.95
+                && dropped == 0
+                && failed <= (completed + timedOut) * 0.01
+                && latency.getP99() <= unit.toNanos(p99Limit);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("target %.0f/s, achieved %.1f/s, completed %d, failed %d, timed out %d, dropped %d%n" +
+                        "  latency      p50 %s  p90 %s  p99 %s  p99.9 %s  max %s%n" +
+                        "  service time p50 %s  p90 %s  p99 %s  p99.9 %s  max %s%n" +
+                        "  allocated %d B/call, gc %d collections / %d ms, threads %d (peak %d)",
+                targetRate, getAchievedRate(), completed, failed, timedOut, dropped,
+                millis(latency.getP50()), millis(latency.getValueAtPercentile(90)), millis(latency.getP99()),
+                millis(latency.getP999()), millis(latency.getMax()),
+                millis(serviceTime.getP50()), millis(serviceTime.getValueAtPercentile(90)),
+                millis(serviceTime.getP99()), millis(serviceTime.getP999()), millis(serviceTime.getMax()),
+                getAllocatedBytesPerCall(), gcCount, gcTimeMillis, threadCount, peakThreadCount);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2fms", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM resource counters sampled at the start and end of a measurement. Allocation is summed over live threads,
+ * except the mock edge's own, so bytes allocated by threads that terminated in between are not counted.
+ */
+final class ResourceUsage {
+
+    private static final String EXCLUDED_THREAD_PREFIX = "mock-delivery-edge-";
+
+    private final Map<Long, Long> allocatedBytes;
+    private final long gcCount;
+    private final long gcTimeMillis;
+
+    private ResourceUsage(Map<Long, Long> allocatedBytes, long gcCount, long gcTimeMillis) {
+        this.allocatedBytes = allocatedBytes;
+        this.gcCount = gcCount;
+        this.gcTimeMillis = gcTimeMillis;
+    }
+
+    static ResourceUsage sample() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Map<Long, Long> allocatedBytes = new HashMap<>();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+            long[] ids = threads.getAllThreadIds();
+            ThreadInfo[] infos = threads.getThreadInfo(ids);
+            long[] bytes = allocation.getThreadAllocatedBytes(ids);
+            for (int i = 0; i < ids.length; i++) {
+                if (infos[i] != null && bytes[i] >= 0 && !infos[i].getThreadName().startsWith(EXCLUDED_THREAD_PREFIX)) {
+                    allocatedBytes.put(ids[i], bytes[i]);
+                }
+            }
+        }
+        long gcCount = 0;
+        long gcTimeMillis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(collector.getCollectionCount(), 0);
+            gcTimeMillis += Math.max(collector.getCollectionTime(), 0);
+        }
+        return new ResourceUsage(allocatedBytes, gcCount, gcTimeMillis);
+    }
+
+    long allocatedBytesSince(ResourceUsage start) {
+        long total = 0;
+        for (Map.Entry<Long, Long> entry : allocatedBytes.entrySet()) {
+            total += entry.getValue() - start.allocatedBytes.getOrDefault(entry.getKey(), 0L);
+        }
+        return total;
+    }
+
+    long gcCountSince(ResourceUsage start) {
+        return gcCount - start.gcCount;
+    }
+
+    long gcTimeMillisSince(ResourceUsage start) {
+        return gcTimeMillis - start.gcTimeMillis;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.loadtest;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.TargetClient;
+import com.adobe.target.edge.client.capture.RecordedCall;
+import com.adobe.target.edge.client.capture.TrafficRecording;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.testing.LatencyDistribution;
+import com.adobe.target.edge.client.testing.MockDeliveryEdge;
+import com.adobe.target.edge.client.testing.MockRequest;
+import com.adobe.target.edge.client.testing.MockResponse;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a {@link TrafficRecording} through a fresh {@link TargetClient} against a {@link MockDeliveryEdge} that
+ * answers each call with its recorded response, status or connection failure. Calls start at their recorded
+ * offsets from the first call divided by {@code speed}, open loop, so a speed of 2 offers the recorded traffic at twice its rate.
+ */
+public final class TrafficReplay {
+
+    private static final String REPLAY_ID_PREFIX = "replay-";
+
+    private final ClientConfig.ClientConfigBuilder clientConfig;
+    private final double speed;
+    private final LatencyDistribution edgeLatency;
+    private final boolean async;
+    private final int workerThreads;
+    private final int maxOutstanding;
+    private final long warmupNanos;
+    private final long drainTimeoutNanos;
+
+    private TrafficReplay(Builder builder) {
+        this.clientConfig = builder.clientConfig;
+        this.speed = builder.speed;
+        this.edgeLatency = builder.edgeLatency;
+        this.async = builder.async;
+        this.workerThreads = builder.workerThreads;
+        this.maxOutstanding = builder.maxOutstanding;
+        this.warmupNanos = builder.warmupNanos;
+        this.drainTimeoutNanos = builder.drainTimeoutNanos;
+    }
+
+    public static Builder builder(ClientConfig.ClientConfigBuilder clientConfig) {
+        return new Builder(clientConfig);
+    }
+
+    public LoadTestResult replay(List<RecordedCall> calls) throws Exception {
+        Map<String, RecordedCall> callsById = new HashMap<>();
+        for (int i = 0; i < calls.size(); i++) {
+            callsById.put(REPLAY_ID_PREFIX + i, calls.get(i));
+        }
+        ExecutorService workers = async ? null : Executors.newFixedThreadPool(workerThreads);
+        try (MockDeliveryEdge edge = MockDeliveryEdge.builder()
+                .latency(edgeLatency)
+                .responder(request -> recordedResponse(callsById, request))
+                .start();
+             TargetClient client = TargetClient.create(edge.configure(clientConfig).build())) {
+            if (warmupNanos > 0) {
+                drive(client, workers, calls, warmupNanos);
+            }
+            return drive(client, workers, calls, Long.MAX_VALUE);
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+        }
+    }
+
+    private LoadTestResult drive(TargetClient client, ExecutorService workers, List<RecordedCall> calls,
+                                 long limitNanos) {
+        CallDriver driver = new CallDriver(client, workers, maxOutstanding);
+        long start = driver.begin();
+        long firstOffsetMillis = calls.isEmpty() ? 0 : calls.get(0).getOffsetMillis();
+        for (int i = 0; i < calls.size(); i++) {
+            RecordedCall call = calls.get(i);
+            String replayId = REPLAY_ID_PREFIX + i;
+            long offset = (long) (TimeUnit.MILLISECONDS.toNanos(call.getOffsetMillis() - firstOffsetMillis) / speed);
+            if (offset > limitNanos) {
+                break;
+            }
+            driver.call(start + offset, call.getCallType(), () -> toTargetDeliveryRequest(call, replayId));
+        }
+        return driver.finish(rate(calls), drainTimeoutNanos);
+    }
+
+    private double rate(List<RecordedCall> calls) {
+        if (calls.size() < 2) {
+            return calls.size();
+        }
+        long spanMillis = calls.get(calls.size() - 1).getOffsetMillis() - calls.get(0).getOffsetMillis();
+        return spanMillis <= 0 ? calls.size() : calls.size() * speed * 1000 / spanMillis;
+    }
+
+    private static MockResponse recordedResponse(Map<String, RecordedCall> callsById, MockRequest request) {
+        DeliveryRequest deliveryRequest = request.getDeliveryRequest();
+        RecordedCall call = deliveryRequest == null ? null : callsById.get(deliveryRequest.getRequestId());
+        if (call == null) {
+            return MockResponse.error(400);
+        }
+        if (call.getStatus() == 0) {
+            return MockResponse.reset();
+        }
+        if (call.getResponse() != null && call.getStatus() == 200) {
+            return MockResponse.ok(call.getResponse());
+        }
+        if (call.getStatus() >= 400) {
+            return MockResponse.error(call.getStatus());
+        }
+        return MockResponse.status(call.getStatus(), "");
+    }
+
+    private static TargetDeliveryRequest toTargetDeliveryRequest(RecordedCall call, String replayId) {
+        DeliveryRequest request = call.getRequest();
+        return TargetDeliveryRequest.builder()
+                .requestId(replayId)
+                .impressionId(request.getImpressionId())
+                .environmentId(request.getEnvironmentId())
+                .property(request.getProperty())
+                .trace(request.getTrace())
+                .context(request.getContext())
+                .execute(request.getExecute())
+                .prefetch(request.getPrefetch())
+                .notifications(request.getNotifications())
+                .qaMode(request.getQaMode())
+                .id(request.getId())
+                .experienceCloud(request.getExperienceCloud())
+                .sessionId(call.getSessionId())
+                .locationHint(call.getLocationHint())
+                .build();
+    }
+
+    /**
+     * Replays a recording from the command line, e.g. {@code file=traffic.jsonl.gz speed=4 async=true}.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+        if (!options.containsKey("file")) {
+            System.err.println("usage: file=<recording> [speed=1] [warmupSeconds=5] [async=false] [connections=100] [edgeLatencyMs=20]");
+            return;
+        }
+        int connections = Integer.parseInt(options.getOrDefault("connections", "100"));
+        long edgeLatencyMillis = Long.parseLong(options.getOrDefault("edgeLatencyMs", "20"));
+        List<RecordedCall> calls = TrafficRecording.read(Paths.get(options.get("file")));
+        LoadTestResult result = TrafficReplay.builder(ClientConfig.builder()
+                .client("replay")
+                .organizationId("0DD934B85278256B0A490D44@AdobeOrg")
+                .maxConnectionsPerHost(connections)
+                .maxConnectionsTotal(connections))
+                .speed(Double.parseDouble(options.getOrDefault("speed", "1")))
+                .async(Boolean.parseBoolean(options.getOrDefault("async", "false")))
+                .workerThreads(Integer.parseInt(options.getOrDefault("workers", String.valueOf(connections))))
+                .edgeLatency(LatencyDistribution.logNormal(edgeLatencyMillis, 0.3, TimeUnit.MILLISECONDS))
+                .warmup(Long.parseLong(options.getOrDefault("warmupSeconds", "5")), TimeUnit.SECONDS)
+                .build()
+                .replay(calls);
+        System.out.println(result);
+    }
+
+    public static final class Builder {
+        private final ClientConfig.ClientConfigBuilder clientConfig;
+        private double speed = 1;
+        private LatencyDistribution edgeLatency = LatencyDistribution.none();
+        private boolean async;
+        private int workerThreads = 100;
+        private int maxOutstanding = 10_000;
+        private long warmupNanos = TimeUnit.SECONDS.toNanos(5);
+        private long drainTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+
+        private Builder(ClientConfig.ClientConfigBuilder clientConfig) {
+            this.clientConfig = clientConfig;
+        }
+
+        /**
+         * Pacing relative to the recording: 1 replays at the original pace, 10 ten times faster.
+         */
+        public Builder speed(double speed) {
+            if (!(speed > 0)) {
+                throw new IllegalArgumentException("speed must be positive");
+            }
+            this.speed = speed;
+            return this;
+        }
+
+        public Builder edgeLatency(LatencyDistribution edgeLatency) {
+            this.edgeLatency = edgeLatency;
+            return this;
+        }
+
+        public Builder async(boolean async) {
+            this.async = async;
+            return this;
+        }
+
+        public Builder workerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+            return this;
+        }
+
+        public Builder maxOutstanding(int maxOutstanding) {
+            this.maxOutstanding = maxOutstanding;
+            return this;
+        }
+
+        /**
+         * Replays the start of the recording for this long, unmeasured, before the measured replay.
+         */
+        public Builder warmup(long warmup, TimeUnit unit) {
+            this.warmupNanos = unit.toNanos(warmup);
+            return this;
+        }
+
+        public Builder drainTimeout(long drainTimeout, TimeUnit unit) {
+            this.drainTimeoutNanos = unit.toNanos(drainTimeout);
+            return this;
+        }
+
+        public TrafficReplay build() {
+            return new TrafficReplay(this);
+        }
+    }
+}
@@ -11,7 +11,18 @@
  */
 package com.adobe.target.edge.client;
 
+import com.adobe.target.edge.client.capture.TrafficRecorder;
+import com.adobe.target.edge.client.metrics.SlowCallRecorder;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.ondevice.DecisioningMethod;
+import com.adobe.target.edge.client.resilience.AdaptiveConcurrencyLimiter;
+import com.adobe.target.edge.client.resilience.BulkheadPolicy;
+import com.adobe.target.edge.client.resilience.CircuitBreakerPolicy;
+import com.adobe.target.edge.client.resilience.HedgingPolicy;
+import com.adobe.target.edge.client.resilience.RetryPolicy;
+import com.adobe.target.edge.client.tracing.TargetTracer;
 import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.conn.DnsResolver;
 
 import java.util.Objects;
 
@@ -32,8 +43,34 @@ public class ClientConfig {
     private boolean enableRetries;
     private boolean logRequests;
     private boolean logRequestStatus;
+    private double logRequestsSampleRate;
+    private boolean logRequestsSampleBySession;
+    private int logRequestsMaxBodyLength;
+    private int logRequestsBufferSize;
+    private int logRequestsMaxFailuresPerSecond;
     private HttpRequestInterceptor requestInterceptor;
     private ClientProxyConfig proxyConfig;
+    private TargetMetricsRegistry metricsRegistry;
+    private SlowCallRecorder slowCallRecorder;
+    private TargetTracer tracer;
+    private DnsResolver dnsResolver;
+    private TrafficRecorder trafficRecorder;
+    private DecisioningMethod decisioningMethod;
+    private String rulesArtifactLocation;
+    private long rulesArtifactPollingInterval;
+    private long rulesArtifactLoadTimeout;
+    private long emptyMboxTtl;
+    private int emptyMboxThreshold;
+    private HedgingPolicy hedgingPolicy;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private CircuitBreakerPolicy circuitBreakerPolicy;
+    private RetryPolicy offersRetryPolicy;
+    private RetryPolicy notificationsRetryPolicy;
+    private BulkheadPolicy offersBulkhead;
+    private BulkheadPolicy notificationsBulkhead;
+    private boolean coalesceRequests;
+    private long batchWindow;
+    private int batchMaxMboxes;
 
     public String getClient() {
         return client;
@@ -71,6 +108,26 @@ public class ClientConfig {
         return logRequestStatus;
     }
 
+    public double getLogRequestsSampleRate() {
+        return logRequestsSampleRate;
+    }
+
+    public boolean isLogRequestsSampleBySession() {
+        return logRequestsSampleBySession;
+    }
+
+    public int getLogRequestsMaxBodyLength() {
+        return logRequestsMaxBodyLength;
+    }
+
+    public int getLogRequestsBufferSize() {
+        return logRequestsBufferSize;
+    }
+
+    public int getLogRequestsMaxFailuresPerSecond() {
+        return logRequestsMaxFailuresPerSecond;
+    }
+
     public HttpRequestInterceptor getRequestInterceptor() {
         return requestInterceptor;
     }
@@ -90,6 +147,98 @@ public class ClientConfig {
     	return proxyConfig != null;
     }
 
+    public TargetMetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    public SlowCallRecorder getSlowCallRecorder() {
+        return slowCallRecorder;
+    }
+
+    public TargetTracer getTracer() {
+        return tracer;
+    }
+
+    public DnsResolver getDnsResolver() {
+        return dnsResolver;
+    }
+
+    public TrafficRecorder getTrafficRecorder() {
+        return trafficRecorder;
+    }
+
+    public DecisioningMethod getDecisioningMethod() {
+        return decisioningMethod;
+    }
+
+    public String getRulesArtifactLocation() {
+        return rulesArtifactLocation;
+    }
+
+    public long getRulesArtifactPollingInterval() {
+        return rulesArtifactPollingInterval;
+    }
+
+    public long getRulesArtifactLoadTimeout() {
+        return rulesArtifactLoadTimeout;
+    }
+
+    public long getEmptyMboxTtl() {
+        return emptyMboxTtl;
+    }
+
+    public int getEmptyMboxThreshold() {
+        return emptyMboxThreshold;
+    }
+
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+        return circuitBreakerPolicy;
+    }
+
+    public RetryPolicy getOffersRetryPolicy() {
+        return offersRetryPolicy;
+    }
+
+    public RetryPolicy getNotificationsRetryPolicy() {
+        return notificationsRetryPolicy;
+    }
+
+    public boolean isRetryPolicyEnabled() {
+        return offersRetryPolicy != null || notificationsRetryPolicy != null;
+    }
+
+    public BulkheadPolicy getOffersBulkhead() {
+        return offersBulkhead;
+    }
+
+    public BulkheadPolicy getNotificationsBulkhead() {
+        return notificationsBulkhead;
+    }
+
+    public boolean isBulkheadsEnabled() {
+        return offersBulkhead != null || notificationsBulkhead != null;
+    }
+
+    public boolean isCoalesceRequests() {
+        return coalesceRequests;
+    }
+
+    public long getBatchWindow() {
+        return batchWindow;
+    }
+
+    public int getBatchMaxMboxes() {
+        return batchMaxMboxes;
+    }
+
     public static ClientConfigBuilder builder() {
         return new ClientConfigBuilder();
     }
@@ -108,8 +257,34 @@ public class ClientConfig {
         private boolean enableRetries = true;
         private boolean logRequests = false;
         private boolean logRequestStatus = false;
+        private double logRequestsSampleRate = 1.0;
+        private boolean logRequestsSampleBySession = false;
+        private int logRequestsMaxBodyLength = 2048;
+        private int logRequestsBufferSize = 1024;
+        private int logRequestsMaxFailuresPerSecond = 10;
         private HttpRequestInterceptor requestInterceptor;
         private ClientProxyConfig proxyConfig;
+        private TargetMetricsRegistry metricsRegistry;
+        private SlowCallRecorder slowCallRecorder;
+        private TargetTracer tracer;
+        private DnsResolver dnsResolver;
+        private TrafficRecorder trafficRecorder;
+        private DecisioningMethod decisioningMethod = DecisioningMethod.SERVER_SIDE;
+        private String rulesArtifactLocation;
+        private long rulesArtifactPollingInterval = 300000;
+        private long rulesArtifactLoadTimeout = 10000;
+        private long emptyMboxTtl = 0;
+        private int emptyMboxThreshold = 20;
+        private HedgingPolicy hedgingPolicy;
+        private AdaptiveConcurrencyLimiter concurrencyLimiter;
+        private CircuitBreakerPolicy circuitBreakerPolicy;
+        private RetryPolicy offersRetryPolicy;
+        private RetryPolicy notificationsRetryPolicy;
+        private BulkheadPolicy offersBulkhead;
+        private BulkheadPolicy notificationsBulkhead;
+        private boolean coalesceRequests = false;
+        private long batchWindow = 0;
+        private int batchMaxMboxes = 50;
 
         private ClientConfigBuilder() {
         }
@@ -169,6 +344,31 @@ public class ClientConfig {
             return this;
         }
 
+        public ClientConfigBuilder logRequestsSampleRate(double logRequestsSampleRate) {
+            this.logRequestsSampleRate = logRequestsSampleRate;
+            return this;
+        }
+
+        public ClientConfigBuilder logRequestsSampleBySession(boolean logRequestsSampleBySession) {
+            this.logRequestsSampleBySession = logRequestsSampleBySession;
+            return this;
+        }
+
+        public ClientConfigBuilder logRequestsMaxBodyLength(int logRequestsMaxBodyLength) {
+            this.logRequestsMaxBodyLength = logRequestsMaxBodyLength;
+            return this;
+        }
+
+        public ClientConfigBuilder logRequestsBufferSize(int logRequestsBufferSize) {
+            this.logRequestsBufferSize = logRequestsBufferSize;
+            return this;
+        }
+
+        public ClientConfigBuilder logRequestsMaxFailuresPerSecond(int logRequestsMaxFailuresPerSecond) {
+            this.logRequestsMaxFailuresPerSecond = logRequestsMaxFailuresPerSecond;
+            return this;
+        }
+
         public void requestInterceptor(HttpRequestInterceptor requestInterceptor) {
             this.requestInterceptor = requestInterceptor;
         }
@@ -178,10 +378,122 @@ public class ClientConfig {
         	return this;
         }
 
+        public ClientConfigBuilder metricsRegistry(TargetMetricsRegistry metricsRegistry) {
+            this.metricsRegistry = metricsRegistry;
+            return this;
+        }
+
+        public ClientConfigBuilder slowCallRecorder(SlowCallRecorder slowCallRecorder) {
+            this.slowCallRecorder = slowCallRecorder;
+            return this;
+        }
+
+        public ClientConfigBuilder tracer(TargetTracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+
+        public ClientConfigBuilder dnsResolver(DnsResolver dnsResolver) {
+            this.dnsResolver = dnsResolver;
+            return this;
+        }
+
+        public ClientConfigBuilder trafficRecorder(TrafficRecorder trafficRecorder) {
+            this.trafficRecorder = trafficRecorder;
+            return this;
+        }
+
+        public ClientConfigBuilder decisioningMethod(DecisioningMethod decisioningMethod) {
+            this.decisioningMethod = decisioningMethod;
+            return this;
+        }
+
+        public ClientConfigBuilder rulesArtifactLocation(String rulesArtifactLocation) {
+            this.rulesArtifactLocation = rulesArtifactLocation;
+            return this;
+        }
+
+        public ClientConfigBuilder rulesArtifactPollingInterval(long rulesArtifactPollingInterval) {
+            this.rulesArtifactPollingInterval = rulesArtifactPollingInterval;
+            return this;
+        }
+
+        public ClientConfigBuilder rulesArtifactLoadTimeout(long rulesArtifactLoadTimeout) {
+            this.rulesArtifactLoadTimeout = rulesArtifactLoadTimeout;
+            return this;
+        }
+
+        public ClientConfigBuilder emptyMboxTtl(long emptyMboxTtl) {
+            this.emptyMboxTtl = emptyMboxTtl;
+            return this;
+        }
+
+        public ClientConfigBuilder emptyMboxThreshold(int emptyMboxThreshold) {
+            this.emptyMboxThreshold = emptyMboxThreshold;
+            return this;
+        }
+
+        public ClientConfigBuilder hedgingPolicy(HedgingPolicy hedgingPolicy) {
+            this.hedgingPolicy = hedgingPolicy;
+            return this;
+        }
+
+        public ClientConfigBuilder concurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+
+        public ClientConfigBuilder circuitBreakerPolicy(CircuitBreakerPolicy circuitBreakerPolicy) {
+            this.circuitBreakerPolicy = circuitBreakerPolicy;
+            return this;
+        }
+
+        public ClientConfigBuilder offersRetryPolicy(RetryPolicy offersRetryPolicy) {
+            this.offersRetryPolicy = offersRetryPolicy;
+            return this;
+        }
+
+        public ClientConfigBuilder notificationsRetryPolicy(RetryPolicy notificationsRetryPolicy) {
+            this.notificationsRetryPolicy = notificationsRetryPolicy;
+            return this;
+        }
+
+        public ClientConfigBuilder offersBulkhead(BulkheadPolicy offersBulkhead) {
+            this.offersBulkhead = offersBulkhead;
+            return this;
+        }
+
+        public ClientConfigBuilder notificationsBulkhead(BulkheadPolicy notificationsBulkhead) {
+            this.notificationsBulkhead = notificationsBulkhead;
+            return this;
+        }
+
+        public ClientConfigBuilder coalesceRequests(boolean coalesceRequests) {
+            this.coalesceRequests = coalesceRequests;
+            return this;
+        }
+
+        public ClientConfigBuilder batchWindow(long batchWindow) {
+            this.batchWindow = batchWindow;
+            return this;
+        }
+
+        public ClientConfigBuilder batchMaxMboxes(int batchMaxMboxes) {
+            this.batchMaxMboxes = batchMaxMboxes;
+            return this;
+        }
+
         public ClientConfig build() {
             ClientConfig clientConfig = new ClientConfig();
             Objects.requireNonNull(client, "client id cannot be null");
             Objects.requireNonNull(organizationId, "organization id cannot be null");
+            Objects.requireNonNull(decisioningMethod, "decisioning method cannot be null");
+            if (decisioningMethod != DecisioningMethod.SERVER_SIDE) {
+                Objects.requireNonNull(rulesArtifactLocation, "rules artifact location cannot be null");
+            }
+            if (batchMaxMboxes < 1) {
+                throw new IllegalArgumentException("batch max mboxes must be positive");
+            }
             clientConfig.client = client;
             clientConfig.organizationId = this.organizationId;
             clientConfig.protocol = secure ? "https://" : "http://";
@@ -196,7 +508,33 @@ public class ClientConfig {
             clientConfig.requestInterceptor = this.requestInterceptor;
             clientConfig.logRequests = this.logRequests;
             clientConfig.logRequestStatus = this.logRequestStatus;
+            clientConfig.logRequestsSampleRate = this.logRequestsSampleRate;
+            clientConfig.logRequestsSampleBySession = this.logRequestsSampleBySession;
+            clientConfig.logRequestsMaxBodyLength = this.logRequestsMaxBodyLength;
+            clientConfig.logRequestsBufferSize = this.logRequestsBufferSize;
+            clientConfig.logRequestsMaxFailuresPerSecond = this.logRequestsMaxFailuresPerSecond;
             clientConfig.proxyConfig = this.proxyConfig;
+            clientConfig.metricsRegistry = this.metricsRegistry;
+            clientConfig.slowCallRecorder = this.slowCallRecorder;
+            clientConfig.tracer = this.tracer;
+            clientConfig.dnsResolver = this.dnsResolver;
+            clientConfig.trafficRecorder = this.trafficRecorder;
+            clientConfig.decisioningMethod = this.decisioningMethod;
+            clientConfig.rulesArtifactLocation = this.rulesArtifactLocation;
+            clientConfig.rulesArtifactPollingInterval = this.rulesArtifactPollingInterval;
+            clientConfig.rulesArtifactLoadTimeout = this.rulesArtifactLoadTimeout;
+            clientConfig.emptyMboxTtl = this.emptyMboxTtl;
+            clientConfig.emptyMboxThreshold = this.emptyMboxThreshold;
+            clientConfig.hedgingPolicy = this.hedgingPolicy;
+            clientConfig.concurrencyLimiter = this.concurrencyLimiter;
+            clientConfig.circuitBreakerPolicy = this.circuitBreakerPolicy;
+            clientConfig.offersRetryPolicy = this.offersRetryPolicy;
+            clientConfig.notificationsRetryPolicy = this.notificationsRetryPolicy;
+            clientConfig.offersBulkhead = this.offersBulkhead;
+            clientConfig.notificationsBulkhead = this.notificationsBulkhead;
+            clientConfig.coalesceRequests = this.coalesceRequests;
+            clientConfig.batchWindow = this.batchWindow;
+            clientConfig.batchMaxMboxes = this.batchMaxMboxes;
             return clientConfig;
         }
     }
@@ -13,9 +13,16 @@ package com.adobe.target.edge.client;
 
 import com.adobe.target.edge.client.http.ResponseStatus;
 import com.adobe.target.edge.client.http.DefaultTargetHttpClient;
+import com.adobe.target.edge.client.ondevice.DecisioningMethod;
+import com.adobe.target.edge.client.ondevice.OnDeviceDecisioningService;
+import com.adobe.target.edge.client.resilience.CircuitBreakingService;
+import com.adobe.target.edge.client.resilience.RetryingService;
+import com.adobe.target.edge.client.service.BatchingService;
+import com.adobe.target.edge.client.service.CoalescingService;
 import com.adobe.target.edge.client.service.TargetRequestException;
 import com.adobe.target.edge.client.service.TargetService;
 import com.adobe.target.edge.client.service.DefaultTargetService;
+import com.adobe.target.edge.client.service.EmptyMboxFilteringService;
 import com.adobe.target.edge.client.model.TargetDeliveryResponse;
 import com.adobe.target.edge.client.model.TargetDeliveryRequest;
 import com.adobe.target.edge.client.service.VisitorProvider;
@@ -32,7 +39,27 @@ public class DefaultTargetClient implements TargetClient {
     private final TargetService targetService;
 
     DefaultTargetClient(ClientConfig clientConfig) {
-        this.targetService = new DefaultTargetService(clientConfig);
+        TargetService remoteService = new DefaultTargetService(clientConfig);
+        if (clientConfig.getCircuitBreakerPolicy() != null) {
+            remoteService = new CircuitBreakingService(clientConfig, remoteService);
+        }
+        if (clientConfig.isRetryPolicyEnabled()) {
+            remoteService = new RetryingService(clientConfig, remoteService);
+        }
+        if (clientConfig.getEmptyMboxTtl() > 0) {
+            remoteService = new EmptyMboxFilteringService(clientConfig, remoteService);
+        }
+        if (clientConfig.isCoalesceRequests()) {
+            remoteService = new CoalescingService(clientConfig, remoteService);
+        }
+        if (clientConfig.getBatchWindow() > 0) {
+            remoteService = new BatchingService(clientConfig, remoteService);
+        }
+        if (clientConfig.getDecisioningMethod() == DecisioningMethod.SERVER_SIDE) {
+            this.targetService = remoteService;
+        } else {
+            this.targetService = new OnDeviceDecisioningService(clientConfig, remoteService);
+        }
         VisitorProvider.init(clientConfig.getOrganizationId());
     }
 
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.capture;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.edge.client.metrics.CallType;
+
+/**
+ * One call read back from a {@link TrafficRecorder} recording.
+ */
+public class RecordedCall {
+
+    private final long offsetMillis;
+    private final CallType callType;
+    private final String locationHint;
+    private final String sessionId;
+    private final int status;
+    private final DeliveryRequest request;
+    private final DeliveryResponse response;
+
+    public RecordedCall(long offsetMillis, CallType callType, String locationHint, String sessionId, int status,
+                        DeliveryRequest request, DeliveryResponse response) {
+        this.offsetMillis = offsetMillis;
+        this.callType = callType;
+        this.locationHint = locationHint;
+        this.sessionId = sessionId;
+        this.status = status;
+        this.request = request;
+        this.response = response;
+    }
+
+    /**
+     * @return when the call was started, relative to the start of the recording
+     */
+    public long getOffsetMillis() {
+        return offsetMillis;
+    }
+
+    public CallType getCallType() {
+        return callType;
+    }
+
+    public String getLocationHint() {
+        return locationHint;
+    }
+
+    /**
+     * @return the anonymized session id
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * @return the HTTP status, or 0 if no response was received
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    public DeliveryRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * @return the response body, or null for notifications sent as beacons and failed calls
+     */
+    public DeliveryResponse getResponse() {
+        return response;
+    }
+
+    @Override
+    public String toString() {
+        return "RecordedCall{" +
+                "offsetMillis=" + offsetMillis +
+                ", callType=" + callType +
+                ", locationHint='" + locationHint + '\'' +
+                ", sessionId='" + sessionId + '\'' +
+                ", status=" + status +
+                '}';
+    }
+}
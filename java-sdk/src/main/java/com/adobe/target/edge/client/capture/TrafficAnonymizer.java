@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.capture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes personal data from delivery API payloads before they are recorded. Identifiers are replaced by a
+ * salted hash, so that calls of the same visitor or session still share a value within one recording, while
+ * the location hint suffix of tnt ids is kept for routing. Parameter values are hashed, URLs lose their query
+ * string and precise geo data is dropped.
+ */
+class TrafficAnonymizer {
+
+    private static final int HASH_LENGTH = 16;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final Set<String> HASHED_FIELDS = new HashSet<>(Arrays.asList(
+            "thirdPartyId", "marketingCloudVisitorId", "supplementalDataId", "blob", "sessionId"));
+    private static final Set<String> HASHED_VALUE_MAPS = new HashSet<>(Arrays.asList(
+            "parameters", "profileParameters"));
+    private static final Set<String> URL_FIELDS = new HashSet<>(Arrays.asList("url", "referringUrl"));
+    private static final Set<String> REMOVED_FIELDS = new HashSet<>(Arrays.asList(
+            "ipAddress", "latitude", "longitude", "zip", "city"));
+    private static final String PROFILE_TOKEN_PREFIX = "profile.";
+
+    private final byte[] salt;
+
+    TrafficAnonymizer() {
+        this.salt = new byte[16];
+        new SecureRandom().nextBytes(salt);
+    }
+
+    String hash(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            byte[] hashed = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[HASH_LENGTH];
+            for (int i = 0; i < HASH_LENGTH / 2; i++) {
+                hex[2 * i] = HEX[(hashed[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX[hashed[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    String hashTntId(String tntId) {
+        if (tntId == null) {
+            return null;
+        }
+        int suffix = tntId.indexOf('.');
+        return suffix < 0 ? hash(tntId) : hash(tntId.substring(0, suffix)) + tntId.substring(suffix);
+    }
+
+    void anonymize(JsonNode node) {
+        if (node instanceof ObjectNode) {
+            anonymizeObject((ObjectNode) node);
+        } else if (node instanceof ArrayNode) {
+            for (JsonNode element : node) {
+                anonymize(element);
+            }
+        }
+    }
+
+    private void anonymizeObject(ObjectNode node) {
+        List<String> removed = new ArrayList<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String name = field.getKey();
+            JsonNode value = field.getValue();
+            if (REMOVED_FIELDS.contains(name)) {
+                removed.add(name);
+            } else if (value.isTextual() && "tntId".equals(name)) {
+                field.setValue(node.textNode(hashTntId(value.asText())));
+            } else if (value.isTextual() && HASHED_FIELDS.contains(name)) {
+                field.setValue(node.textNode(hash(value.asText())));
+            } else if (value.isTextual() && URL_FIELDS.contains(name)) {
+                field.setValue(node.textNode(stripQuery(value.asText())));
+            } else if (value instanceof ObjectNode && HASHED_VALUE_MAPS.contains(name)) {
+                hashValues((ObjectNode) value, "");
+            } else if (value instanceof ObjectNode && "responseTokens".equals(name)) {
+                hashValues((ObjectNode) value, PROFILE_TOKEN_PREFIX);
+            } else if (value instanceof ArrayNode && "customerIds".equals(name)) {
+                for (JsonNode customerId : value) {
+                    if (customerId instanceof ObjectNode && customerId.hasNonNull("id")) {
+                        ((ObjectNode) customerId).put("id", hash(customerId.get("id").asText()));
+                    }
+                }
+            } else if (value instanceof ObjectNode && "order".equals(name) && value.hasNonNull("id")) {
+                ((ObjectNode) value).put("id", hash(value.get("id").asText()));
+            } else {
+                anonymize(value);
+            }
+        }
+        node.remove(removed);
+    }
+
+    private void hashValues(ObjectNode values, String keyPrefix) {
+        Iterator<Map.Entry<String, JsonNode>> fields = values.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getKey().startsWith(keyPrefix) && !field.getValue().isNull()) {
+                field.setValue(values.textNode(hash(field.getValue().asText())));
+            }
+        }
+    }
+
+    private static String stripQuery(String url) {
+        int end = url.length();
+        int query = url.indexOf('?');
+        int fragment = url.indexOf('#');
+        if (query >= 0) {
+            end = query;
+        }
+        if (fragment >= 0 && fragment < end) {
+            end = fragment;
+        }
+        return url.substring(0, end);
+    }
+}
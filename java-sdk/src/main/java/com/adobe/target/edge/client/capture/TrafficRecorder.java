@@ -0,0 +1,228 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.capture;
+
+import com.adobe.target.edge.client.metrics.CallType;
+import com.adobe.target.edge.client.service.TargetClientException;
+import com.adobe.target.edge.client.utils.BoundedRingBuffer;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records delivery API calls to a gzipped file with one JSON document per line, for replay against a local
+ * edge with {@link TrafficRecording}. Requests and responses are anonymized with a salt that is unique to the
+ * recording. Calls are sampled per session so that sampled sessions are recorded in full. The calling thread
+ * only enqueues the call; a background thread serializes and writes it, and calls are dropped when the queue
+ * is full. The recorder is not closed with the client: close it afterwards to flush the file.
+ */
+public class TrafficRecorder implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficRecorder.class);
+    private static final String CLUSTER_PREFIX = "mboxedge";
+    private static final String SESSION_ID = "sessionId";
+    private static final int SESSION_BUCKETS = 10000;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final double sampleRate;
+    private final BoundedRingBuffer<Capture> buffer;
+    private final TrafficAnonymizer anonymizer = new TrafficAnonymizer();
+    private final ObjectMapper objectMapper = createObjectMapper();
+    private final long startNanos = System.nanoTime();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Writer out;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public TrafficRecorder(Path file) {
+        this(file, 1.0, 4096);
+    }
+
+    public TrafficRecorder(Path file, double sampleRate, int bufferSize) {
+        this.sampleRate = sampleRate;
+        this.buffer = new BoundedRingBuffer<>(bufferSize);
+        try {
+            this.out = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(file), true), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new TargetClientException("Cannot open traffic recording " + file, e);
+        }
+        this.writer = new Thread(this::drain, "target-traffic-recorder");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public boolean isSampled(Map<String, Object> queryParams) {
+        if (!running || sampleRate <= 0) {
+            return false;
+        }
+        if (sampleRate >= 1) {
+            return true;
+        }
+        Object sessionId = queryParams == null ? null : queryParams.get(SESSION_ID);
+        if (sessionId == null) {
+            return ThreadLocalRandom.current().nextDouble() < sampleRate;
+        }
+        int bucket = (sessionId.hashCode() & Integer.MAX_VALUE) % SESSION_BUCKETS;
+        return bucket < sampleRate * SESSION_BUCKETS;
+    }
+
+    /**
+     * Queues a call for recording; {@code callStartNanos} is the {@link System#nanoTime()} the call started at.
+     */
+    public void record(long callStartNanos, CallType callType, String url, Map<String, Object> queryParams,
+                       Object request, int status, Object response) {
+        if (!running) {
+            return;
+        }
+        Object sessionId = queryParams == null ? null : queryParams.get(SESSION_ID);
+        Capture capture = new Capture(callStartNanos, callType, locationHint(url),
+                sessionId == null ? null : sessionId.toString(), request, status, response);
+        if (!buffer.offer(capture)) {
+            dropped.increment();
+        }
+    }
+
+    public long getRecordedCalls() {
+        return recorded.sum();
+    }
+
+    public long getDroppedCalls() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() throws Exception {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(CLOSE_TIMEOUT_MILLIS);
+    }
+
+    static ObjectMapper createObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        objectMapper.configure(JsonGenerator.Feature.IGNORE_UNKNOWN, true);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.configure(DeserializationFeature.READ_ENUMS_USING_TO_STRING, true);
+        return objectMapper;
+    }
+
+    static String locationHint(String url) {
+        if (url == null) {
+            return null;
+        }
+        int hostStart = url.indexOf("://");
+        hostStart = hostStart < 0 ? 0 : hostStart + 3;
+        if (!url.startsWith(CLUSTER_PREFIX, hostStart)) {
+            return null;
+        }
+        int hintStart = hostStart + CLUSTER_PREFIX.length();
+        int hintEnd = url.indexOf('.', hintStart);
+        return hintEnd <= hintStart ? null : url.substring(hintStart, hintEnd);
+    }
+
+    private void drain() {
+        boolean unflushed = false;
+        try (Writer output = out) {
+            while (true) {
+                Capture capture = buffer.poll();
+                if (capture == null) {
+                    if (unflushed) {
+                        output.flush();
+                        unflushed = false;
+                    }
+                    if (!running) {
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                try {
+                    output.write(toLine(capture));
+                    output.write('\n');
+                    recorded.increment();
+                    unflushed = true;
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to record delivery call", e);
+                }
+            }
+        } catch (IOException e) {
+            running = false;
+            logger.error("Failed to write traffic recording, recording stopped", e);
+        }
+    }
+
+    private String toLine(Capture capture) throws IOException {
+        ObjectNode line = objectMapper.createObjectNode();
+        line.put("offsetMillis", TimeUnit.NANOSECONDS.toMillis(capture.startNanos - startNanos));
+        line.put("callType", capture.callType.name());
+        line.put("locationHint", capture.locationHint);
+        line.put("sessionId", anonymizer.hash(capture.sessionId));
+        line.put("status", capture.status);
+        line.set("request", anonymized(capture.request));
+        if (capture.response != null) {
+            line.set("response", anonymized(capture.response));
+        }
+        return objectMapper.writeValueAsString(line);
+    }
+
+    private JsonNode anonymized(Object value) {
+        if (value == null) {
+            return null;
+        }
+        JsonNode tree = objectMapper.valueToTree(value);
+        anonymizer.anonymize(tree);
+        return tree;
+    }
+
+    private static final class Capture {
+        private final long startNanos;
+        private final CallType callType;
+        private final String locationHint;
+        private final String sessionId;
+        private final Object request;
+        private final int status;
+        private final Object response;
+
+        private Capture(long startNanos, CallType callType, String locationHint, String sessionId, Object request,
+                        int status, Object response) {
+            this.startNanos = startNanos;
+            this.callType = callType;
+            this.locationHint = locationHint;
+            this.sessionId = sessionId;
+            this.request = request;
+            this.status = status;
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.capture;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.edge.client.metrics.CallType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads back the calls written by a {@link TrafficRecorder}, in the order they were recorded.
+ */
+public final class TrafficRecording {
+
+    private TrafficRecording() {
+    }
+
+    public static List<RecordedCall> read(Path file) throws IOException {
+        ObjectMapper objectMapper = TrafficRecorder.createObjectMapper();
+        List<RecordedCall> calls = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    calls.add(toRecordedCall(objectMapper, objectMapper.readTree(line)));
+                }
+            }
+        }
+        return calls;
+    }
+
+    private static RecordedCall toRecordedCall(ObjectMapper objectMapper, JsonNode line) throws IOException {
+        JsonNode request = line.get("request");
+        JsonNode response = line.get("response");
+        return new RecordedCall(
+                line.path("offsetMillis").asLong(),
+                CallType.valueOf(line.path("callType").asText(CallType.OFFERS.name())),
+                textOrNull(line.get("locationHint")),
+                textOrNull(line.get("sessionId")),
+                line.path("status").asInt(),
+                request == null || request.isNull() ? null : objectMapper.treeToValue(request, DeliveryRequest.class),
+                response == null || response.isNull() ? null
+                        : objectMapper.treeToValue(response, DeliveryResponse.class));
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+}
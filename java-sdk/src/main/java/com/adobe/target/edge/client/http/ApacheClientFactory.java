@@ -0,0 +1,246 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import com.adobe.target.edge.client.metrics.ConnectionPoolMonitor;
+import com.adobe.target.edge.client.metrics.ConnectionPoolStats;
+import com.adobe.target.edge.client.metrics.ConnectionPoolStats.Pool;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import kong.unirest.AsyncClient;
+import kong.unirest.Client;
+import kong.unirest.Config;
+import kong.unirest.HttpRequest;
+import kong.unirest.Proxy;
+import kong.unirest.UnirestConfigException;
+import kong.unirest.apache.ApacheAsyncClient;
+import kong.unirest.apache.ApacheClient;
+import kong.unirest.apache.AsyncIdleConnectionMonitorThread;
+import kong.unirest.apache.SyncIdleConnectionMonitorThread;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Builds the Apache clients behind Unirest the same way Unirest does for the options {@code ClientConfig}
+ * exposes, with connection managers and interceptors that report into the {@link TargetCallContext}.
+ * Keeps hold of the connection pools it creates so that their state can be read back.
+ *
+ * <p>Calls with a deadline get timeouts no longer than the time they have left, and are aborted by a
+ * timer when the deadline passes.
+ */
+class ApacheClientFactory implements ConnectionPoolMonitor, AutoCloseable {
+
+    private final String bulkhead;
+    private final TargetMetricsRegistry metricsRegistry;
+    private final DnsResolver dnsResolver;
+    private final ScheduledThreadPoolExecutor deadlineTimer;
+    private volatile PoolingHttpClientConnectionManager syncManager;
+    private volatile PoolingNHttpClientConnectionManager asyncManager;
+    private volatile RequestConfig defaultRequestConfig;
+
+    ApacheClientFactory(TargetMetricsRegistry metricsRegistry, DnsResolver dnsResolver) {
+        this(ConnectionPoolStats.SHARED, metricsRegistry, dnsResolver);
+    }
+
+    ApacheClientFactory(String bulkhead, TargetMetricsRegistry metricsRegistry, DnsResolver dnsResolver) {
+        this.bulkhead = bulkhead;
+        this.metricsRegistry = metricsRegistry;
+        this.dnsResolver = dnsResolver;
+        this.deadlineTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "target-deadline-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.deadlineTimer.setRemoveOnCancelPolicy(true);
+    }
+
+    Client createClient(Config config) {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                        .build(),
+                null, null, dnsResolver, config.getTTL(), TimeUnit.MILLISECONDS);
+        manager.setMaxTotal(config.getMaxConnections());
+        manager.setDefaultMaxPerRoute(config.getMaxPerRoutes());
+        syncManager = manager;
+        SyncIdleConnectionMonitorThread monitor = new SyncIdleConnectionMonitorThread(manager);
+        monitor.start();
+
+        HttpClientBuilder builder = HttpClients.custom()
+                .setDefaultRequestConfig(toRequestConfig(config))
+                .setDefaultCredentialsProvider(toCredentials(config.getProxy()))
+                .setConnectionManager(new TimedConnectionManager(manager, bulkhead, metricsRegistry))
+                .useSystemProperties()
+                .addInterceptorLast(new FirstByteInterceptor());
+        if (!config.isAutomaticRetries()) {
+            builder.disableAutomaticRetries();
+        }
+        if (!config.isRequestCompressionOn()) {
+            builder.disableContentCompression();
+        }
+        if (!config.getFollowRedirects()) {
+            builder.disableRedirectHandling();
+        }
+        if (!config.getEnabledCookieManagement()) {
+            builder.disableCookieManagement();
+        }
+        config.getInterceptors().forEach(builder::addInterceptorFirst);
+        ApacheClient client = new ApacheClient(new CallContextClient(builder.build(), deadlineTimer), config,
+                manager, monitor);
+        client.setConfigFactory(this::requestConfig);
+        return client;
+    }
+
+    AsyncClient createAsyncClient(Config config) {
+        PoolingNHttpClientConnectionManager manager;
+        try {
+            manager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(), null,
+                    RegistryBuilder.<SchemeIOSessionStrategy>create()
+                            .register("http", NoopIOSessionStrategy.INSTANCE)
+                            .register("https", SSLIOSessionStrategy.getDefaultStrategy())
+                            .build(),
+                    null, dnsResolver, config.getTTL(), TimeUnit.MILLISECONDS);
+        } catch (IOReactorException e) {
+            throw new UnirestConfigException(e);
+        }
+        manager.setMaxTotal(config.getMaxConnections());
+        manager.setDefaultMaxPerRoute(config.getMaxPerRoutes());
+        asyncManager = manager;
+
+        HttpAsyncClientBuilder builder = HttpAsyncClientBuilder.create()
+                .setDefaultRequestConfig(toRequestConfig(config))
+                .setDefaultCredentialsProvider(toCredentials(config.getProxy()))
+                .setConnectionManager(new TimedNHttpConnectionManager(manager, bulkhead, metricsRegistry))
+                .useSystemProperties()
+                .addInterceptorLast(new FirstByteInterceptor());
+        if (!config.getEnabledCookieManagement()) {
+            builder.disableCookieManagement();
+        }
+        config.getInterceptors().forEach(builder::addInterceptorFirst);
+        CloseableHttpAsyncClient client = new CallContextAsyncClient(builder.build(), deadlineTimer);
+        client.start();
+        AsyncIdleConnectionMonitorThread monitor = new AsyncIdleConnectionMonitorThread(manager);
+        monitor.tryStart();
+        ApacheAsyncClient asyncClient = new ApacheAsyncClient(client, config, manager, monitor);
+        asyncClient.setConfigFactory(this::requestConfig);
+        return asyncClient;
+    }
+
+    @Override
+    public List<ConnectionPoolStats> getConnectionPoolStats() {
+        List<ConnectionPoolStats> stats = new ArrayList<>();
+        PoolingHttpClientConnectionManager sync = syncManager;
+        if (sync != null) {
+            addStats(stats, Pool.SYNC, bulkhead, sync.getRoutes(), sync::getStats, sync.getTotalStats());
+        }
+        PoolingNHttpClientConnectionManager async = asyncManager;
+        if (async != null) {
+            addStats(stats, Pool.ASYNC, bulkhead, async.getRoutes(), async::getStats, async.getTotalStats());
+        }
+        return stats;
+    }
+
+    private static void addStats(List<ConnectionPoolStats> stats, Pool pool, String bulkhead, Set<HttpRoute> routes,
+                                 Function<HttpRoute, PoolStats> routeStats, PoolStats totalStats) {
+        for (HttpRoute route : routes) {
+            stats.add(toConnectionPoolStats(pool, bulkhead, routeName(route), routeStats.apply(route)));
+        }
+        stats.add(toConnectionPoolStats(pool, bulkhead, ConnectionPoolStats.TOTAL, totalStats));
+    }
+
+    private static ConnectionPoolStats toConnectionPoolStats(Pool pool, String bulkhead, String route,
+                                                             PoolStats stats) {
+        return new ConnectionPoolStats(pool, bulkhead, route, stats.getLeased(), stats.getAvailable(), stats.getPending(),
+                stats.getMax());
+    }
+
+    static String routeName(HttpRoute route) {
+        return route.getTargetHost().toURI();
+    }
+
+    @Override
+    public void close() {
+        deadlineTimer.shutdownNow();
+    }
+
+    private RequestConfig requestConfig(Config config, HttpRequest<?> request) {
+        RequestConfig requestConfig = defaultRequestConfig;
+        if (requestConfig == null) {
+            requestConfig = toRequestConfig(config);
+            defaultRequestConfig = requestConfig;
+        }
+        TargetCallContext call = TargetCallContext.current();
+        if (call == null || !call.hasDeadline()) {
+            return requestConfig;
+        }
+        int remainingMillis = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                TimeUnit.NANOSECONDS.toMillis(call.getRemainingNanos())));
+        return RequestConfig.copy(requestConfig)
+                .setConnectTimeout(bound(requestConfig.getConnectTimeout(), remainingMillis))
+                .setSocketTimeout(bound(requestConfig.getSocketTimeout(), remainingMillis))
+                .setConnectionRequestTimeout(bound(requestConfig.getConnectionRequestTimeout(), remainingMillis))
+                .build();
+    }
+
+    private static int bound(int timeoutMillis, int remainingMillis) {
+        return timeoutMillis <= 0 ? remainingMillis : Math.min(timeoutMillis, remainingMillis);
+    }
+
+    private static RequestConfig toRequestConfig(Config config) {
+        Proxy proxy = config.getProxy();
+        return RequestConfig.custom()
+                .setConnectTimeout(config.getConnectionTimeout())
+                .setSocketTimeout(config.getSocketTimeout())
+                .setConnectionRequestTimeout(config.getConnectionTimeout())
+                .setProxy(proxy == null ? null : new HttpHost(proxy.getHost(), proxy.getPort()))
+                .build();
+    }
+
+    private static CredentialsProvider toCredentials(Proxy proxy) {
+        if (proxy == null || !proxy.isAuthenticated()) {
+            return null;
+        }
+        CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        credentialsProvider.setCredentials(new AuthScope(proxy.getHost(), proxy.getPort()),
+                new UsernamePasswordCredentials(proxy.getUsername(), proxy.getPassword()));
+        return credentialsProvider;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Async client that carries the {@link TargetCallContext} of the dispatching thread onto the
+ * exchange's {@link HttpContext}, where the I/O threads can find it, and hands the exchange back to the
+ * call so that it can be cancelled, which the call's deadline does as well.
+ */
+class CallContextAsyncClient extends CloseableHttpAsyncClient {
+
+    private final CloseableHttpAsyncClient delegate;
+    private final ScheduledExecutorService deadlineTimer;
+
+    CallContextAsyncClient(CloseableHttpAsyncClient delegate, ScheduledExecutorService deadlineTimer) {
+        this.delegate = delegate;
+        this.deadlineTimer = deadlineTimer;
+    }
+
+    @Override
+    public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer,
+                                 HttpAsyncResponseConsumer<T> responseConsumer,
+                                 HttpContext context,
+                                 FutureCallback<T> callback) {
+        TargetCallContext call = TargetCallContext.current();
+        if (call != null) {
+            if (context == null) {
+                context = HttpClientContext.create();
+            }
+            context.setAttribute(TargetCallContext.ATTRIBUTE, call);
+        }
+        Future<T> future = delegate.execute(requestProducer, responseConsumer, context, callback);
+        if (call != null) {
+            call.setExchange(future);
+        }
+        if (call != null && call.hasDeadline()) {
+            call.setDeadlineTimer(deadlineTimer.schedule(() -> future.cancel(true), call.getRemainingNanos(),
+                    TimeUnit.NANOSECONDS));
+        }
+        return future;
+    }
+
+    @Override
+    public void start() {
+        delegate.start();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return delegate.isRunning();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
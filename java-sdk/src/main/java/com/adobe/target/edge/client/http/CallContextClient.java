@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sync client that aborts the exchange, whether it is waiting for a pooled connection, connecting or
+ * reading, once the deadline of the dispatching thread's {@link TargetCallContext} passes.
+ */
+class CallContextClient extends CloseableHttpClient {
+
+    private final CloseableHttpClient delegate;
+    private final ScheduledExecutorService deadlineTimer;
+
+    CallContextClient(CloseableHttpClient delegate, ScheduledExecutorService deadlineTimer) {
+        this.delegate = delegate;
+        this.deadlineTimer = deadlineTimer;
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+            throws IOException {
+        TargetCallContext call = TargetCallContext.current();
+        if (call != null && call.hasDeadline() && request instanceof HttpUriRequest) {
+            HttpUriRequest abortable = (HttpUriRequest) request;
+            call.setDeadlineTimer(deadlineTimer.schedule(abortable::abort, call.getRemainingNanos(),
+                    TimeUnit.NANOSECONDS));
+        }
+        return delegate.execute(target, request, context);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import kong.unirest.GenericType;
+import kong.unirest.ObjectMapper;
+
+/**
+ * Per-call wrapper of the shared object mapper that marks the serialize and deserialize phases of
+ * a {@link TargetCallContext}. Unirest reads the whole body into a string before handing it to the
+ * mapper, so the start of deserialization is also the end of the body read.
+ */
+class CallTimingObjectMapper implements ObjectMapper {
+
+    private final ObjectMapper delegate;
+    private final TargetCallContext call;
+
+    CallTimingObjectMapper(ObjectMapper delegate, TargetCallContext call) {
+        this.delegate = delegate;
+        this.call = call;
+    }
+
+    @Override
+    public <T> T readValue(String value, Class<T> valueType) {
+        call.deserializeStarted(utf8Length(value));
+        try {
+            return delegate.readValue(value, valueType);
+        } finally {
+            call.deserializeFinished();
+        }
+    }
+
+    @Override
+    public <T> T readValue(String value, GenericType<T> genericType) {
+        call.deserializeStarted(utf8Length(value));
+        try {
+            return delegate.readValue(value, genericType);
+        } finally {
+            call.deserializeFinished();
+        }
+    }
+
+    @Override
+    public String writeValue(Object value) {
+        call.serializeStarted();
+        String json = delegate.writeValue(value);
+        call.serializeFinished(utf8Length(json));
+        return json;
+    }
+
+    static long utf8Length(CharSequence value) {
+        if (value == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
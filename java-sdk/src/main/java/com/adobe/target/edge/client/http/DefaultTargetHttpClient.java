@@ -13,30 +13,72 @@ package com.adobe.target.edge.client.http;
 
 import com.adobe.target.edge.client.ClientConfig;
 import com.adobe.target.edge.client.ClientProxyConfig;
+import com.adobe.target.edge.client.metrics.CallType;
+import com.adobe.target.edge.client.metrics.ConnectionPoolStats;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.resilience.BulkheadPolicy;
+import com.adobe.target.edge.client.tracing.TraceContext;
 import kong.unirest.HttpResponse;
 import kong.unirest.ObjectMapper;
+import kong.unirest.RawResponse;
 import kong.unirest.Unirest;
+import kong.unirest.UnirestException;
 import kong.unirest.UnirestInstance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
+import static com.adobe.target.edge.client.utils.StringUtils.isNotEmpty;
+
 public class DefaultTargetHttpClient implements TargetHttpClient {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultTargetHttpClient.class);
+    private static final int DRAIN_BUFFER_SIZE = 4096;
 
     private UnirestInstance unirestInstance = Unirest.spawnInstance();
+    private final ObjectMapper objectMapper = getObjectMapper();
+    private final ApacheClientFactory clientFactory;
+    private final TargetMetricsRegistry metricsRegistry;
 
     public DefaultTargetHttpClient(ClientConfig clientConfig) {
+        this(clientConfig, ConnectionPoolStats.SHARED, null);
+    }
+
+    /**
+     * Creates a client with pools of its own for the bulkhead of {@code callType}. Limits and timeouts are
+     * taken from {@code bulkhead}, or from {@code clientConfig} when it is null.
+     */
+    public DefaultTargetHttpClient(ClientConfig clientConfig, CallType callType, BulkheadPolicy bulkhead) {
+        this(clientConfig, callType.name().toLowerCase(Locale.ROOT), bulkhead);
+    }
+
+    private DefaultTargetHttpClient(ClientConfig clientConfig, String poolName, BulkheadPolicy bulkhead) {
+        metricsRegistry = clientConfig.getMetricsRegistry();
+        clientFactory = new ApacheClientFactory(poolName, metricsRegistry, clientConfig.getDnsResolver());
+        if (bulkhead == null) {
+            unirestInstance.config()
+                    .socketTimeout(clientConfig.getSocketTimeout())
+                    .connectTimeout(clientConfig.getConnectTimeout())
+                    .concurrency(clientConfig.getMaxConnectionsTotal(), clientConfig.getMaxConnectionsPerHost());
+        } else {
+            unirestInstance.config()
+                    .socketTimeout(bulkhead.getSocketTimeout())
+                    .connectTimeout(bulkhead.getConnectTimeout())
+                    .concurrency(bulkhead.getMaxConnectionsTotal(), bulkhead.getMaxConnectionsPerHost());
+        }
         unirestInstance.config()
-                .socketTimeout(clientConfig.getSocketTimeout())
-                .connectTimeout(clientConfig.getConnectTimeout())
-                .concurrency(clientConfig.getMaxConnectionsTotal(), clientConfig.getMaxConnectionsPerHost())
-                .automaticRetries(clientConfig.isEnabledRetries())
+                .httpClient(clientFactory::createClient)
+                .asyncClient(clientFactory::createAsyncClient)
+                .automaticRetries(clientConfig.isEnabledRetries() && !clientConfig.isRetryPolicyEnabled())
                 .enableCookieManagement(false)
-                .setObjectMapper(getObjectMapper())
+                .setObjectMapper(objectMapper)
                 .setDefaultHeader("Accept", "application/json");
 
         if (clientConfig.isLogRequestStatus()) {
@@ -55,6 +97,10 @@ public class DefaultTargetHttpClient implements TargetHttpClient {
                 unirestInstance.config().proxy(proxyConfig.getHost(), proxyConfig.getPort());
             }
         }
+
+        if (metricsRegistry != null) {
+            metricsRegistry.registerConnectionPool(clientFactory);
+        }
     }
 
     private ObjectMapper getObjectMapper() {
@@ -64,6 +110,25 @@ public class DefaultTargetHttpClient implements TargetHttpClient {
         return serializer;
     }
 
+    private ObjectMapper getCallObjectMapper() {
+        TargetCallContext call = TargetCallContext.current();
+        return call == null ? objectMapper : new CallTimingObjectMapper(objectMapper, call);
+    }
+
+    private Map<String, String> getTraceHeaders() {
+        TargetCallContext call = TargetCallContext.current();
+        TraceContext traceContext = call == null ? null : call.getTraceContext();
+        if (traceContext == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> headers = new HashMap<>(4);
+        headers.put(TraceContext.TRACEPARENT, traceContext.toTraceParent());
+        if (isNotEmpty(traceContext.getTraceState())) {
+            headers.put(TraceContext.TRACESTATE, traceContext.getTraceState());
+        }
+        return headers;
+    }
+
     @Override
     public void addDefaultHeader(String key, String value) {
         unirestInstance.config().setDefaultHeader(key, value);
@@ -73,6 +138,8 @@ public class DefaultTargetHttpClient implements TargetHttpClient {
     public <T, R> HttpResponse<R> execute(Map<String, Object> queryParams, String url, T request, Class<R> response) {
         return unirestInstance.post(url)
                 .queryString(queryParams)
+                .withObjectMapper(getCallObjectMapper())
+                .headers(getTraceHeaders())
                 .body(request)
                 .asObject(response);
     }
@@ -82,13 +149,59 @@ public class DefaultTargetHttpClient implements TargetHttpClient {
                                                                   T request, Class<R> response) {
         return unirestInstance.post(url)
                 .queryString(queryParams)
+                .withObjectMapper(getCallObjectMapper())
+                .headers(getTraceHeaders())
                 .body(request)
                 .asObjectAsync(response);
     }
 
+    @Override
+    public <T> HttpResponse<Void> executeDiscardingBody(Map<String, Object> queryParams, String url, T request) {
+        return unirestInstance.post(url)
+                .queryString(queryParams)
+                .withObjectMapper(getCallObjectMapper())
+                .headers(getTraceHeaders())
+                .body(request)
+                .asObject(DefaultTargetHttpClient::discardBody);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<Void>> executeDiscardingBodyAsync(Map<String, Object> queryParams,
+                                                                               String url, T request) {
+        return unirestInstance.post(url)
+                .queryString(queryParams)
+                .withObjectMapper(getCallObjectMapper())
+                .headers(getTraceHeaders())
+                .body(request)
+                .asObjectAsync(DefaultTargetHttpClient::discardBody);
+    }
+
+    /**
+     * Reads the response entity to the end without deserializing it. The underlying connection is released
+     * back to the pool once the body has been drained.
+     */
+    private static Void discardBody(RawResponse rawResponse) {
+        if (!rawResponse.hasContent()) {
+            return null;
+        }
+        try (InputStream content = rawResponse.getContent()) {
+            byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+            while (content.read(buffer) != -1) {
+                // drain
+            }
+        } catch (IOException e) {
+            throw new UnirestException(e);
+        }
+        return null;
+    }
+
     @Override
     public void close() {
+        if (metricsRegistry != null) {
+            metricsRegistry.unregisterConnectionPool(clientFactory);
+        }
         unirestInstance.shutDown();
+        clientFactory.close();
     }
 
     UnirestInstance getUnirestInstance() {
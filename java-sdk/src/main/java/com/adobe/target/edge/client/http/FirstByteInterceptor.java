@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Marks the time to first byte of a call. Response interceptors run as soon as the status line and
+ * headers have been parsed, before the entity is consumed.
+ */
+class FirstByteInterceptor implements HttpResponseInterceptor {
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        TargetCallContext call = TargetCallContext.from(context);
+        if (call == null) {
+            return;
+        }
+        HttpEntity entity = response.getEntity();
+        call.firstByteReceived(entity == null ? 0 : entity.getContentLength());
+    }
+}
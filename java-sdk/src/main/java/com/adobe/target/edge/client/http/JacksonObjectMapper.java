@@ -20,6 +20,7 @@ import kong.unirest.GenericType;
 import kong.unirest.UnirestException;
 
 import java.io.IOException;
+import java.io.Writer;
 
 public class JacksonObjectMapper implements kong.unirest.ObjectMapper {
 
@@ -60,4 +61,8 @@ public class JacksonObjectMapper implements kong.unirest.ObjectMapper {
         }
     }
 
+    public void writeValue(Writer writer, Object value) throws IOException {
+        objectMapper.writeValue(writer, value);
+    }
+
 }
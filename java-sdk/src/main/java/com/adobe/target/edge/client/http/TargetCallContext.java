@@ -0,0 +1,218 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import com.adobe.target.edge.client.metrics.CallType;
+import com.adobe.target.edge.client.metrics.Phase;
+import com.adobe.target.edge.client.metrics.PhaseTimings;
+import com.adobe.target.edge.client.tracing.TraceContext;
+import org.apache.http.protocol.HttpContext;
+
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static com.adobe.target.edge.client.metrics.PhaseTimings.NOT_OBSERVED;
+
+/**
+ * Mutable state of a single delivery call. It is bound to the dispatching thread while the request is
+ * handed to the http client, and carried on the Apache {@link HttpContext} once the exchange moves to
+ * the I/O threads, so that every layer of the transport can mark the phase it is responsible for.
+ */
+public class TargetCallContext {
+
+    static final String ATTRIBUTE = TargetCallContext.class.getName();
+
+    private static final ThreadLocal<TargetCallContext> CURRENT = new ThreadLocal<>();
+    private static final long UNSET = Long.MIN_VALUE;
+    private static final int PHASE_COUNT = Phase.values().length;
+
+    private final CallType callType;
+    private final long buildNanos;
+    private final long startNanos = System.nanoTime();
+
+    private volatile long serializeStartNanos = UNSET;
+    private volatile long serializeEndNanos = UNSET;
+    private volatile long leaseStartNanos = UNSET;
+    private volatile long leaseEndNanos = UNSET;
+    private volatile long firstByteNanos = UNSET;
+    private volatile long deserializeStartNanos = UNSET;
+    private volatile long deserializeEndNanos = UNSET;
+    private volatile long endNanos = UNSET;
+    private volatile long requestBytes = NOT_OBSERVED;
+    private volatile long responseBytes = NOT_OBSERVED;
+    private TraceContext traceContext;
+    private boolean deadline;
+    private long deadlineNanos;
+    private volatile Future<?> deadlineTimer;
+    private volatile Future<?> exchange;
+    private volatile boolean cancelled;
+
+    public TargetCallContext(CallType callType, long buildNanos) {
+        this.callType = callType;
+        this.buildNanos = buildNanos;
+    }
+
+    public static TargetCallContext current() {
+        return CURRENT.get();
+    }
+
+    static TargetCallContext from(HttpContext context) {
+        Object call = context == null ? null : context.getAttribute(ATTRIBUTE);
+        return call instanceof TargetCallContext ? (TargetCallContext) call : CURRENT.get();
+    }
+
+    /**
+     * Runs {@code dispatch} with this call bound to the current thread.
+     */
+    public <R> R dispatch(Supplier<R> dispatch) {
+        TargetCallContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return dispatch.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public CallType getCallType() {
+        return callType;
+    }
+
+    public TraceContext getTraceContext() {
+        return traceContext;
+    }
+
+    public void setTraceContext(TraceContext traceContext) {
+        this.traceContext = traceContext;
+    }
+
+    /**
+     * Sets the {@link System#nanoTime()} at which the transport aborts the call. Must be set before dispatch.
+     */
+    public void setDeadlineNanos(long deadlineNanos) {
+        this.deadline = true;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public boolean hasDeadline() {
+        return deadline;
+    }
+
+    public long getRemainingNanos() {
+        return deadline ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    public boolean isDeadlineExceeded() {
+        return deadline && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    void setDeadlineTimer(Future<?> deadlineTimer) {
+        this.deadlineTimer = deadlineTimer;
+    }
+
+    /**
+     * Aborts the exchange of an async call, or the exchange it starts later if it has not been sent yet,
+     * e.g. while it waits for a concurrency permit. The connection is closed rather than returned to the pool.
+     */
+    public void cancel() {
+        cancelled = true;
+        Future<?> current = exchange;
+        if (current != null) {
+            current.cancel(true);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void setExchange(Future<?> exchange) {
+        this.exchange = exchange;
+        if (cancelled) {
+            exchange.cancel(true);
+        }
+    }
+
+    void serializeStarted() {
+        serializeStartNanos = System.nanoTime();
+    }
+
+    void serializeFinished(long bytes) {
+        serializeEndNanos = System.nanoTime();
+        requestBytes = bytes;
+    }
+
+    void leased(long startNanos, long endNanos) {
+        leaseStartNanos = startNanos;
+        leaseEndNanos = endNanos;
+    }
+
+    void firstByteReceived(long contentLength) {
+        firstByteNanos = System.nanoTime();
+        if (contentLength >= 0) {
+            responseBytes = contentLength;
+        }
+    }
+
+    void deserializeStarted(long bytes) {
+        deserializeStartNanos = System.nanoTime();
+        responseBytes = bytes;
+    }
+
+    void deserializeFinished() {
+        deserializeEndNanos = System.nanoTime();
+    }
+
+    public void complete() {
+        if (endNanos == UNSET) {
+            endNanos = System.nanoTime();
+        }
+        Future<?> timer = deadlineTimer;
+        if (timer != null) {
+            timer.cancel(false);
+        }
+    }
+
+    public long getElapsedNanos() {
+        long end = endNanos;
+        return (end == UNSET ? System.nanoTime() : end) - startNanos;
+    }
+
+    public PhaseTimings getPhaseTimings() {
+        long[] phases = new long[PHASE_COUNT];
+        phases[Phase.BUILD.ordinal()] = buildNanos;
+        phases[Phase.SERIALIZE.ordinal()] = elapsed(serializeStartNanos, serializeEndNanos);
+        phases[Phase.POOL_LEASE.ordinal()] = elapsed(leaseStartNanos, leaseEndNanos);
+        phases[Phase.TIME_TO_FIRST_BYTE.ordinal()] = elapsed(requestSentNanos(), firstByteNanos);
+        phases[Phase.BODY_READ.ordinal()] = elapsed(firstByteNanos, deserializeStartNanos);
+        phases[Phase.DESERIALIZE.ordinal()] = elapsed(deserializeStartNanos, deserializeEndNanos);
+        return new PhaseTimings(phases, getElapsedNanos(), requestBytes, responseBytes);
+    }
+
+    private long requestSentNanos() {
+        if (leaseEndNanos != UNSET) {
+            return leaseEndNanos;
+        }
+        return serializeEndNanos != UNSET ? serializeEndNanos : startNanos;
+    }
+
+    private static long elapsed(long from, long to) {
+        if (from == UNSET || to == UNSET || to < from) {
+            return NOT_OBSERVED;
+        }
+        return to - from;
+    }
+}
@@ -11,6 +11,11 @@
  */
 package com.adobe.target.edge.client.http;
 
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.capture.TrafficRecorder;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.resilience.AdaptiveConcurrencyLimiter;
+import com.adobe.target.edge.client.resilience.BulkheadPolicy;
 import kong.unirest.HttpResponse;
 
 import java.util.Map;
@@ -22,10 +27,47 @@ public interface TargetHttpClient extends AutoCloseable {
 
     <T, R> CompletableFuture<HttpResponse<R>> executeAsync(Map<String, Object> queryParams, String url,
                                                            T request, Class<R> response);
+
+    /**
+     * Sends a request whose response body is not needed. Implementations read the body to the end without
+     * deserializing it, so that the connection can be reused.
+     */
+    <T> HttpResponse<Void> executeDiscardingBody(Map<String, Object> queryParams, String url, T request);
+
+    /**
+     * Async variant of {@link #executeDiscardingBody}.
+     */
+    <T> CompletableFuture<HttpResponse<Void>> executeDiscardingBodyAsync(Map<String, Object> queryParams, String url,
+                                                                        T request);
+
     void addDefaultHeader(String key, String value);
 
     static TargetHttpClient createLoggingHttpClient(TargetHttpClient targetHttpClient) {
         return new TargetHttpClientLoggingDecorator(targetHttpClient);
     }
 
+    static TargetHttpClient createSampledLoggingHttpClient(TargetHttpClient targetHttpClient,
+                                                           ClientConfig clientConfig) {
+        return new TargetHttpClientSampledLoggingDecorator(targetHttpClient, clientConfig);
+    }
+
+    static TargetHttpClient createRecordingHttpClient(TargetHttpClient targetHttpClient,
+                                                      TrafficRecorder trafficRecorder) {
+        return new TargetHttpClientRecordingDecorator(targetHttpClient, trafficRecorder);
+    }
+
+    static TargetHttpClient createLimitingHttpClient(TargetHttpClient targetHttpClient,
+                                                     AdaptiveConcurrencyLimiter limiter,
+                                                     TargetMetricsRegistry metricsRegistry) {
+        return new TargetHttpClientLimitingDecorator(targetHttpClient, limiter, metricsRegistry);
+    }
+
+    static TargetHttpClient createBulkheadHttpClient(TargetHttpClient offersClient, BulkheadPolicy offersBulkhead,
+                                                     TargetHttpClient notificationsClient,
+                                                     BulkheadPolicy notificationsBulkhead,
+                                                     TargetMetricsRegistry metricsRegistry) {
+        return new TargetHttpClientBulkheadDecorator(offersClient, offersBulkhead, notificationsClient,
+                notificationsBulkhead, metricsRegistry);
+    }
+
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import com.adobe.target.edge.client.metrics.CallType;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.resilience.BulkheadFullException;
+import com.adobe.target.edge.client.resilience.BulkheadPolicy;
+import kong.unirest.HttpResponse;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Sends getOffers calls and notifications through separate clients, each with its own connection pools,
+ * picked by the {@link CallType} of the {@link TargetCallContext} being dispatched. Calls without a context
+ * are sent as getOffers calls. A bulkhead with {@code maxConcurrentCalls} rejects calls beyond that many
+ * in flight with a {@link BulkheadFullException}.
+ */
+public class TargetHttpClientBulkheadDecorator implements TargetHttpClient {
+
+    public static final String OFFERS_REJECTED = "offers.bulkhead.rejected";
+    public static final String NOTIFICATIONS_REJECTED = "notifications.bulkhead.rejected";
+
+    private final Bulkhead offers;
+    private final Bulkhead notifications;
+
+    public TargetHttpClientBulkheadDecorator(TargetHttpClient offersClient, BulkheadPolicy offersBulkhead,
+                                             TargetHttpClient notificationsClient,
+                                             BulkheadPolicy notificationsBulkhead,
+                                             TargetMetricsRegistry metricsRegistry) {
+        this.offers = new Bulkhead(CallType.OFFERS, offersClient, offersBulkhead, OFFERS_REJECTED,
+                metricsRegistry);
+        this.notifications = new Bulkhead(CallType.NOTIFICATIONS, notificationsClient, notificationsBulkhead,
+                NOTIFICATIONS_REJECTED, metricsRegistry);
+    }
+
+    @Override
+    public <T, R> HttpResponse<R> execute(Map<String, Object> queryParams, String url, T request, Class<R> response) {
+        Bulkhead bulkhead = current();
+        return bulkhead.run(() -> bulkhead.client.execute(queryParams, url, request, response));
+    }
+
+    @Override
+    public <T, R> CompletableFuture<HttpResponse<R>> executeAsync(Map<String, Object> queryParams, String url,
+                                                                  T request, Class<R> response) {
+        Bulkhead bulkhead = current();
+        return bulkhead.runAsync(() -> bulkhead.client.executeAsync(queryParams, url, request, response));
+    }
+
+    @Override
+    public <T> HttpResponse<Void> executeDiscardingBody(Map<String, Object> queryParams, String url, T request) {
+        Bulkhead bulkhead = current();
+        return bulkhead.run(() -> bulkhead.client.executeDiscardingBody(queryParams, url, request));
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<Void>> executeDiscardingBodyAsync(Map<String, Object> queryParams,
+                                                                               String url, T request) {
+        Bulkhead bulkhead = current();
+        return bulkhead.runAsync(() -> bulkhead.client.executeDiscardingBodyAsync(queryParams, url, request));
+    }
+
+    @Override
+    public void addDefaultHeader(String key, String value) {
+        offers.client.addDefaultHeader(key, value);
+        notifications.client.addDefaultHeader(key, value);
+    }
+
+    private Bulkhead current() {
+        TargetCallContext call = TargetCallContext.current();
+        return call != null && call.getCallType() == CallType.NOTIFICATIONS ? notifications : offers;
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            offers.client.close();
+        } finally {
+            notifications.client.close();
+        }
+    }
+
+    private static final class Bulkhead {
+
+        private final CallType callType;
+        private final TargetHttpClient client;
+        private final Semaphore permits;
+        private final String rejectedCounter;
+        private final TargetMetricsRegistry metricsRegistry;
+
+        private Bulkhead(CallType callType, TargetHttpClient client, BulkheadPolicy policy, String rejectedCounter,
+                         TargetMetricsRegistry metricsRegistry) {
+            this.callType = callType;
+            this.client = client;
+            this.permits = policy != null && policy.isConcurrencyBounded()
+                    ? new Semaphore(policy.getMaxConcurrentCalls()) : null;
+            this.rejectedCounter = rejectedCounter;
+            this.metricsRegistry = metricsRegistry;
+        }
+
+        private <R> R run(Supplier<R> execute) {
+            if (permits == null) {
+                return execute.get();
+            }
+            if (!permits.tryAcquire()) {
+                throw rejected();
+            }
+            try {
+                return execute.get();
+            } finally {
+                permits.release();
+            }
+        }
+
+        private <R> CompletableFuture<R> runAsync(Supplier<CompletableFuture<R>> execute) {
+            if (permits == null) {
+                return execute.get();
+            }
+            if (!permits.tryAcquire()) {
+                CompletableFuture<R> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(rejected());
+                return rejected;
+            }
+            CompletableFuture<R> future;
+            try {
+                future = execute.get();
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            future.whenComplete((response, throwable) -> permits.release());
+            return future;
+        }
+
+        private BulkheadFullException rejected() {
+            if (metricsRegistry != null) {
+                metricsRegistry.incrementCounter(rejectedCounter);
+            }
+            return new BulkheadFullException("Too many " + callType.name().toLowerCase(Locale.ROOT)
+                    + " calls in flight");
+        }
+    }
+}
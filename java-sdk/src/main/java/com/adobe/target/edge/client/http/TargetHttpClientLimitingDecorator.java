@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.resilience.AdaptiveConcurrencyLimiter;
+import com.adobe.target.edge.client.service.TargetClientException;
+import kong.unirest.HttpResponse;
+import org.apache.http.HttpStatus;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Holds every call behind a permit of an {@link AdaptiveConcurrencyLimiter} and feeds the observed round-trip
+ * times back into it. Timeouts and 429 or 503 answers count as drops. Calls the client cancelled or rejected
+ * itself, and other failures, hand their permit back without a sample. The limiter is owned by the caller and is
+ * not closed here.
+ */
+public class TargetHttpClientLimitingDecorator implements TargetHttpClient {
+
+    public static final String REJECTED = "http.concurrency.rejected";
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    private final TargetHttpClient delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final TargetMetricsRegistry metricsRegistry;
+
+    public TargetHttpClientLimitingDecorator(TargetHttpClient delegate, AdaptiveConcurrencyLimiter limiter,
+                                             TargetMetricsRegistry metricsRegistry) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public <T, R> HttpResponse<R> execute(Map<String, Object> queryParams, String url, T request, Class<R> response) {
+        return limited(() -> delegate.execute(queryParams, url, request, response));
+    }
+
+    @Override
+    public <T, R> CompletableFuture<HttpResponse<R>> executeAsync(Map<String, Object> queryParams, String url,
+                                                                  T request, Class<R> response) {
+        return limitedAsync(() -> delegate.executeAsync(queryParams, url, request, response));
+    }
+
+    @Override
+    public <T> HttpResponse<Void> executeDiscardingBody(Map<String, Object> queryParams, String url, T request) {
+        return limited(() -> delegate.executeDiscardingBody(queryParams, url, request));
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<Void>> executeDiscardingBodyAsync(Map<String, Object> queryParams,
+                                                                               String url, T request) {
+        return limitedAsync(() -> delegate.executeDiscardingBodyAsync(queryParams, url, request));
+    }
+
+    @Override
+    public void addDefaultHeader(String key, String value) {
+        delegate.addDefaultHeader(key, value);
+    }
+
+    private <R> HttpResponse<R> limited(Supplier<HttpResponse<R>> execute) {
+        try {
+            limiter.acquire().join();
+        } catch (CompletionException e) {
+            throw rejected(e);
+        }
+        TargetCallContext call = TargetCallContext.current();
+        long startNanos = System.nanoTime();
+        HttpResponse<R> response = null;
+        Throwable error = null;
+        try {
+            response = execute.get();
+            return response;
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            release(call, startNanos, response, error);
+        }
+    }
+
+    private <R> CompletableFuture<HttpResponse<R>> limitedAsync(Supplier<CompletableFuture<HttpResponse<R>>> execute) {
+        TargetCallContext call = TargetCallContext.current();
+        return limiter.acquire()
+                .exceptionally(throwable -> {
+                    throw rejected(throwable);
+                })
+                .thenCompose(ignored -> {
+                    long startNanos = System.nanoTime();
+                    CompletableFuture<HttpResponse<R>> future;
+                    try {
+                        future = call == null || call == TargetCallContext.current() ? execute.get()
+                                : call.dispatch(execute);
+                    } catch (RuntimeException e) {
+                        release(call, startNanos, null, e);
+                        throw e;
+                    }
+                    return future.whenComplete((response, throwable) ->
+                            release(call, startNanos, response, throwable));
+                });
+    }
+
+    private RuntimeException rejected(Throwable throwable) {
+        if (metricsRegistry != null) {
+            metricsRegistry.incrementCounter(REJECTED);
+        }
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new CompletionException(cause);
+    }
+
+    private void release(TargetCallContext call, long startNanos, HttpResponse<?> response, Throwable throwable) {
+        if (throwable == null && response != null) {
+            limiter.release(System.nanoTime() - startNanos, response.getStatus() == SC_TOO_MANY_REQUESTS
+                    || response.getStatus() == HttpStatus.SC_SERVICE_UNAVAILABLE);
+        } else if (call != null && call.isCancelled() || !isTimeout(throwable)) {
+            limiter.release();
+        } else {
+            limiter.release(System.nanoTime() - startNanos, true);
+        }
+    }
+
+    /**
+     * Whether the call failed because the edge did not answer in time, as opposed to being cancelled or
+     * rejected on the client side.
+     */
+    private static boolean isTimeout(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException || cause instanceof TargetClientException) {
+                return false;
+            }
+            if (cause instanceof InterruptedIOException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws Exception {
+        delegate.close();
+    }
+}
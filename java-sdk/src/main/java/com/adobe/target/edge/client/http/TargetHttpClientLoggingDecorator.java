@@ -48,6 +48,34 @@ public class TargetHttpClientLoggingDecorator implements TargetHttpClient {
         return executeAsync;
     }
 
+    @Override
+    public <T> HttpResponse<Void> executeDiscardingBody(Map<String, Object> queryParams, String url, T request) {
+        logger.debug("Request: Url:{} QueryParams:{} RequestBody:{}", url, queryParams, request);
+        HttpResponse<Void> execute = delegate.executeDiscardingBody(queryParams, url, request);
+        logStatus(execute);
+        return execute;
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<Void>> executeDiscardingBodyAsync(Map<String, Object> queryParams,
+                                                                               String url, T request) {
+        logger.debug("AsyncRequest: Url:{} QueryParams:{} RequestBody:{}", url, queryParams, request);
+        CompletableFuture<HttpResponse<Void>> executeAsync = delegate.executeDiscardingBodyAsync(queryParams, url,
+                request);
+        executeAsync.thenAccept(this::logStatus);
+        return executeAsync;
+    }
+
+    private void logStatus(HttpResponse<Void> execute) {
+        if (execute.isSuccess()) {
+            logger.debug("Response: Status:{}", execute.getStatus());
+            return;
+        }
+        logger.error("Error occurred while sending request to target: Status: {} Message: {}",
+                execute.getStatus(),
+                execute.getStatusText());
+    }
+
     private <R> void logResponse(HttpResponse<R> execute) {
         R body = execute.getBody();
         if (execute.getStatus() == HttpStatus.SC_OK && body != null) {
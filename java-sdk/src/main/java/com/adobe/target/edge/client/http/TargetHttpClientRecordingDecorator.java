@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import com.adobe.target.edge.client.capture.TrafficRecorder;
+import com.adobe.target.edge.client.metrics.CallType;
+import kong.unirest.HttpResponse;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hands sampled calls to a {@link TrafficRecorder}. The recorder is owned by the caller and is not closed here.
+ */
+public class TargetHttpClientRecordingDecorator implements TargetHttpClient {
+
+    private final TargetHttpClient delegate;
+    private final TrafficRecorder recorder;
+
+    public TargetHttpClientRecordingDecorator(TargetHttpClient delegate, TrafficRecorder recorder) {
+        this.delegate = delegate;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public <T, R> HttpResponse<R> execute(Map<String, Object> queryParams, String url, T request, Class<R> response) {
+        if (!recorder.isSampled(queryParams)) {
+            return delegate.execute(queryParams, url, request, response);
+        }
+        long startNanos = System.nanoTime();
+        CallType callType = callType(CallType.OFFERS);
+        try {
+            HttpResponse<R> execute = delegate.execute(queryParams, url, request, response);
+            record(startNanos, callType, url, queryParams, request, execute);
+            return execute;
+        } catch (RuntimeException e) {
+            record(startNanos, callType, url, queryParams, request, null);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T, R> CompletableFuture<HttpResponse<R>> executeAsync(Map<String, Object> queryParams, String url,
+                                                                  T request, Class<R> response) {
+        if (!recorder.isSampled(queryParams)) {
+            return delegate.executeAsync(queryParams, url, request, response);
+        }
+        long startNanos = System.nanoTime();
+        CallType callType = callType(CallType.OFFERS);
+        CompletableFuture<HttpResponse<R>> executeAsync = delegate.executeAsync(queryParams, url, request, response);
+        executeAsync.whenComplete((execute, throwable) -> record(startNanos, callType, url, queryParams, request,
+                execute));
+        return executeAsync;
+    }
+
+    @Override
+    public <T> HttpResponse<Void> executeDiscardingBody(Map<String, Object> queryParams, String url, T request) {
+        if (!recorder.isSampled(queryParams)) {
+            return delegate.executeDiscardingBody(queryParams, url, request);
+        }
+        long startNanos = System.nanoTime();
+        CallType callType = callType(CallType.NOTIFICATIONS);
+        try {
+            HttpResponse<Void> execute = delegate.executeDiscardingBody(queryParams, url, request);
+            record(startNanos, callType, url, queryParams, request, execute);
+            return execute;
+        } catch (RuntimeException e) {
+            record(startNanos, callType, url, queryParams, request, null);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<Void>> executeDiscardingBodyAsync(Map<String, Object> queryParams,
+                                                                               String url, T request) {
+        if (!recorder.isSampled(queryParams)) {
+            return delegate.executeDiscardingBodyAsync(queryParams, url, request);
+        }
+        long startNanos = System.nanoTime();
+        CallType callType = callType(CallType.NOTIFICATIONS);
+        CompletableFuture<HttpResponse<Void>> executeAsync = delegate.executeDiscardingBodyAsync(queryParams, url,
+                request);
+        executeAsync.whenComplete((execute, throwable) -> record(startNanos, callType, url, queryParams, request,
+                execute));
+        return executeAsync;
+    }
+
+    @Override
+    public void addDefaultHeader(String key, String value) {
+        delegate.addDefaultHeader(key, value);
+    }
+
+    private static CallType callType(CallType fallback) {
+        TargetCallContext call = TargetCallContext.current();
+        return call == null ? fallback : call.getCallType();
+    }
+
+    private void record(long startNanos, CallType callType, String url, Map<String, Object> queryParams,
+                        Object request, HttpResponse<?> response) {
+        recorder.record(startNanos, callType, url, queryParams, request,
+                response == null ? 0 : response.getStatus(), response == null ? null : response.getBody());
+    }
+
+    @Override
+    public void close() throws Exception {
+        delegate.close();
+    }
+}
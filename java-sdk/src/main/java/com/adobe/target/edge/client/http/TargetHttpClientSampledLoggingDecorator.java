@@ -0,0 +1,347 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.utils.BoundedRingBuffer;
+import kong.unirest.HttpResponse;
+import kong.unirest.UnirestParsingException;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Request/response logging for production use. Successful calls are sampled, either at random or per
+ * session so that a sampled session is logged in full; failed calls are logged up to a number per second,
+ * so that an outage does not turn every call into a log record. The thread that completes a logged call
+ * renders its request, which the caller may modify or reuse afterwards, and enqueues the call into a
+ * bounded ring buffer, dropping records when it is full. A background thread renders response bodies and
+ * writes the records. Bodies are rendered as compact JSON, and rendering stops once a body reaches the
+ * maximum length, so a logged call costs at most that much serialization on the completing thread.
+ */
+public class TargetHttpClientSampledLoggingDecorator implements TargetHttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultTargetHttpClient.class);
+    private static final String SESSION_ID = "sessionId";
+    private static final int SESSION_BUCKETS = 10000;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final TargetHttpClient delegate;
+    private final double sampleRate;
+    private final boolean sampleBySession;
+    private final int maxBodyLength;
+    private final int maxFailuresPerSecond;
+    private final BoundedRingBuffer<LogRecord> buffer;
+    private final JacksonObjectMapper renderer = new JacksonObjectMapper();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder suppressedFailures = new LongAdder();
+    private final AtomicLong failureSecond = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicInteger failuresInSecond = new AtomicInteger();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public TargetHttpClientSampledLoggingDecorator(TargetHttpClient delegate, ClientConfig clientConfig) {
+        this.delegate = delegate;
+        this.sampleRate = clientConfig.getLogRequestsSampleRate();
+        this.sampleBySession = clientConfig.isLogRequestsSampleBySession();
+        this.maxBodyLength = clientConfig.getLogRequestsMaxBodyLength();
+        this.maxFailuresPerSecond = clientConfig.getLogRequestsMaxFailuresPerSecond();
+        this.buffer = new BoundedRingBuffer<>(clientConfig.getLogRequestsBufferSize());
+        this.writer = new Thread(this::drain, "target-request-logger");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public <T, R> HttpResponse<R> execute(Map<String, Object> queryParams, String url, T request, Class<R> response) {
+        boolean sampled = isSampled(queryParams);
+        try {
+            HttpResponse<R> execute = delegate.execute(queryParams, url, request, response);
+            log(sampled, url, queryParams, request, execute, null);
+            return execute;
+        } catch (RuntimeException e) {
+            log(sampled, url, queryParams, request, null, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T, R> CompletableFuture<HttpResponse<R>> executeAsync(Map<String, Object> queryParams, String url,
+                                                                  T request, Class<R> response) {
+        boolean sampled = isSampled(queryParams);
+        CompletableFuture<HttpResponse<R>> executeAsync = delegate.executeAsync(queryParams, url, request, response);
+        executeAsync.whenComplete((execute, throwable) -> log(sampled, url, queryParams, request, execute,
+                throwable));
+        return executeAsync;
+    }
+
+    @Override
+    public <T> HttpResponse<Void> executeDiscardingBody(Map<String, Object> queryParams, String url, T request) {
+        boolean sampled = isSampled(queryParams);
+        try {
+            HttpResponse<Void> execute = delegate.executeDiscardingBody(queryParams, url, request);
+            log(sampled, url, queryParams, request, execute, null);
+            return execute;
+        } catch (RuntimeException e) {
+            log(sampled, url, queryParams, request, null, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<Void>> executeDiscardingBodyAsync(Map<String, Object> queryParams,
+                                                                               String url, T request) {
+        boolean sampled = isSampled(queryParams);
+        CompletableFuture<HttpResponse<Void>> executeAsync = delegate.executeDiscardingBodyAsync(queryParams, url,
+                request);
+        executeAsync.whenComplete((execute, throwable) -> log(sampled, url, queryParams, request, execute,
+                throwable));
+        return executeAsync;
+    }
+
+    @Override
+    public void addDefaultHeader(String key, String value) {
+        logger.debug("Adding default header: key:{}, value:{}", key, value);
+        delegate.addDefaultHeader(key, value);
+    }
+
+    public long getDroppedRecords() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the failed calls not logged because more than the maximum failed within a second
+     */
+    public long getSuppressedFailures() {
+        return suppressedFailures.sum();
+    }
+
+    boolean isSampled(Map<String, Object> queryParams) {
+        if (sampleRate >= 1) {
+            return true;
+        }
+        if (sampleRate <= 0) {
+            return false;
+        }
+        Object sessionId = queryParams == null ? null : queryParams.get(SESSION_ID);
+        if (sampleBySession && sessionId != null) {
+            int bucket = (sessionId.hashCode() & Integer.MAX_VALUE) % SESSION_BUCKETS;
+            return bucket < sampleRate * SESSION_BUCKETS;
+        }
+        return ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private void log(boolean sampled, String url, Map<String, Object> queryParams, Object request,
+                     HttpResponse<?> response, Throwable throwable) {
+        boolean failed = throwable != null || !isSuccess(response);
+        if (!failed && !(sampled && logger.isDebugEnabled())) {
+            return;
+        }
+        if (failed && !tryAcquireFailure(System.nanoTime())) {
+            suppressedFailures.increment();
+            return;
+        }
+        String requestBody = render(request);
+        String params = queryParams == null ? null : queryParams.toString();
+        if (!buffer.offer(new LogRecord(url, params, requestBody, response, throwable))) {
+            dropped.increment();
+        }
+    }
+
+    boolean tryAcquireFailure(long nowNanos) {
+        long second = nowNanos / NANOS_PER_SECOND;
+        long current = failureSecond.get();
+        if (current != second && failureSecond.compareAndSet(current, second)) {
+            failuresInSecond.set(0);
+        }
+        return failuresInSecond.incrementAndGet() <= maxFailuresPerSecond;
+    }
+
+    private static boolean isSuccess(HttpResponse<?> response) {
+        if (response.getStatus() == HttpStatus.SC_NO_CONTENT) {
+            return true;
+        }
+        return response.getStatus() == HttpStatus.SC_OK && !response.getParsingError().isPresent();
+    }
+
+    private void drain() {
+        long reportedDrops = 0;
+        long reportedSuppressed = 0;
+        while (true) {
+            LogRecord record = buffer.poll();
+            if (record == null) {
+                if (!running) {
+                    return;
+                }
+                long drops = dropped.sum();
+                if (drops > reportedDrops) {
+                    logger.warn("Request log buffer full, dropped {} records so far", drops);
+                    reportedDrops = drops;
+                }
+                long suppressed = suppressedFailures.sum();
+                if (suppressed > reportedSuppressed) {
+                    logger.warn("More than {} failed calls a second, skipped logging {} so far", maxFailuresPerSecond,
+                            suppressed);
+                    reportedSuppressed = suppressed;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                write(record);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to write request log record", e);
+            }
+        }
+    }
+
+    private void write(LogRecord record) {
+        String requestBody = record.requestBody;
+        if (record.throwable != null) {
+            logger.error("Error occurred while sending request to target: Url:{} QueryParams:{} RequestBody:{}",
+                    record.url, record.queryParams, requestBody, record.throwable);
+            return;
+        }
+        HttpResponse<?> response = record.response;
+        if (isSuccess(response)) {
+            logger.debug("Request: Url:{} QueryParams:{} RequestBody:{} Response: Status:{} ResponseBody:{}",
+                    record.url, record.queryParams, requestBody, response.getStatus(), render(response.getBody()));
+            return;
+        }
+        logger.error("Error occurred while fetching response from target: Url:{} QueryParams:{} RequestBody:{} " +
+                        "Status: {} Message: {} ParsingError: {} ResponseBody:{} ",
+                record.url, record.queryParams, requestBody,
+                response.getStatus(),
+                response.getStatusText(),
+                response.getParsingError().map(UnirestParsingException::getOriginalBody).map(this::truncate)
+                        .orElse(null),
+                render(response.getBody()));
+    }
+
+    String render(Object value) {
+        if (value == null) {
+            return null;
+        }
+        BoundedWriter writer = new BoundedWriter(maxBodyLength);
+        try {
+            renderer.writeValue(writer, value);
+        } catch (IOException | RuntimeException e) {
+            if (!writer.truncated) {
+                return truncate(String.valueOf(value));
+            }
+        }
+        return writer.truncated ? writer + "...(truncated)" : writer.toString();
+    }
+
+    String truncate(String value) {
+        if (value == null || value.length() <= maxBodyLength) {
+            return value;
+        }
+        return value.substring(0, maxBodyLength) + "...(" + (value.length() - maxBodyLength) + " more chars)";
+    }
+
+    @Override
+    public void close() throws Exception {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(CLOSE_TIMEOUT_MILLIS);
+        delegate.close();
+    }
+
+    /**
+     * Keeps the first {@code limit} chars written and then fails the write, which stops serialization.
+     */
+    private static final class BoundedWriter extends Writer {
+        private final StringBuilder chars = new StringBuilder();
+        private final int limit;
+        private boolean truncated;
+
+        private BoundedWriter(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            int room = limit - chars.length();
+            if (len <= room) {
+                chars.append(cbuf, off, len);
+                return;
+            }
+            chars.append(cbuf, off, Math.max(room, 0));
+            truncated = true;
+            throw new TruncatedException();
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            int room = limit - chars.length();
+            if (len <= room) {
+                chars.append(str, off, off + len);
+                return;
+            }
+            chars.append(str, off, off + Math.max(room, 0));
+            truncated = true;
+            throw new TruncatedException();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return chars.toString();
+        }
+    }
+
+    private static final class TruncatedException extends IOException {
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final class LogRecord {
+        private final String url;
+        private final String queryParams;
+        private final String requestBody;
+        private final HttpResponse<?> response;
+        private final Throwable throwable;
+
+        private LogRecord(String url, String queryParams, String requestBody, HttpResponse<?> response,
+                          Throwable throwable) {
+            this.url = url;
+            this.queryParams = queryParams;
+            this.requestBody = requestBody;
+            this.response = response;
+            this.throwable = throwable;
+        }
+    }
+}
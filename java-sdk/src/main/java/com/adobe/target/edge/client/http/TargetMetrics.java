@@ -17,6 +17,7 @@ import kong.unirest.UniMetric;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 public class TargetMetrics implements UniMetric {
@@ -29,13 +30,13 @@ public class TargetMetrics implements UniMetric {
 
     @Override
     public MetricContext begin(HttpRequestSummary request) {
-        final long millis = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
         return (responseSummary, exception) -> {
 
             DefaultTargetMetricContext metricContext = new DefaultTargetMetricContext(request.getUrl(),
                     responseSummary.getStatus(),
                     responseSummary.getStatusText(),
-                    (int) (System.currentTimeMillis() - millis));
+                    (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
             this.metricContextConsumer.accept(metricContext);
 
         };
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import com.adobe.target.edge.client.metrics.ConnectionPoolStats;
+import com.adobe.target.edge.client.metrics.LeaseWaitKey;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking connection manager that times how long a call waits for a pooled connection.
+ */
+class TimedConnectionManager implements HttpClientConnectionManager {
+
+    private final HttpClientConnectionManager delegate;
+    private final String bulkhead;
+    private final TargetMetricsRegistry metricsRegistry;
+    private final ConcurrentMap<HttpRoute, LeaseWaitKey> leaseWaitKeys = new ConcurrentHashMap<>();
+
+    TimedConnectionManager(HttpClientConnectionManager delegate, String bulkhead, TargetMetricsRegistry metricsRegistry) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest request = delegate.requestConnection(route, state);
+        TargetCallContext call = TargetCallContext.current();
+        if (call == null && metricsRegistry == null) {
+            return request;
+        }
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long startNanos = System.nanoTime();
+                HttpClientConnection connection = request.get(timeout, timeUnit);
+                long endNanos = System.nanoTime();
+                if (call != null) {
+                    call.leased(startNanos, endNanos);
+                }
+                if (metricsRegistry != null) {
+                    metricsRegistry.recordLeaseWait(leaseWaitKey(route), endNanos - startNanos);
+                }
+                return connection;
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    private LeaseWaitKey leaseWaitKey(HttpRoute route) {
+        LeaseWaitKey key = leaseWaitKeys.get(route);
+        if (key != null) {
+            return key;
+        }
+        return leaseWaitKeys.computeIfAbsent(route, r -> new LeaseWaitKey(ConnectionPoolStats.Pool.SYNC, bulkhead,
+                ApacheClientFactory.routeName(r)));
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration,
+                                  TimeUnit timeUnit) {
+        delegate.releaseConnection(conn, newState, validDuration, timeUnit);
+    }
+
+    @Override
+    public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context)
+            throws IOException {
+        delegate.connect(conn, route, connectTimeout, context);
+    }
+
+    @Override
+    public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        delegate.upgrade(conn, route, context);
+    }
+
+    @Override
+    public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        delegate.routeComplete(conn, route, context);
+    }
+
+    @Override
+    public void closeIdleConnections(long idletime, TimeUnit timeUnit) {
+        delegate.closeIdleConnections(idletime, timeUnit);
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+        delegate.closeExpiredConnections();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import com.adobe.target.edge.client.metrics.ConnectionPoolStats;
+import com.adobe.target.edge.client.metrics.LeaseWaitKey;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.conn.NHttpClientConnectionManager;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking connection manager that times how long a call waits for a pooled connection. The
+ * lease is requested on the dispatching thread and completed on an I/O thread; for a new connection
+ * the lease also covers the connect.
+ */
+class TimedNHttpConnectionManager implements NHttpClientConnectionManager {
+
+    private final NHttpClientConnectionManager delegate;
+    private final String bulkhead;
+    private final TargetMetricsRegistry metricsRegistry;
+    private final ConcurrentMap<HttpRoute, LeaseWaitKey> leaseWaitKeys = new ConcurrentHashMap<>();
+
+    TimedNHttpConnectionManager(NHttpClientConnectionManager delegate, String bulkhead, TargetMetricsRegistry metricsRegistry) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public Future<NHttpClientConnection> requestConnection(HttpRoute route, Object state, long connectTimeout,
+                                                           long leaseTimeout, TimeUnit timeUnit,
+                                                           FutureCallback<NHttpClientConnection> callback) {
+        TargetCallContext call = TargetCallContext.current();
+        if (call == null && metricsRegistry == null) {
+            return delegate.requestConnection(route, state, connectTimeout, leaseTimeout, timeUnit, callback);
+        }
+        long startNanos = System.nanoTime();
+        return delegate.requestConnection(route, state, connectTimeout, leaseTimeout, timeUnit,
+                new FutureCallback<NHttpClientConnection>() {
+                    @Override
+                    public void completed(NHttpClientConnection connection) {
+                        long endNanos = System.nanoTime();
+                        if (call != null) {
+                            call.leased(startNanos, endNanos);
+                        }
+                        if (metricsRegistry != null) {
+                            metricsRegistry.recordLeaseWait(leaseWaitKey(route), endNanos - startNanos);
+                        }
+                        if (callback != null) {
+                            callback.completed(connection);
+                        }
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        if (callback != null) {
+                            callback.failed(ex);
+                        }
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        if (callback != null) {
+                            callback.cancelled();
+                        }
+                    }
+                });
+    }
+
+    private LeaseWaitKey leaseWaitKey(HttpRoute route) {
+        LeaseWaitKey key = leaseWaitKeys.get(route);
+        if (key != null) {
+            return key;
+        }
+        return leaseWaitKeys.computeIfAbsent(route, r -> new LeaseWaitKey(ConnectionPoolStats.Pool.ASYNC, bulkhead,
+                ApacheClientFactory.routeName(r)));
+    }
+
+    @Override
+    public void releaseConnection(NHttpClientConnection conn, Object newState, long validDuration,
+                                  TimeUnit timeUnit) {
+        delegate.releaseConnection(conn, newState, validDuration, timeUnit);
+    }
+
+    @Override
+    public void startRoute(NHttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        delegate.startRoute(conn, route, context);
+    }
+
+    @Override
+    public void upgrade(NHttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        delegate.upgrade(conn, route, context);
+    }
+
+    @Override
+    public void routeComplete(NHttpClientConnection conn, HttpRoute route, HttpContext context) {
+        delegate.routeComplete(conn, route, context);
+    }
+
+    @Override
+    public boolean isRouteComplete(NHttpClientConnection conn) {
+        return delegate.isRouteComplete(conn);
+    }
+
+    @Override
+    public void closeIdleConnections(long idletime, TimeUnit timeUnit) {
+        delegate.closeIdleConnections(idletime, timeUnit);
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+        delegate.closeExpiredConnections();
+    }
+
+    @Override
+    public void execute(IOEventDispatch eventDispatch) throws IOException {
+        delegate.execute(eventDispatch);
+    }
+
+    @Override
+    public void shutdown() throws IOException {
+        delegate.shutdown();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.metrics;
+
+import java.util.List;
+
+/**
+ * Summary of a completed delivery call, as kept by {@link SlowCallRecorder}.
+ */
+public class CallRecord {
+
+    private final long timestampMillis;
+    private final CallType callType;
+    private final String endpoint;
+    private final String url;
+    private final int status;
+    private final String error;
+    private final String requestId;
+    private final String sessionId;
+    private final List<String> mboxes;
+    private final PhaseTimings phaseTimings;
+
+    public CallRecord(long timestampMillis, CallType callType, String endpoint, String url, int status, String error,
+                      String requestId, String sessionId, List<String> mboxes, PhaseTimings phaseTimings) {
+        this.timestampMillis = timestampMillis;
+        this.callType = callType;
+        this.endpoint = endpoint;
+        this.url = url;
+        this.status = status;
+        this.error = error;
+        this.requestId = requestId;
+        this.sessionId = sessionId;
+        this.mboxes = mboxes;
+        this.phaseTimings = phaseTimings;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public CallType getCallType() {
+        return callType;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the HTTP status, or 0 when no response was received
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public List<String> getMboxes() {
+        return mboxes;
+    }
+
+    public PhaseTimings getPhaseTimings() {
+        return phaseTimings;
+    }
+
+    public long getTotalNanos() {
+        return phaseTimings.getTotalNanos();
+    }
+
+    @Override
+    public String toString() {
+        return "CallRecord{" +
+                "timestampMillis=" + timestampMillis +
+                ", callType=" + callType +
+                ", endpoint='" + endpoint + '\'' +
+                ", url='" + url + '\'' +
+                ", status=" + status +
+                ", error='" + error + '\'' +
+                ", requestId='" + requestId + '\'' +
+                ", sessionId='" + sessionId + '\'' +
+                ", mboxes=" + mboxes +
+                ", phaseTimings=" + phaseTimings +
+                '}';
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.metrics;
+
+/**
+ * Point-in-time state of a connection pool, either for a single route or, with route {@link #TOTAL},
+ * for the whole pool. With bulkheads, each call type has pools of its own, named after the
+ * {@link CallType}; otherwise all calls share the {@link #SHARED} pools.
+ */
+public class ConnectionPoolStats {
+
+    public static final String TOTAL = "total";
+    public static final String SHARED = "shared";
+
+    public enum Pool {
+        SYNC,
+        ASYNC
+    }
+
+    private final Pool pool;
+    private final String bulkhead;
+    private final String route;
+    private final int leased;
+    private final int available;
+    private final int pending;
+    private final int max;
+
+    public ConnectionPoolStats(Pool pool, String route, int leased, int available, int pending, int max) {
+        this(pool, SHARED, route, leased, available, pending, max);
+    }
+
+    public ConnectionPoolStats(Pool pool, String bulkhead, String route, int leased, int available, int pending,
+                               int max) {
+        this.pool = pool;
+        this.bulkhead = bulkhead;
+        this.route = route;
+        this.leased = leased;
+        this.available = available;
+        this.pending = pending;
+        this.max = max;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public String getBulkhead() {
+        return bulkhead;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public int getLeased() {
+        return leased;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolStats{" +
+                "pool=" + pool +
+                ", bulkhead='" + bulkhead + '\'' +
+                ", route='" + route + '\'' +
+                ", leased=" + leased +
+                ", available=" + available +
+                ", pending=" + pending +
+                ", max=" + max +
+                '}';
+    }
+}
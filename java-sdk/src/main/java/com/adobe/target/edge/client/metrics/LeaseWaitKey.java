@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.metrics;
+
+import java.util.Objects;
+
+/**
+ * Identifies the connection lease waits of one route of one pool, with the same dimensions as
+ * {@link ConnectionPoolStats}: the blocking or async pool, the bulkhead owning it, and the route.
+ */
+public class LeaseWaitKey {
+
+    private final ConnectionPoolStats.Pool pool;
+    private final String bulkhead;
+    private final String route;
+    private final int hashCode;
+
+    public LeaseWaitKey(ConnectionPoolStats.Pool pool, String bulkhead, String route) {
+        this.pool = pool;
+        this.bulkhead = bulkhead;
+        this.route = route;
+        this.hashCode = Objects.hash(pool, bulkhead, route);
+    }
+
+    public ConnectionPoolStats.Pool getPool() {
+        return pool;
+    }
+
+    public String getBulkhead() {
+        return bulkhead;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        LeaseWaitKey that = (LeaseWaitKey) o;
+        return pool == that.pool &&
+                Objects.equals(bulkhead, that.bulkhead) &&
+                Objects.equals(route, that.route);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return pool + "/" + bulkhead + "/" + route;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.metrics;
+
+import java.util.Objects;
+
+public class PhaseMetricKey {
+
+    private static final CallType[] CALL_TYPES = CallType.values();
+    private static final Phase[] PHASES = Phase.values();
+
+    private final String endpoint;
+    private final CallType callType;
+    private final Phase phase;
+    private final int hashCode;
+
+    public PhaseMetricKey(String endpoint, CallType callType, Phase phase) {
+        this.endpoint = endpoint;
+        this.callType = callType;
+        this.phase = phase;
+        this.hashCode = Objects.hash(endpoint, callType, phase);
+    }
+
+    /**
+     * Keys of one endpoint for every call type and phase, looked up with {@link #index}, so that
+     * recording a call's phases does not allocate keys.
+     */
+    static PhaseMetricKey[] keysFor(String endpoint) {
+        PhaseMetricKey[] keys = new PhaseMetricKey[CALL_TYPES.length * PHASES.length];
+        for (CallType callType : CALL_TYPES) {
+            for (Phase phase : PHASES) {
+                keys[index(callType, phase)] = new PhaseMetricKey(endpoint, callType, phase);
+            }
+        }
+        return keys;
+    }
+
+    static int index(CallType callType, Phase phase) {
+        return callType.ordinal() * PHASES.length + phase.ordinal();
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public CallType getCallType() {
+        return callType;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PhaseMetricKey that = (PhaseMetricKey) o;
+        return Objects.equals(endpoint, that.endpoint) &&
+                callType == that.callType &&
+                phase == that.phase;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + "/" + callType + "/" + phase;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Breakdown of a single delivery call into its phases. A phase that was not observed for the call,
+ * for example pool lease on a mocked transport, is reported as {@link #NOT_OBSERVED}.
+ */
+public class PhaseTimings {
+
+    public static final long NOT_OBSERVED = -1;
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long[] phaseNanos;
+    private final long totalNanos;
+    private final long requestBytes;
+    private final long responseBytes;
+
+    /**
+     * @param phaseNanos durations in nanoseconds, indexed by {@link Phase#ordinal()}
+     */
+    public PhaseTimings(long[] phaseNanos, long totalNanos, long requestBytes, long responseBytes) {
+        if (phaseNanos.length != PHASES.length) {
+            throw new IllegalArgumentException("Expected " + PHASES.length + " phases, got " + phaseNanos.length);
+        }
+        this.phaseNanos = phaseNanos;
+        this.totalNanos = totalNanos;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+    }
+
+    public long getNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    public double get(Phase phase, TimeUnit unit) {
+        long nanos = getNanos(phase);
+        return nanos == NOT_OBSERVED ? NOT_OBSERVED : (double) nanos / unit.toNanos(1);
+    }
+
+    public boolean isObserved(Phase phase) {
+        return getNanos(phase) != NOT_OBSERVED;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("PhaseTimings{");
+        for (Phase phase : PHASES) {
+            builder.append(phase).append('=').append(getNanos(phase)).append(", ");
+        }
+        return builder.append("TOTAL=").append(totalNanos)
+                .append(", requestBytes=").append(requestBytes)
+                .append(", responseBytes=").append(responseBytes)
+                .append('}').toString();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.metrics;
+
+import com.adobe.target.edge.client.utils.OverwritingRingBuffer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the last slow and the last failed delivery calls in fixed-size, lock-free ring buffers, so they
+ * can be inspected on demand without logging every call. A call is slow when it takes at least the
+ * configured threshold, and failed when no response was received or the status is not 2xx.
+ */
+public class SlowCallRecorder {
+
+    private final long slowThresholdNanos;
+    private final OverwritingRingBuffer<CallRecord> slowCalls;
+    private final OverwritingRingBuffer<CallRecord> failedCalls;
+
+    public SlowCallRecorder(int capacity, long slowThreshold, TimeUnit unit) {
+        this.slowThresholdNanos = unit.toNanos(slowThreshold);
+        this.slowCalls = new OverwritingRingBuffer<>(capacity);
+        this.failedCalls = new OverwritingRingBuffer<>(capacity);
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= slowThresholdNanos;
+    }
+
+    public static boolean isFailed(int status) {
+        return status < 200 || status > 299;
+    }
+
+    public void record(CallRecord record) {
+        if (isFailed(record.getStatus())) {
+            failedCalls.add(record);
+        }
+        if (isSlow(record.getTotalNanos())) {
+            slowCalls.add(record);
+        }
+    }
+
+    /**
+     * @return the last slow calls, newest first
+     */
+    public List<CallRecord> getSlowCalls() {
+        return slowCalls.snapshot();
+    }
+
+    /**
+     * @return the last failed calls, newest first
+     */
+    public List<CallRecord> getFailedCalls() {
+        return failedCalls.snapshot();
+    }
+
+    public void clear() {
+        slowCalls.clear();
+        failedCalls.clear();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.metrics;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.adobe.target.edge.client.utils.StringUtils.isEmpty;
+
+public class TargetMetricKey {
+
+    public static final String DEFAULT_ENDPOINT = "default";
+    public static final String CLUSTER_ENDPOINT_PREFIX = "mboxedge";
+    public static final String STATUS_CLASS_ERROR = "error";
+    private static final String[] STATUS_CLASSES = {STATUS_CLASS_ERROR, "1xx", "2xx", "3xx", "4xx", "5xx"};
+    private static final CallType[] CALL_TYPES = CallType.values();
+    private static final ConcurrentMap<String, String> CLUSTER_ENDPOINTS = new ConcurrentHashMap<>();
+
+    private final String endpoint;
+    private final CallType callType;
+    private final String statusClass;
+    private final int hashCode;
+
+    public TargetMetricKey(String endpoint, CallType callType, String statusClass) {
+        this.endpoint = endpoint;
+        this.callType = callType;
+        this.statusClass = statusClass;
+        this.hashCode = Objects.hash(endpoint, callType, statusClass);
+    }
+
+    public static String endpoint(String locationHint) {
+        if (isEmpty(locationHint)) {
+            return DEFAULT_ENDPOINT;
+        }
+        String endpoint = CLUSTER_ENDPOINTS.get(locationHint);
+        return endpoint != null ? endpoint
+                : CLUSTER_ENDPOINTS.computeIfAbsent(locationHint, hint -> CLUSTER_ENDPOINT_PREFIX + hint);
+    }
+
+    public static String statusClass(int status) {
+        return STATUS_CLASSES[statusClassIndex(status)];
+    }
+
+    /**
+     * Keys of one endpoint for every call type and status class, looked up with {@link #index}, so that
+     * recording a call does not allocate a key.
+     */
+    static TargetMetricKey[] keysFor(String endpoint) {
+        TargetMetricKey[] keys = new TargetMetricKey[CALL_TYPES.length * STATUS_CLASSES.length];
+        for (CallType callType : CALL_TYPES) {
+            for (int i = 0; i < STATUS_CLASSES.length; i++) {
+                keys[callType.ordinal() * STATUS_CLASSES.length + i] =
+                        new TargetMetricKey(endpoint, callType, STATUS_CLASSES[i]);
+            }
+        }
+        return keys;
+    }
+
+    static int index(CallType callType, int status) {
+        return callType.ordinal() * STATUS_CLASSES.length + statusClassIndex(status);
+    }
+
+    private static int statusClassIndex(int status) {
+        return status < 100 || status > 599 ? 0 : status / 100;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public CallType getCallType() {
+        return callType;
+    }
+
+    public String getStatusClass() {
+        return statusClass;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TargetMetricKey that = (TargetMetricKey) o;
+        return Objects.equals(endpoint, that.endpoint) &&
+                callType == that.callType &&
+                Objects.equals(statusClass, that.statusClass);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + "/" + callType + "/" + statusClass;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process registry of delivery call latencies, keyed by endpoint, call type and status class, of
+ * per-phase latencies keyed by endpoint, call type and {@link Phase}, of connection pool state, of
+ * lease waits keyed by pool, bulkhead and route, and of named event counters and gauges.
+ * A single registry may be shared by several clients.
+ */
+public class TargetMetricsRegistry {
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final ConcurrentMap<TargetMetricKey, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TargetMetricKey[]> endpointKeys = new ConcurrentHashMap<>();
+    private final ConcurrentMap<PhaseMetricKey, LatencyHistogram> phaseLatencies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PhaseMetricKey[]> endpointPhaseKeys = new ConcurrentHashMap<>();
+    private final ConcurrentMap<LeaseWaitKey, LatencyHistogram> leaseWaits = new ConcurrentHashMap<>();
+    private final List<ConnectionPoolMonitor> connectionPools = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public void recordLatency(String endpoint, CallType callType, int status, long latencyNanos) {
+        TargetMetricKey[] keys = endpointKeys.get(endpoint);
+        if (keys == null) {
+            keys = endpointKeys.computeIfAbsent(endpoint, TargetMetricKey::keysFor);
+        }
+        recordLatency(keys[TargetMetricKey.index(callType, status)], latencyNanos);
+    }
+
+    public void recordLatency(TargetMetricKey key, long latencyNanos) {
+        getLatencyHistogram(key).record(latencyNanos);
+    }
+
+    public LatencyHistogram getLatencyHistogram(TargetMetricKey key) {
+        LatencyHistogram histogram = latencies.get(key);
+        if (histogram != null) {
+            return histogram;
+        }
+        return latencies.computeIfAbsent(key, k -> new LatencyHistogram());
+    }
+
+    public LatencySnapshot getLatency(String endpoint, CallType callType, String statusClass) {
+        LatencyHistogram histogram = latencies.get(new TargetMetricKey(endpoint, callType, statusClass));
+        return histogram == null ? new LatencyHistogram().snapshot() : histogram.snapshot();
+    }
+
+    public Map<TargetMetricKey, LatencySnapshot> getLatencies() {
+        Map<TargetMetricKey, LatencySnapshot> snapshots = new HashMap<>();
+        latencies.forEach((key, histogram) -> snapshots.put(key, histogram.snapshot()));
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    public void recordPhases(String endpoint, CallType callType, PhaseTimings timings) {
+        PhaseMetricKey[] keys = endpointPhaseKeys.get(endpoint);
+        if (keys == null) {
+            keys = endpointPhaseKeys.computeIfAbsent(endpoint, PhaseMetricKey::keysFor);
+        }
+        for (Phase phase : PHASES) {
+            if (timings.isObserved(phase)) {
+                getPhaseHistogram(keys[PhaseMetricKey.index(callType, phase)]).record(timings.getNanos(phase));
+            }
+        }
+    }
+
+    public LatencyHistogram getPhaseHistogram(PhaseMetricKey key) {
+        LatencyHistogram histogram = phaseLatencies.get(key);
+        if (histogram != null) {
+            return histogram;
+        }
+        return phaseLatencies.computeIfAbsent(key, k -> new LatencyHistogram());
+    }
+
+    public LatencySnapshot getPhaseLatency(String endpoint, CallType callType, Phase phase) {
+        LatencyHistogram histogram = phaseLatencies.get(new PhaseMetricKey(endpoint, callType, phase));
+        return histogram == null ? new LatencyHistogram().snapshot() : histogram.snapshot();
+    }
+
+    public Map<PhaseMetricKey, LatencySnapshot> getPhaseLatencies() {
+        Map<PhaseMetricKey, LatencySnapshot> snapshots = new HashMap<>();
+        phaseLatencies.forEach((key, histogram) -> snapshots.put(key, histogram.snapshot()));
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    public void recordLeaseWait(LeaseWaitKey key, long waitNanos) {
+        LatencyHistogram histogram = leaseWaits.get(key);
+        if (histogram == null) {
+            histogram = leaseWaits.computeIfAbsent(key, k -> new LatencyHistogram());
+        }
+        histogram.record(waitNanos);
+    }
+
+    public LatencySnapshot getLeaseWait(ConnectionPoolStats.Pool pool, String bulkhead, String route) {
+        LatencyHistogram histogram = leaseWaits.get(new LeaseWaitKey(pool, bulkhead, route));
+        return histogram == null ? new LatencyHistogram().snapshot() : histogram.snapshot();
+    }
+
+    public Map<LeaseWaitKey, LatencySnapshot> getLeaseWaits() {
+        Map<LeaseWaitKey, LatencySnapshot> snapshots = new HashMap<>();
+        leaseWaits.forEach((key, histogram) -> snapshots.put(key, histogram.snapshot()));
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    public void registerConnectionPool(ConnectionPoolMonitor monitor) {
+        connectionPools.add(monitor);
+    }
+
+    public void unregisterConnectionPool(ConnectionPoolMonitor monitor) {
+        connectionPools.remove(monitor);
+    }
+
+    public List<ConnectionPoolStats> getConnectionPoolStats() {
+        List<ConnectionPoolStats> stats = new ArrayList<>();
+        connectionPools.forEach(monitor -> stats.addAll(monitor.getConnectionPoolStats()));
+        return Collections.unmodifiableList(stats);
+    }
+
+    public void incrementCounter(String name) {
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(name, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    public long getCounter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new HashMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return Collections.unmodifiableMap(values);
+    }
+
+    public void registerGauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public void unregisterGauge(String name) {
+        gauges.remove(name);
+    }
+
+    public long getGauge(String name) {
+        LongSupplier gauge = gauges.get(name);
+        return gauge == null ? 0 : gauge.getAsLong();
+    }
+
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new HashMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return Collections.unmodifiableMap(values);
+    }
+
+    public void reset() {
+        latencies.values().forEach(LatencyHistogram::reset);
+        phaseLatencies.values().forEach(LatencyHistogram::reset);
+        leaseWaits.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+
+}
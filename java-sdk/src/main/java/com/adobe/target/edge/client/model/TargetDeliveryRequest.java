@@ -13,6 +13,8 @@ package com.adobe.target.edge.client.model;
 
 import com.adobe.experiencecloud.ecid.visitor.Visitor;
 import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.edge.client.metrics.PhaseTimings;
+import com.adobe.target.edge.client.tracing.TraceContext;
 
 public class TargetDeliveryRequest {
 
@@ -20,6 +22,10 @@ public class TargetDeliveryRequest {
     private String locationHint;
     private Visitor visitor;
     private DeliveryRequest deliveryRequest = new DeliveryRequest();
+    private long buildNanos = PhaseTimings.NOT_OBSERVED;
+    private TraceContext traceContext;
+    private boolean deadline;
+    private long deadlineNanos;
 
     private TargetDeliveryRequest() {}
 
@@ -29,6 +35,22 @@ public class TargetDeliveryRequest {
         return targetDeliveryRequest;
     }
 
+    /**
+     * Returns a copy of this request carrying a different delivery request, e.g. one with some
+     * mboxes removed before it is sent.
+     */
+    public TargetDeliveryRequest withDeliveryRequest(DeliveryRequest deliveryRequest) {
+        TargetDeliveryRequest copy = fromRequest(deliveryRequest);
+        copy.sessionId = sessionId;
+        copy.locationHint = locationHint;
+        copy.visitor = visitor;
+        copy.buildNanos = buildNanos;
+        copy.traceContext = traceContext;
+        copy.deadline = deadline;
+        copy.deadlineNanos = deadlineNanos;
+        return copy;
+    }
+
     TargetDeliveryRequest setVisitor(Visitor visitor) {
         this.visitor = visitor;
         return this;
@@ -44,6 +66,22 @@ public class TargetDeliveryRequest {
         return this;
     }
 
+    TargetDeliveryRequest setBuildNanos(long buildNanos) {
+        this.buildNanos = buildNanos;
+        return this;
+    }
+
+    TargetDeliveryRequest setTraceContext(TraceContext traceContext) {
+        this.traceContext = traceContext;
+        return this;
+    }
+
+    TargetDeliveryRequest setDeadlineNanos(long deadlineNanos) {
+        this.deadline = true;
+        this.deadlineNanos = deadlineNanos;
+        return this;
+    }
+
     public String getSessionId() {
         return sessionId;
     }
@@ -60,6 +98,32 @@ public class TargetDeliveryRequest {
         return locationHint;
     }
 
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    public TraceContext getTraceContext() {
+        return traceContext;
+    }
+
+    public boolean hasDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} by which the call must have completed
+     */
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * @return the time left until the deadline, or {@link Long#MAX_VALUE} when the request has none
+     */
+    public long getRemainingNanos() {
+        return deadline ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+    }
+
     public static TargetDeliveryRequestBuilder builder() {
         return new TargetDeliveryRequestBuilder();
     }
@@ -16,10 +16,12 @@ import com.adobe.experiencecloud.ecid.visitor.CustomerState;
 import com.adobe.experiencecloud.ecid.visitor.Visitor;
 import com.adobe.target.delivery.v1.model.*;
 import com.adobe.target.edge.client.service.VisitorProvider;
+import com.adobe.target.edge.client.tracing.TraceContext;
 import com.adobe.target.edge.client.utils.CollectionUtils;
 import com.adobe.target.edge.client.utils.CookieUtils;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static com.adobe.target.edge.client.utils.StringUtils.isEmpty;
 import static com.adobe.target.edge.client.utils.StringUtils.isNotEmpty;
@@ -42,6 +44,9 @@ public final class TargetDeliveryRequestBuilder {
     private String trackingServerSecure;
     private Map<String, String> requestCookies = new HashMap<>();
     private DeliveryRequest request;
+    private String traceParent;
+    private String traceState;
+    private long timeoutNanos;
 
     TargetDeliveryRequestBuilder() {
         this.request = new DeliveryRequest();
@@ -107,6 +112,26 @@ public final class TargetDeliveryRequestBuilder {
         return this;
     }
 
+    public TargetDeliveryRequestBuilder traceParent(String traceParent) {
+        this.traceParent = traceParent;
+        return this;
+    }
+
+    public TargetDeliveryRequestBuilder traceState(String traceState) {
+        this.traceState = traceState;
+        return this;
+    }
+
+    /**
+     * Bounds the whole call, including connection pool wait, connect and read, counted from {@link #build()}.
+     * A call still running at the deadline is aborted and fails with a
+     * {@link com.adobe.target.edge.client.service.DeadlineExceededException}.
+     */
+    public TargetDeliveryRequestBuilder deadline(long timeout, TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
     public TargetDeliveryRequestBuilder visitor(Visitor visitor) {
         this.visitor = visitor;
         return this;
@@ -163,6 +188,7 @@ public final class TargetDeliveryRequestBuilder {
     }
 
     public TargetDeliveryRequest build() {
+        long startNanos = System.nanoTime();
         setTargetValues();
         setVisitorValues();
         createVisitorId();
@@ -171,6 +197,11 @@ public final class TargetDeliveryRequestBuilder {
         targetDeliveryRequest.setLocationHint(locationHint);
         targetDeliveryRequest.setSessionId(sessionId);
         targetDeliveryRequest.setVisitor(visitor);
+        targetDeliveryRequest.setTraceContext(TraceContext.parse(traceParent, traceState));
+        if (timeoutNanos > 0) {
+            targetDeliveryRequest.setDeadlineNanos(startNanos + timeoutNanos);
+        }
+        targetDeliveryRequest.setBuildNanos(System.nanoTime() - startNanos);
         return targetDeliveryRequest;
     }
 
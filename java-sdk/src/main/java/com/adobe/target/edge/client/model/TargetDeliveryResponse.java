@@ -13,6 +13,7 @@ package com.adobe.target.edge.client.model;
 
 import com.adobe.experiencecloud.ecid.visitor.VisitorState;
 import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.metrics.PhaseTimings;
 import com.adobe.target.edge.client.utils.CookieUtils;
 import com.adobe.target.delivery.v1.model.DeliveryRequest;
 import com.adobe.target.delivery.v1.model.DeliveryResponse;
@@ -29,14 +30,24 @@ public class TargetDeliveryResponse {
     private final TargetDeliveryRequest request;
     private final DeliveryResponse response;
     private final ResponseStatus status;
+    private final PhaseTimings phaseTimings;
 
     public TargetDeliveryResponse(TargetDeliveryRequest request,
                                   DeliveryResponse response,
                                   int status,
                                   String message) {
+        this(request, response, status, message, null);
+    }
+
+    public TargetDeliveryResponse(TargetDeliveryRequest request,
+                                  DeliveryResponse response,
+                                  int status,
+                                  String message,
+                                  PhaseTimings phaseTimings) {
         this.request = request;
         this.response = response;
         this.status = new ResponseStatus(status, message);
+        this.phaseTimings = phaseTimings;
     }
 
     public DeliveryRequest getRequest() {
@@ -74,6 +85,11 @@ public class TargetDeliveryResponse {
         return status.getMessage();
     }
 
+    @JsonIgnore
+    public PhaseTimings getPhaseTimings() {
+        return phaseTimings;
+    }
+
     @JsonIgnore
     public ServerState getServerState() {
         return new ServerState(request.getDeliveryRequest(), response);
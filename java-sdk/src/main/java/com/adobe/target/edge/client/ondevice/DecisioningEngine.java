@@ -0,0 +1,276 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.ondevice;
+
+import com.adobe.target.delivery.v1.model.Address;
+import com.adobe.target.delivery.v1.model.Context;
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.delivery.v1.model.ExecuteResponse;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.MboxResponse;
+import com.adobe.target.delivery.v1.model.MetricType;
+import com.adobe.target.delivery.v1.model.Notification;
+import com.adobe.target.delivery.v1.model.NotificationMbox;
+import com.adobe.target.delivery.v1.model.Option;
+import com.adobe.target.delivery.v1.model.PrefetchMboxResponse;
+import com.adobe.target.delivery.v1.model.PrefetchRequest;
+import com.adobe.target.delivery.v1.model.PrefetchResponse;
+import com.adobe.target.delivery.v1.model.RequestDetails;
+import com.adobe.target.delivery.v1.model.View;
+import com.adobe.target.delivery.v1.model.ViewRequest;
+import com.adobe.target.delivery.v1.model.VisitorId;
+import com.adobe.target.edge.client.utils.CollectionUtils;
+import com.adobe.target.edge.client.utils.TrafficAllocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.adobe.target.edge.client.utils.StringUtils.isEmpty;
+
+/**
+ * Evaluates a delivery request against a {@link RulesArtifact}, producing a response with the
+ * same shape the edge returns. Execute mbox options carry no event tokens; like the edge, their
+ * impressions are reported through display notifications collected by the caller.
+ */
+final class DecisioningEngine {
+
+    static final String ACTIVITY_ID_TOKEN = "activity.id";
+    static final String EXPERIENCE_ID_TOKEN = "experience.id";
+    static final String DECISIONING_METHOD_TOKEN = "activity.decisioningMethod";
+    static final String ON_DEVICE_TOKEN_VALUE = "on-device";
+    private static final int HTTP_OK = 200;
+
+    private final String client;
+
+    DecisioningEngine(String client) {
+        this.client = client;
+    }
+
+    boolean covers(RulesArtifact artifact, DeliveryRequest request) {
+        if (!CollectionUtils.isEmpty(request.getNotifications())) {
+            return false;
+        }
+        ExecuteRequest execute = request.getExecute();
+        if (execute != null && (execute.getPageLoad() != null
+                || !coversMboxes(artifact, execute.getMboxes()))) {
+            return false;
+        }
+        PrefetchRequest prefetch = request.getPrefetch();
+        if (prefetch != null) {
+            if (prefetch.getPageLoad() != null || !coversMboxes(artifact, prefetch.getMboxes())) {
+                return false;
+            }
+            for (ViewRequest view : nullToEmpty(prefetch.getViews())) {
+                if (view.getName() != null && !artifact.getViews().containsKey(view.getName())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    DeliveryResponse evaluate(RulesArtifact artifact,
+                              DeliveryRequest request,
+                              VisitorId id,
+                              VisitorId visitorId,
+                              List<Notification> notifications) {
+        DeliveryResponse response = new DeliveryResponse()
+                .status(HTTP_OK)
+                .requestId(isEmpty(request.getRequestId()) ? UUID.randomUUID().toString() : request.getRequestId())
+                .id(id)
+                .client(client);
+        Context context = request.getContext();
+        ExecuteRequest execute = request.getExecute();
+        if (execute != null && !CollectionUtils.isEmpty(execute.getMboxes())) {
+            ExecuteResponse executeResponse = new ExecuteResponse();
+            for (MboxRequest mbox : execute.getMboxes()) {
+                MboxResponse mboxResponse = new MboxResponse();
+                mboxResponse.setIndex(mbox.getIndex());
+                mboxResponse.setName(mbox.getName());
+                List<String> eventTokens = new ArrayList<>();
+                decide(artifact.getMboxes().get(mbox.getName()), mbox, context, visitorId,
+                        mboxResponse, eventTokens);
+                if (!eventTokens.isEmpty()) {
+                    notifications.add(displayNotification(mbox, eventTokens));
+                }
+                executeResponse.addMboxesItem(mboxResponse);
+            }
+            response.execute(executeResponse);
+        }
+        PrefetchRequest prefetch = request.getPrefetch();
+        if (prefetch != null) {
+            response.prefetch(prefetch(artifact, prefetch, context, visitorId));
+        }
+        return response;
+    }
+
+    private PrefetchResponse prefetch(RulesArtifact artifact,
+                                      PrefetchRequest prefetch,
+                                      Context context,
+                                      VisitorId visitorId) {
+        PrefetchResponse prefetchResponse = new PrefetchResponse();
+        for (MboxRequest mbox : nullToEmpty(prefetch.getMboxes())) {
+            PrefetchMboxResponse mboxResponse = new PrefetchMboxResponse();
+            mboxResponse.setIndex(mbox.getIndex());
+            mboxResponse.setName(mbox.getName());
+            decide(artifact.getMboxes().get(mbox.getName()), mbox, context, visitorId, mboxResponse, null);
+            prefetchResponse.addMboxesItem(mboxResponse);
+        }
+        for (ViewRequest view : nullToEmpty(prefetch.getViews())) {
+            if (view.getName() != null) {
+                addView(prefetchResponse, view.getName(), artifact.getViews().get(view.getName()),
+                        view, context, visitorId);
+                continue;
+            }
+            for (Map.Entry<String, List<Rule>> entry : artifact.getViews().entrySet()) {
+                addView(prefetchResponse, entry.getKey(), entry.getValue(), view, context, visitorId);
+            }
+        }
+        return prefetchResponse;
+    }
+
+    private void addView(PrefetchResponse prefetchResponse,
+                         String name,
+                         List<Rule> rules,
+                         ViewRequest view,
+                         Context context,
+                         VisitorId visitorId) {
+        View viewResponse = new View().name(name).key(view.getKey());
+        MboxResponse decisions = new MboxResponse();
+        decide(rules, view, context, visitorId, decisions, null);
+        if (decisions.getOptions().isEmpty()) {
+            return;
+        }
+        viewResponse.setOptions(decisions.getOptions());
+        viewResponse.setMetrics(decisions.getMetrics());
+        prefetchResponse.addViewsItem(viewResponse);
+    }
+
+    /**
+     * Applies the first qualifying rule of every activity. When {@code eventTokens} is not null
+     * the options are stripped of their tokens, which are collected for a display notification.
+     */
+    private void decide(List<Rule> rules,
+                        RequestDetails details,
+                        Context context,
+                        VisitorId visitorId,
+                        MboxResponse response,
+                        List<String> eventTokens) {
+        if (rules == null) {
+            return;
+        }
+        List<Long> decidedActivities = new ArrayList<>(2);
+        for (Rule rule : rules) {
+            long activityId = rule.getActivityId();
+            if (decidedActivities.contains(activityId)
+                    || !matches(rule, details, context)
+                    || !rule.isAllocated(TrafficAllocation.allocationPercent(client, activityId, visitorId))) {
+                continue;
+            }
+            decidedActivities.add(activityId);
+            for (Option option : rule.getOptions()) {
+                Option decided = new Option()
+                        .type(option.getType())
+                        .content(option.getContent())
+                        .responseTokens(responseTokens(rule, option));
+                if (eventTokens == null) {
+                    decided.setEventToken(option.getEventToken());
+                } else if (option.getEventToken() != null) {
+                    eventTokens.add(option.getEventToken());
+                }
+                response.addOptionsItem(decided);
+            }
+            response.getMetrics().addAll(rule.getMetrics());
+        }
+    }
+
+    private static boolean matches(Rule rule, RequestDetails details, Context context) {
+        for (RuleCondition condition : rule.getConditions()) {
+            if (!condition.matches(attribute(condition.getKey(), details, context))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String attribute(String key, RequestDetails details, Context context) {
+        if (key == null) {
+            return null;
+        }
+        if (key.startsWith("mbox.")) {
+            return get(details.getParameters(), key.substring("mbox.".length()));
+        }
+        if (key.startsWith("profile.")) {
+            return get(details.getProfileParameters(), key.substring("profile.".length()));
+        }
+        Address address = details.getAddress() != null ? details.getAddress()
+                : context != null ? context.getAddress() : null;
+        switch (key) {
+            case "page.url":
+                return address != null ? address.getUrl() : null;
+            case "page.referrer":
+                return address != null ? address.getReferringUrl() : null;
+            case "channel":
+                return context != null && context.getChannel() != null ? context.getChannel().toString() : null;
+            default:
+                return null;
+        }
+    }
+
+    private static Map<String, Object> responseTokens(Rule rule, Option option) {
+        Map<String, Object> tokens = new HashMap<>();
+        tokens.put(ACTIVITY_ID_TOKEN, String.valueOf(rule.getActivityId()));
+        tokens.put(EXPERIENCE_ID_TOKEN, String.valueOf(rule.getExperienceId()));
+        tokens.put(DECISIONING_METHOD_TOKEN, ON_DEVICE_TOKEN_VALUE);
+        tokens.putAll(rule.getResponseTokens());
+        if (option.getResponseTokens() != null) {
+            tokens.putAll(option.getResponseTokens());
+        }
+        return tokens;
+    }
+
+    private static Notification displayNotification(MboxRequest mbox, List<String> eventTokens) {
+        Notification notification = new Notification()
+                .id(UUID.randomUUID().toString())
+                .type(MetricType.DISPLAY)
+                .timestamp(System.currentTimeMillis())
+                .tokens(eventTokens)
+                .mbox(new NotificationMbox().name(mbox.getName()));
+        notification.setParameters(mbox.getParameters());
+        notification.setProfileParameters(mbox.getProfileParameters());
+        return notification;
+    }
+
+    private static boolean coversMboxes(RulesArtifact artifact, List<MboxRequest> mboxes) {
+        for (MboxRequest mbox : nullToEmpty(mboxes)) {
+            if (!artifact.getMboxes().containsKey(mbox.getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String get(Map<String, String> values, String name) {
+        return values != null ? values.get(name) : null;
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list != null ? list : Collections.emptyList();
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.ondevice;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.Notification;
+import com.adobe.target.delivery.v1.model.VisitorId;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.service.TargetClientException;
+import com.adobe.target.edge.client.service.TargetService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.adobe.target.edge.client.utils.StringUtils.isNotEmpty;
+
+/**
+ * Answers delivery requests from a locally held {@link RulesArtifact}, delegating to the remote
+ * service for notifications, for requests the artifact does not cover in {@link DecisioningMethod#HYBRID}
+ * mode, and for everything while no artifact has been loaded.
+ */
+public class OnDeviceDecisioningService implements TargetService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OnDeviceDecisioningService.class);
+    private static final String OK = "OK";
+    private final TargetService remoteService;
+    private final DecisioningMethod decisioningMethod;
+    private final DecisioningEngine engine;
+    private final RulesArtifactLoader loader;
+    private final ScheduledExecutorService poller;
+    private final CompletableFuture<RulesArtifact> initialLoad;
+    private volatile RulesArtifact artifact;
+
+    public OnDeviceDecisioningService(ClientConfig clientConfig, TargetService remoteService) {
+        this.remoteService = remoteService;
+        this.decisioningMethod = clientConfig.getDecisioningMethod();
+        this.engine = new DecisioningEngine(clientConfig.getClient());
+        this.loader = new RulesArtifactLoader(clientConfig.getRulesArtifactLocation(),
+                clientConfig.getConnectTimeout(), clientConfig.getSocketTimeout(),
+                clientConfig.getRulesArtifactLoadTimeout());
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "target-rules-artifact-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // loaded in the background so that creating the client does not wait for it, requests go to the edge
+        // until it has arrived
+        this.initialLoad = CompletableFuture.runAsync(this::refreshArtifact, poller).thenApply(ignored -> artifact);
+        long pollingInterval = clientConfig.getRulesArtifactPollingInterval();
+        if (pollingInterval > 0) {
+            this.poller.scheduleWithFixedDelay(this::refreshArtifact, pollingInterval, pollingInterval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public RulesArtifact getRulesArtifact() {
+        return artifact;
+    }
+
+    /**
+     * Completes with the artifact once the first load attempt has finished, or with null if it failed.
+     */
+    public CompletableFuture<RulesArtifact> getInitialLoad() {
+        return initialLoad;
+    }
+
+    @Override
+    public TargetDeliveryResponse executeRequest(TargetDeliveryRequest deliveryRequest) {
+        RulesArtifact rulesArtifact = this.artifact;
+        if (!isLocal(rulesArtifact, deliveryRequest)) {
+            return remoteService.executeRequest(deliveryRequest);
+        }
+        return decide(rulesArtifact, deliveryRequest);
+    }
+
+    @Override
+    public CompletableFuture<TargetDeliveryResponse> executeRequestAsync(TargetDeliveryRequest deliveryRequest) {
+        RulesArtifact rulesArtifact = this.artifact;
+        if (!isLocal(rulesArtifact, deliveryRequest)) {
+            return remoteService.executeRequestAsync(deliveryRequest);
+        }
+        return CompletableFuture.completedFuture(decide(rulesArtifact, deliveryRequest));
+    }
+
+    @Override
+    public ResponseStatus executeNotification(TargetDeliveryRequest deliveryRequest) {
+        return remoteService.executeNotification(deliveryRequest);
+    }
+
+    @Override
+    public CompletableFuture<ResponseStatus> executeNotificationAsync(TargetDeliveryRequest deliveryRequest) {
+        return remoteService.executeNotificationAsync(deliveryRequest);
+    }
+
+    @Override
+    public void close() throws Exception {
+        poller.shutdownNow();
+        remoteService.close();
+    }
+
+    private boolean isLocal(RulesArtifact rulesArtifact, TargetDeliveryRequest deliveryRequest) {
+        if (rulesArtifact == null) {
+            return false;
+        }
+        return decisioningMethod == DecisioningMethod.ON_DEVICE
+                || engine.covers(rulesArtifact, deliveryRequest.getDeliveryRequest());
+    }
+
+    private TargetDeliveryResponse decide(RulesArtifact rulesArtifact, TargetDeliveryRequest deliveryRequest) {
+        DeliveryRequest request = deliveryRequest.getDeliveryRequest();
+        VisitorId requestId = request.getId() != null ? request.getId() : new VisitorId();
+        String tntId = isNotEmpty(requestId.getTntId()) ? requestId.getTntId()
+                : newTntId(deliveryRequest.getLocationHint());
+        VisitorId responseId = new VisitorId()
+                .tntId(tntId)
+                .thirdPartyId(requestId.getThirdPartyId())
+                .marketingCloudVisitorId(requestId.getMarketingCloudVisitorId());
+        List<Notification> notifications = new ArrayList<>();
+        if (request.getNotifications() != null) {
+            notifications.addAll(request.getNotifications());
+        }
+        DeliveryResponse response = engine.evaluate(rulesArtifact, request, responseId,
+                hasVisitorId(requestId) ? requestId : responseId, notifications);
+        sendNotifications(deliveryRequest, responseId, notifications);
+        return new TargetDeliveryResponse(deliveryRequest, response, response.getStatus(), OK);
+    }
+
+    private void sendNotifications(TargetDeliveryRequest deliveryRequest,
+                                   VisitorId id,
+                                   List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        DeliveryRequest request = deliveryRequest.getDeliveryRequest();
+        try {
+            TargetDeliveryRequest notificationRequest = TargetDeliveryRequest.builder()
+                    .sessionId(deliveryRequest.getSessionId())
+                    .locationHint(deliveryRequest.getLocationHint())
+                    .visitor(deliveryRequest.getVisitor())
+                    .id(id)
+                    .context(request.getContext())
+                    .experienceCloud(request.getExperienceCloud())
+                    .property(request.getProperty())
+                    .environmentId(request.getEnvironmentId())
+                    .notifications(notifications)
+                    .build();
+            remoteService.executeNotificationAsync(notificationRequest).whenComplete((status, throwable) -> {
+                if (throwable != null) {
+                    logger.warn("Could not send on-device decisioning notifications: {}", throwable.getMessage());
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Could not send on-device decisioning notifications: {}", e.getMessage());
+        }
+    }
+
+    private void refreshArtifact() {
+        try {
+            RulesArtifact loaded = loader.load();
+            this.artifact = loaded;
+            logger.debug("Loaded rules artifact version {}", loaded.getVersion());
+        } catch (TargetClientException e) {
+            if (artifact == null) {
+                logger.error("{}, requests will be sent to the edge", e.getMessage());
+            } else {
+                logger.warn("{}, keeping version {}", e.getMessage(), artifact.getVersion());
+            }
+        }
+    }
+
+    /**
+     * Visitors keep their own ids for allocation, so their bucket is stable before a generated
+     * tntId has been returned in a cookie.
+     */
+    private static boolean hasVisitorId(VisitorId visitorId) {
+        return isNotEmpty(visitorId.getMarketingCloudVisitorId()) || isNotEmpty(visitorId.getTntId())
+                || isNotEmpty(visitorId.getThirdPartyId());
+    }
+
+    private static String newTntId(String locationHint) {
+        String tntId = UUID.randomUUID().toString().replace("-", "");
+        return isNotEmpty(locationHint) ? tntId + "." + locationHint + "_0" : tntId;
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.ondevice;
+
+import com.adobe.target.delivery.v1.model.Metric;
+import com.adobe.target.delivery.v1.model.Option;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One experience of an activity. A visitor qualifies when every condition matches and their
+ * allocation bucket, in percent, falls within {@code [allocation[0], allocation[1])}.
+ */
+public class Rule {
+
+    private long activityId;
+    private long experienceId;
+    private double[] allocation = {0, 100};
+    private List<RuleCondition> conditions = Collections.emptyList();
+    private List<Option> options = Collections.emptyList();
+    private List<Metric> metrics = Collections.emptyList();
+    private Map<String, Object> responseTokens = Collections.emptyMap();
+
+    public long getActivityId() {
+        return activityId;
+    }
+
+    public void setActivityId(long activityId) {
+        this.activityId = activityId;
+    }
+
+    public long getExperienceId() {
+        return experienceId;
+    }
+
+    public void setExperienceId(long experienceId) {
+        this.experienceId = experienceId;
+    }
+
+    public double[] getAllocation() {
+        return allocation;
+    }
+
+    public void setAllocation(double[] allocation) {
+        if (allocation == null || allocation.length != 2 || allocation[0] > allocation[1]) {
+            throw new IllegalArgumentException("allocation must be a [from, to) percent range");
+        }
+        this.allocation = allocation;
+    }
+
+    public List<RuleCondition> getConditions() {
+        return conditions;
+    }
+
+    public void setConditions(List<RuleCondition> conditions) {
+        this.conditions = conditions != null ? conditions : Collections.emptyList();
+    }
+
+    public List<Option> getOptions() {
+        return options;
+    }
+
+    public void setOptions(List<Option> options) {
+        this.options = options != null ? options : Collections.emptyList();
+    }
+
+    public List<Metric> getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(List<Metric> metrics) {
+        this.metrics = metrics != null ? metrics : Collections.emptyList();
+    }
+
+    public Map<String, Object> getResponseTokens() {
+        return responseTokens;
+    }
+
+    public void setResponseTokens(Map<String, Object> responseTokens) {
+        this.responseTokens = responseTokens != null ? responseTokens : Collections.emptyMap();
+    }
+
+    boolean isAllocated(double allocationPercent) {
+        return allocationPercent >= allocation[0] && allocationPercent < allocation[1];
+    }
+
+}
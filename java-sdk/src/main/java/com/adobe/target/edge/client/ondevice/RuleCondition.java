@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.ondevice;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A condition on a request attribute. Keys are namespaced: {@code mbox.<param>},
+ * {@code profile.<param>}, {@code page.url}, {@code page.referrer} and {@code channel}.
+ */
+public class RuleCondition {
+
+    private String key;
+    private Operator operator = Operator.EQUALS;
+    private List<String> values = Collections.emptyList();
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public void setOperator(Operator operator) {
+        this.operator = operator;
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+
+    public void setValues(List<String> values) {
+        this.values = values != null ? values : Collections.emptyList();
+    }
+
+    boolean matches(String actual) {
+        switch (operator) {
+            case EXISTS:
+                return actual != null;
+            case NOT_EXISTS:
+                return actual == null;
+            case NOT_EQUALS:
+                return actual == null || !values.contains(actual);
+            default:
+                break;
+        }
+        if (actual == null) {
+            return false;
+        }
+        for (String value : values) {
+            if (matches(actual, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(String actual, String value) {
+        switch (operator) {
+            case EQUALS:
+                return actual.equals(value);
+            case CONTAINS:
+                return actual.contains(value);
+            case STARTS_WITH:
+                return actual.startsWith(value);
+            case ENDS_WITH:
+                return actual.endsWith(value);
+            case GREATER_THAN:
+                return compareNumbers(actual, value) > 0;
+            case LESS_THAN:
+                return compareNumbers(actual, value) < 0;
+            default:
+                return false;
+        }
+    }
+
+    private static int compareNumbers(String actual, String value) {
+        try {
+            return Double.compare(Double.parseDouble(actual), Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public enum Operator {
+
+        EQUALS("equals"),
+
+        NOT_EQUALS("notEquals"),
+
+        CONTAINS("contains"),
+
+        STARTS_WITH("startsWith"),
+
+        ENDS_WITH("endsWith"),
+
+        EXISTS("exists"),
+
+        NOT_EXISTS("notExists"),
+
+        GREATER_THAN("greaterThan"),
+
+        LESS_THAN("lessThan");
+
+        private final String value;
+
+        Operator(String value) {
+            this.value = value;
+        }
+
+        @JsonValue
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+
+        @JsonCreator
+        public static Operator fromValue(String text) {
+            for (Operator operator : Operator.values()) {
+                if (operator.value.equals(text)) {
+                    return operator;
+                }
+            }
+            throw new IllegalArgumentException("Unexpected value '" + text + "'");
+        }
+    }
+
+}
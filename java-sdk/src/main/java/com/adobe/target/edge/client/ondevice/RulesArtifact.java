@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.ondevice;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class RulesArtifact {
+
+    private String version;
+    private Map<String, List<Rule>> mboxes = Collections.emptyMap();
+    private Map<String, List<Rule>> views = Collections.emptyMap();
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public Map<String, List<Rule>> getMboxes() {
+        return mboxes;
+    }
+
+    public void setMboxes(Map<String, List<Rule>> mboxes) {
+        this.mboxes = mboxes != null ? mboxes : Collections.emptyMap();
+    }
+
+    public Map<String, List<Rule>> getViews() {
+        return views;
+    }
+
+    public void setViews(Map<String, List<Rule>> views) {
+        this.views = views != null ? views : Collections.emptyMap();
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.ondevice;
+
+import com.adobe.target.edge.client.service.TargetClientException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+final class RulesArtifactLoader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String location;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final long loadTimeout;
+
+    /**
+     * @param loadTimeout milliseconds a whole load may take, checked between reads, so a load ends at the latest
+     *                    {@code readTimeout} after it
+     */
+    RulesArtifactLoader(String location, int connectTimeout, int readTimeout, long loadTimeout) {
+        this.location = location;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.loadTimeout = loadTimeout;
+        this.objectMapper.configure(JsonGenerator.Feature.IGNORE_UNKNOWN, true);
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.objectMapper.configure(DeserializationFeature.READ_ENUMS_USING_TO_STRING, true);
+    }
+
+    RulesArtifact load() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(loadTimeout);
+        try (InputStream in = open()) {
+            RulesArtifact artifact = objectMapper.readValue(read(in, deadline), RulesArtifact.class);
+            if (artifact == null) {
+                throw new TargetClientException("Rules artifact " + location + " is empty");
+            }
+            return artifact;
+        } catch (IOException e) {
+            throw new TargetClientException("Could not load rules artifact " + location + ": " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] read(InputStream in, long deadline) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IOException("timed out after " + loadTimeout + " ms");
+            }
+            content.write(buffer, 0, read);
+        }
+        return content.toByteArray();
+    }
+
+    private InputStream open() throws IOException {
+        if (!isUrl(location)) {
+            return Files.newInputStream(Paths.get(location));
+        }
+        URLConnection connection = new URL(location).openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        return connection.getInputStream();
+    }
+
+    private static boolean isUrl(String location) {
+        return location.startsWith("http://") || location.startsWith("https://") || location.startsWith("file:");
+    }
+
+}
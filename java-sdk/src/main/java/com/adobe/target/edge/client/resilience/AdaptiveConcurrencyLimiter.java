@@ -0,0 +1,350 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of outstanding delivery calls to a limit learned from their round-trip times.
+ *
+ * <p>{@link Algorithm#AIMD} adds one to the limit per successful call while at least half of it is in use
+ * and multiplies it by {@code backoffRatio} when a call is dropped. {@link Algorithm#GRADIENT} compares each
+ * RTT with a long-term average: the limit shrinks by up to half as the RTT grows past {@code rttTolerance}
+ * times that average, and grows by roughly its square root while RTTs stay flat. Drops back off as in AIMD.
+ *
+ * <p>Calls over the limit wait in a bounded queue for up to {@code maxQueueWait}, and are rejected with a
+ * {@link ConcurrencyLimitExceededException} once it is full or the wait expires.
+ *
+ * <p>The limiter can be shared between clients. Its {@code <name>.limit} and {@code <name>.inflight} gauges stay
+ * registered in a metrics registry until every client that registered them there has unregistered them.
+ */
+public class AdaptiveConcurrencyLimiter implements AutoCloseable {
+
+    public enum Algorithm {
+        AIMD,
+        GRADIENT
+    }
+
+    public static final String DEFAULT_NAME = "http.concurrency";
+    public static final String LIMIT_GAUGE = ".limit";
+    public static final String IN_FLIGHT_GAUGE = ".inflight";
+    private static final CompletableFuture<Void> ACQUIRED = CompletableFuture.completedFuture(null);
+    private static final double LONG_RTT_WINDOW = 600;
+    private static final double LONG_RTT_DRIFT = 2.0;
+
+    private final String name;
+    private final Algorithm algorithm;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final long maxQueueWaitNanos;
+    private final double backoffRatio;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+    private final LongAdder rejected = new LongAdder();
+    private final ScheduledExecutorService timer;
+    private final Map<TargetMetricsRegistry, Integer> registrations = new IdentityHashMap<>();
+    private volatile int limit;
+    private double estimatedLimit;
+    private double longRttNanos;
+
+    private AdaptiveConcurrencyLimiter(AdaptiveConcurrencyLimiterBuilder builder) {
+        this.name = builder.name;
+        this.algorithm = builder.algorithm;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.maxQueueSize = builder.maxQueueSize;
+        this.maxQueueWaitNanos = builder.maxQueueWaitNanos;
+        this.backoffRatio = builder.backoffRatio;
+        this.rttTolerance = builder.rttTolerance;
+        this.smoothing = builder.smoothing;
+        this.estimatedLimit = Math.min(maxLimit, Math.max(minLimit, builder.initialLimit));
+        this.limit = (int) estimatedLimit;
+        this.timer = maxQueueSize > 0 ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "target-concurrency-limiter");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public static AdaptiveConcurrencyLimiterBuilder builder() {
+        return new AdaptiveConcurrencyLimiterBuilder();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return a future completing once the caller holds a permit, which must then be handed back through
+     * {@link #release(long, boolean)}, or failing with a {@link ConcurrencyLimitExceededException}
+     */
+    public CompletableFuture<Void> acquire() {
+        if (tryAcquire()) {
+            return ACQUIRED;
+        }
+        if (queued.incrementAndGet() > maxQueueSize) {
+            queued.decrementAndGet();
+            return reject();
+        }
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        drain();
+        if (!waiter.isDone()) {
+            timer.schedule(() -> {
+                if (waiters.remove(waiter)) {
+                    queued.decrementAndGet();
+                }
+                if (waiter.completeExceptionally(new ConcurrencyLimitExceededException(
+                        "Timed out waiting for one of " + limit + " concurrent delivery calls"))) {
+                    rejected.increment();
+                }
+            }, maxQueueWaitNanos, TimeUnit.NANOSECONDS);
+        }
+        return waiter;
+    }
+
+    /**
+     * @param rttNanos how long the call held its permit
+     * @param dropped whether the call timed out, failed or was turned away by the edge
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int outstanding = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (dropped) {
+                estimatedLimit *= backoffRatio;
+            } else if (algorithm == Algorithm.AIMD) {
+                if (outstanding * 2 >= limit) {
+                    estimatedLimit += 1;
+                }
+            } else {
+                updateGradient(rttNanos, outstanding);
+            }
+            estimatedLimit = Math.min(maxLimit, Math.max(minLimit, estimatedLimit));
+            limit = (int) estimatedLimit;
+        }
+        drain();
+    }
+
+    /**
+     * Registers the limit and in-flight gauges in {@code metricsRegistry}, once per registry however many
+     * clients share the limiter.
+     */
+    public void registerMetrics(TargetMetricsRegistry metricsRegistry) {
+        synchronized (registrations) {
+            if (registrations.merge(metricsRegistry, 1, Integer::sum) == 1) {
+                metricsRegistry.registerGauge(name + LIMIT_GAUGE, this::getLimit);
+                metricsRegistry.registerGauge(name + IN_FLIGHT_GAUGE, this::getInFlight);
+            }
+        }
+    }
+
+    /**
+     * Removes the gauges from {@code metricsRegistry} once the last client that registered them there is done.
+     */
+    public void unregisterMetrics(TargetMetricsRegistry metricsRegistry) {
+        synchronized (registrations) {
+            Integer count = registrations.get(metricsRegistry);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                registrations.put(metricsRegistry, count - 1);
+                return;
+            }
+            registrations.remove(metricsRegistry);
+            metricsRegistry.unregisterGauge(name + LIMIT_GAUGE);
+            metricsRegistry.unregisterGauge(name + IN_FLIGHT_GAUGE);
+        }
+    }
+
+    /**
+     * Hands back a permit without feeding the call into the limit, for calls that were cancelled or rejected by
+     * the client itself and so say nothing about the edge.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    @Override
+    public void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    private void updateGradient(long rttNanos, int outstanding) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+            return;
+        }
+        longRttNanos += (rttNanos - longRttNanos) / LONG_RTT_WINDOW;
+        if (longRttNanos > rttNanos * LONG_RTT_DRIFT) {
+            // recover faster after a slow period so the baseline does not stay inflated
+            longRttNanos *= 0.95;
+        }
+        if (outstanding * 2 < limit) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / rttNanos));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = estimatedLimit * (1 - smoothing) + target * smoothing;
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void drain() {
+        while (!waiters.isEmpty() && tryAcquire()) {
+            CompletableFuture<Void> waiter = waiters.poll();
+            if (waiter == null) {
+                inFlight.decrementAndGet();
+                return;
+            }
+            queued.decrementAndGet();
+            if (!waiter.complete(null)) {
+                // timed out meanwhile, hand the permit to the next waiter
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private CompletableFuture<Void> reject() {
+        rejected.increment();
+        CompletableFuture<Void> rejection = new CompletableFuture<>();
+        rejection.completeExceptionally(new ConcurrencyLimitExceededException(
+                "More than " + limit + " concurrent delivery calls"));
+        return rejection;
+    }
+
+    public static final class AdaptiveConcurrencyLimiterBuilder {
+        private String name = DEFAULT_NAME;
+        private Algorithm algorithm = Algorithm.GRADIENT;
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private int maxQueueSize = 0;
+        private long maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(10);
+        private double backoffRatio = 0.9;
+        private double rttTolerance = 1.5;
+        private double smoothing = 0.2;
+
+        private AdaptiveConcurrencyLimiterBuilder() {
+        }
+
+        /**
+         * Prefix of the limiter's gauges, to tell several limiters reporting to one registry apart.
+         */
+        public AdaptiveConcurrencyLimiterBuilder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiterBuilder algorithm(Algorithm algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiterBuilder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiterBuilder minLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiterBuilder maxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiterBuilder maxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiterBuilder maxQueueWait(long maxQueueWait, TimeUnit unit) {
+            this.maxQueueWaitNanos = unit.toNanos(maxQueueWait);
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiterBuilder backoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiterBuilder rttTolerance(double rttTolerance) {
+            this.rttTolerance = rttTolerance;
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiterBuilder smoothing(double smoothing) {
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiter build() {
+            Objects.requireNonNull(name, "name cannot be null");
+            Objects.requireNonNull(algorithm, "algorithm cannot be null");
+            if (minLimit < 1 || maxLimit < minLimit) {
+                throw new IllegalArgumentException("limits must satisfy 1 <= minLimit <= maxLimit");
+            }
+            if (backoffRatio <= 0 || backoffRatio >= 1) {
+                throw new IllegalArgumentException("backoff ratio must be in (0, 1)");
+            }
+            return new AdaptiveConcurrencyLimiter(this);
+        }
+    }
+
+}
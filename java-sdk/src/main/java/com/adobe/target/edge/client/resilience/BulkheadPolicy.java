@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+/**
+ * Resources reserved for one type of delivery call, so that a burst of notifications cannot starve
+ * getOffers calls or the other way round. Each bulkhead gets a connection pool of its own, sized by
+ * {@code maxConnectionsTotal} and {@code maxConnectionsPerHost}, with its own timeouts, in milliseconds.
+ *
+ * <p>When {@code maxConcurrentCalls} is set, calls beyond that many in flight are rejected right away
+ * instead of queueing for a connection.
+ */
+public class BulkheadPolicy {
+
+    private int maxConnectionsTotal;
+    private int maxConnectionsPerHost;
+    private int socketTimeout;
+    private int connectTimeout;
+    private int maxConcurrentCalls;
+
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public boolean isConcurrencyBounded() {
+        return maxConcurrentCalls > 0;
+    }
+
+    public static BulkheadPolicyBuilder builder() {
+        return new BulkheadPolicyBuilder();
+    }
+
+    public static final class BulkheadPolicyBuilder {
+        private int maxConnectionsTotal = 50;
+        private int maxConnectionsPerHost = 25;
+        private int socketTimeout = 10000;
+        private int connectTimeout = 10000;
+        private int maxConcurrentCalls = 0;
+
+        private BulkheadPolicyBuilder() {
+        }
+
+        public BulkheadPolicyBuilder maxConnectionsTotal(int maxConnectionsTotal) {
+            this.maxConnectionsTotal = maxConnectionsTotal;
+            return this;
+        }
+
+        public BulkheadPolicyBuilder maxConnectionsPerHost(int maxConnectionsPerHost) {
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            return this;
+        }
+
+        public BulkheadPolicyBuilder socketTimeout(int socketTimeout) {
+            this.socketTimeout = socketTimeout;
+            return this;
+        }
+
+        public BulkheadPolicyBuilder connectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Calls allowed in flight at once, including those waiting for a connection. Zero, the default,
+         * leaves only the connection pool to bound them.
+         */
+        public BulkheadPolicyBuilder maxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            return this;
+        }
+
+        public BulkheadPolicy build() {
+            if (maxConnectionsTotal < 1 || maxConnectionsPerHost < 1) {
+                throw new IllegalArgumentException("max connections must be positive");
+            }
+            if (maxConcurrentCalls < 0) {
+                throw new IllegalArgumentException("max concurrent calls cannot be negative");
+            }
+            BulkheadPolicy policy = new BulkheadPolicy();
+            policy.maxConnectionsTotal = this.maxConnectionsTotal;
+            policy.maxConnectionsPerHost = Math.min(this.maxConnectionsPerHost, this.maxConnectionsTotal);
+            policy.socketTimeout = this.socketTimeout;
+            policy.connectTimeout = this.connectTimeout;
+            policy.maxConcurrentCalls = this.maxConcurrentCalls;
+            return policy;
+        }
+    }
+
+}
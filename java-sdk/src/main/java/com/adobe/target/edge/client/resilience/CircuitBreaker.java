@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+/**
+ * Health of a single edge cluster, tracked over a window of its most recent call outcomes.
+ */
+class CircuitBreaker {
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final CircuitBreakerPolicy policy;
+    private final boolean[] failed;
+    private State state = State.CLOSED;
+    private int calls;
+    private int failures;
+    private int next;
+    private long openedAtNanos;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    CircuitBreaker(CircuitBreakerPolicy policy) {
+        this.policy = policy;
+        this.failed = new boolean[policy.getWindowSize()];
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return whether a call may be sent, moving an expired open breaker to half-open
+     */
+    synchronized boolean tryAcquire(long nowNanos) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nowNanos - openedAtNanos < policy.getOpenDurationNanos()) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probesStarted = 0;
+                probesSucceeded = 0;
+                // fall through
+            default:
+                if (probesStarted >= policy.getHalfOpenCalls()) {
+                    return false;
+                }
+                probesStarted++;
+                return true;
+        }
+    }
+
+    /**
+     * Gives back the permit of a call that ended without an outcome to learn from, e.g. because it was
+     * cancelled or rejected before reaching the edge, so that a half-open breaker can start another probe.
+     */
+    synchronized void release() {
+        if (state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+            probesStarted--;
+        }
+    }
+
+    /**
+     * @return true when this outcome changed the state of the breaker
+     */
+    synchronized boolean record(boolean success, long nowNanos) {
+        if (state == State.HALF_OPEN) {
+            if (!success) {
+                open(nowNanos);
+                return true;
+            }
+            if (++probesSucceeded >= policy.getHalfOpenCalls()) {
+                reset();
+                return true;
+            }
+            return false;
+        }
+        if (state == State.OPEN) {
+            return false;
+        }
+        if (calls == failed.length) {
+            failures -= failed[next] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        failed[next] = !success;
+        failures += success ? 0 : 1;
+        next = (next + 1) % failed.length;
+        if (calls >= policy.getMinimumCalls() && failures >= policy.getFailureRateThreshold() * calls) {
+            open(nowNanos);
+            return true;
+        }
+        return false;
+    }
+
+    private void open(long nowNanos) {
+        state = State.OPEN;
+        openedAtNanos = nowNanos;
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        calls = 0;
+        failures = 0;
+        next = 0;
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * When calls to an edge cluster are short-circuited. A cluster is opened once at least {@code minimumCalls}
+ * of its last {@code windowSize} calls were seen and {@code failureRateThreshold} of them failed with an
+ * exception or a 5xx status. After {@code openDuration}, {@code halfOpenCalls} probe calls are let through
+ * and the cluster is closed again if all of them succeed.
+ */
+public class CircuitBreakerPolicy {
+
+    private double failureRateThreshold;
+    private int minimumCalls;
+    private int windowSize;
+    private long openDurationNanos;
+    private int halfOpenCalls;
+    private Function<TargetDeliveryRequest, TargetDeliveryResponse> fallback;
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public long getOpenDurationNanos() {
+        return openDurationNanos;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public Function<TargetDeliveryRequest, TargetDeliveryResponse> getFallback() {
+        return fallback;
+    }
+
+    public static CircuitBreakerPolicyBuilder builder() {
+        return new CircuitBreakerPolicyBuilder();
+    }
+
+    public static final class CircuitBreakerPolicyBuilder {
+        private double failureRateThreshold = 0.5;
+        private int minimumCalls = 10;
+        private int windowSize = 50;
+        private long openDurationNanos = TimeUnit.SECONDS.toNanos(30);
+        private int halfOpenCalls = 3;
+        private Function<TargetDeliveryRequest, TargetDeliveryResponse> fallback;
+
+        private CircuitBreakerPolicyBuilder() {
+        }
+
+        public CircuitBreakerPolicyBuilder failureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        public CircuitBreakerPolicyBuilder minimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        public CircuitBreakerPolicyBuilder windowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        public CircuitBreakerPolicyBuilder openDuration(long openDuration, TimeUnit unit) {
+            this.openDurationNanos = unit.toNanos(openDuration);
+            return this;
+        }
+
+        public CircuitBreakerPolicyBuilder halfOpenCalls(int halfOpenCalls) {
+            this.halfOpenCalls = halfOpenCalls;
+            return this;
+        }
+
+        /**
+         * Builds the response returned for getOffers calls while their cluster is open, typically default
+         * content. Without a fallback those calls fail with a {@link CircuitBreakerOpenException}.
+         */
+        public CircuitBreakerPolicyBuilder fallback(Function<TargetDeliveryRequest, TargetDeliveryResponse> fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        public CircuitBreakerPolicy build() {
+            if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+                throw new IllegalArgumentException("failure rate threshold must be in (0, 1]");
+            }
+            if (minimumCalls < 1 || windowSize < minimumCalls) {
+                throw new IllegalArgumentException("window size must be at least minimum calls, which must be positive");
+            }
+            if (halfOpenCalls < 1) {
+                throw new IllegalArgumentException("half open calls must be positive");
+            }
+            CircuitBreakerPolicy policy = new CircuitBreakerPolicy();
+            policy.failureRateThreshold = this.failureRateThreshold;
+            policy.minimumCalls = this.minimumCalls;
+            policy.windowSize = this.windowSize;
+            policy.openDurationNanos = this.openDurationNanos;
+            policy.halfOpenCalls = this.halfOpenCalls;
+            policy.fallback = this.fallback;
+            return policy;
+        }
+    }
+
+}
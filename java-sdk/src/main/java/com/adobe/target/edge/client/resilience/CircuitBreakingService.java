@@ -0,0 +1,216 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.service.DeadlineExceededException;
+import com.adobe.target.edge.client.service.TargetClientException;
+import com.adobe.target.edge.client.service.TargetService;
+import com.adobe.target.edge.client.utils.FutureUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Short-circuits calls to edge clusters that keep failing, keyed by the url a request resolves to through its
+ * location hint, so that visitors pinned to a degraded cluster do not each wait out the socket timeout.
+ * getOffers calls to an open cluster are answered by the policy fallback, notifications with a 503 status.
+ */
+public class CircuitBreakingService implements TargetService {
+
+    public static final String REJECTED = "circuit.rejected";
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreakingService.class);
+    private static final int SC_SERVICE_UNAVAILABLE = 503;
+    private static final int MAX_TRACKED_CLUSTERS = 1000;
+    private final TargetService targetService;
+    private final ClientConfig clientConfig;
+    private final CircuitBreakerPolicy policy;
+    private final TargetMetricsRegistry metricsRegistry;
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakingService(ClientConfig clientConfig, TargetService targetService) {
+        this.targetService = targetService;
+        this.clientConfig = clientConfig;
+        this.policy = clientConfig.getCircuitBreakerPolicy();
+        this.metricsRegistry = clientConfig.getMetricsRegistry();
+    }
+
+    public boolean isOpen(String locationHint) {
+        CircuitBreaker breaker = breakers.get(clientConfig.getUrl(locationHint));
+        return breaker != null && breaker.getState() != CircuitBreaker.State.CLOSED;
+    }
+
+    @Override
+    public TargetDeliveryResponse executeRequest(TargetDeliveryRequest deliveryRequest) {
+        String url = clientConfig.getUrl(deliveryRequest.getLocationHint());
+        CircuitBreaker breaker = breaker(url);
+        if (!breaker.tryAcquire(System.nanoTime())) {
+            return fallback(deliveryRequest, url);
+        }
+        TargetDeliveryResponse response;
+        try {
+            response = targetService.executeRequest(deliveryRequest);
+        } catch (RuntimeException | Error e) {
+            complete(breaker, url, e, 0);
+            throw e;
+        }
+        complete(breaker, url, null, response == null ? 0 : response.getStatus());
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<TargetDeliveryResponse> executeRequestAsync(TargetDeliveryRequest deliveryRequest) {
+        String url = clientConfig.getUrl(deliveryRequest.getLocationHint());
+        CircuitBreaker breaker = breaker(url);
+        if (!breaker.tryAcquire(System.nanoTime())) {
+            try {
+                return CompletableFuture.completedFuture(fallback(deliveryRequest, url));
+            } catch (CircuitBreakerOpenException e) {
+                CompletableFuture<TargetDeliveryResponse> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(e);
+                return rejected;
+            }
+        }
+        CompletableFuture<TargetDeliveryResponse> future;
+        try {
+            future = targetService.executeRequestAsync(deliveryRequest);
+        } catch (RuntimeException | Error e) {
+            complete(breaker, url, e, 0);
+            throw e;
+        }
+        return track(breaker, url, future, TargetDeliveryResponse::getStatus);
+    }
+
+    @Override
+    public ResponseStatus executeNotification(TargetDeliveryRequest deliveryRequest) {
+        String url = clientConfig.getUrl(deliveryRequest.getLocationHint());
+        CircuitBreaker breaker = breaker(url);
+        if (!breaker.tryAcquire(System.nanoTime())) {
+            return rejectNotification(url);
+        }
+        ResponseStatus status;
+        try {
+            status = targetService.executeNotification(deliveryRequest);
+        } catch (RuntimeException | Error e) {
+            complete(breaker, url, e, 0);
+            throw e;
+        }
+        complete(breaker, url, null, status == null ? 0 : status.getStatus());
+        return status;
+    }
+
+    @Override
+    public CompletableFuture<ResponseStatus> executeNotificationAsync(TargetDeliveryRequest deliveryRequest) {
+        String url = clientConfig.getUrl(deliveryRequest.getLocationHint());
+        CircuitBreaker breaker = breaker(url);
+        if (!breaker.tryAcquire(System.nanoTime())) {
+            return CompletableFuture.completedFuture(rejectNotification(url));
+        }
+        CompletableFuture<ResponseStatus> future;
+        try {
+            future = targetService.executeNotificationAsync(deliveryRequest);
+        } catch (RuntimeException | Error e) {
+            complete(breaker, url, e, 0);
+            throw e;
+        }
+        return track(breaker, url, future, ResponseStatus::getStatus);
+    }
+
+    @Override
+    public void close() throws Exception {
+        targetService.close();
+    }
+
+    private CircuitBreaker breaker(String url) {
+        CircuitBreaker breaker = breakers.get(url);
+        if (breaker != null) {
+            return breaker;
+        }
+        if (breakers.size() >= MAX_TRACKED_CLUSTERS) {
+            breakers.clear();
+        }
+        return breakers.computeIfAbsent(url, key -> new CircuitBreaker(policy));
+    }
+
+    private <T> CompletableFuture<T> track(CircuitBreaker breaker, String url, CompletableFuture<T> future,
+                                           Function<T, Integer> status) {
+        return FutureUtils.propagateCancel(future.whenComplete((response, throwable) ->
+                complete(breaker, url, throwable, response == null ? 0 : status.apply(response))), future);
+    }
+
+    /**
+     * Records the outcome of a call, unless it was cancelled or turned away on the client side before it was
+     * sent, e.g. by an expired deadline, the concurrency limiter or a bulkhead, which says nothing about the
+     * health of the cluster. Calls aborted on the wire by their deadline count as failures.
+     */
+    private void complete(CircuitBreaker breaker, String url, Throwable error, int status) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        if (cause instanceof CancellationException || isRejectedBeforeDispatch(cause)) {
+            breaker.release();
+            return;
+        }
+        record(breaker, url, cause == null && isSuccess(status));
+    }
+
+    private static boolean isRejectedBeforeDispatch(Throwable cause) {
+        if (cause instanceof DeadlineExceededException) {
+            return !((DeadlineExceededException) cause).isDispatched();
+        }
+        return cause instanceof TargetClientException;
+    }
+
+    private void record(CircuitBreaker breaker, String url, boolean success) {
+        if (breaker.record(success, System.nanoTime())) {
+            if (breaker.getState() == CircuitBreaker.State.OPEN) {
+                logger.warn("Opening circuit for {}, calls are short-circuited", url);
+            } else {
+                logger.info("Closing circuit for {}", url);
+            }
+        }
+    }
+
+    private TargetDeliveryResponse fallback(TargetDeliveryRequest deliveryRequest, String url) {
+        incrementRejected();
+        if (policy.getFallback() == null) {
+            throw new CircuitBreakerOpenException("Circuit open for " + url);
+        }
+        return policy.getFallback().apply(deliveryRequest);
+    }
+
+    private ResponseStatus rejectNotification(String url) {
+        incrementRejected();
+        return new ResponseStatus(SC_SERVICE_UNAVAILABLE, "Circuit open for " + url);
+    }
+
+    private void incrementRejected() {
+        if (metricsRegistry != null) {
+            metricsRegistry.incrementCounter(REJECTED);
+        }
+    }
+
+    private static boolean isSuccess(int status) {
+        return status > 0 && status < 500;
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When and where a second copy of a slow getOffers call is sent. The hedge is sent once the call has
+ * been outstanding for the configured delay, or for the given percentile of recent call latencies when
+ * {@code adaptivePercentile} is set, and only while hedges stay within {@code maxHedgeRate} of all calls.
+ */
+public class HedgingPolicy {
+
+    public enum HedgeTarget {
+        /**
+         * Sends the hedge to the same host as the original call.
+         */
+        SAME_HOST,
+        /**
+         * Sends the hedge to the default host, letting DNS pick a cluster, when the original call was
+         * pinned to a cluster by its location hint.
+         */
+        DEFAULT_HOST
+    }
+
+    private long delayNanos;
+    private long minDelayNanos;
+    private double adaptivePercentile;
+    private double maxHedgeRate;
+    private boolean hedgeExecuteRequests;
+    private HedgeTarget target;
+
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    public long getMinDelayNanos() {
+        return minDelayNanos;
+    }
+
+    public double getAdaptivePercentile() {
+        return adaptivePercentile;
+    }
+
+    public boolean isAdaptive() {
+        return adaptivePercentile > 0;
+    }
+
+    public double getMaxHedgeRate() {
+        return maxHedgeRate;
+    }
+
+    public boolean isHedgeExecuteRequests() {
+        return hedgeExecuteRequests;
+    }
+
+    public HedgeTarget getTarget() {
+        return target;
+    }
+
+    public static HedgingPolicyBuilder builder() {
+        return new HedgingPolicyBuilder();
+    }
+
+    public static final class HedgingPolicyBuilder {
+        private long delayNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        private long minDelayNanos = TimeUnit.MILLISECONDS.toNanos(10);
+        private double adaptivePercentile = 0;
+        private double maxHedgeRate = 0.05;
+        private boolean hedgeExecuteRequests = false;
+        private HedgeTarget target = HedgeTarget.DEFAULT_HOST;
+
+        private HedgingPolicyBuilder() {
+        }
+
+        /**
+         * Fixed hedge delay, or the delay used until enough latencies have been seen when adaptive.
+         */
+        public HedgingPolicyBuilder delay(long delay, TimeUnit unit) {
+            this.delayNanos = unit.toNanos(delay);
+            return this;
+        }
+
+        public HedgingPolicyBuilder minDelay(long minDelay, TimeUnit unit) {
+            this.minDelayNanos = unit.toNanos(minDelay);
+            return this;
+        }
+
+        /**
+         * Learns the delay as this latency percentile, e.g. 95, of recent calls.
+         */
+        public HedgingPolicyBuilder adaptivePercentile(double adaptivePercentile) {
+            this.adaptivePercentile = adaptivePercentile;
+            return this;
+        }
+
+        public HedgingPolicyBuilder maxHedgeRate(double maxHedgeRate) {
+            this.maxHedgeRate = maxHedgeRate;
+            return this;
+        }
+
+        /**
+         * Execute mboxes and page loads are logged as impressions by the edge, so hedging them can
+         * count a visit twice. Only prefetch requests are hedged unless this is set.
+         */
+        public HedgingPolicyBuilder hedgeExecuteRequests(boolean hedgeExecuteRequests) {
+            this.hedgeExecuteRequests = hedgeExecuteRequests;
+            return this;
+        }
+
+        public HedgingPolicyBuilder target(HedgeTarget target) {
+            this.target = target;
+            return this;
+        }
+
+        public HedgingPolicy build() {
+            Objects.requireNonNull(target, "hedge target cannot be null");
+            if (adaptivePercentile < 0 || adaptivePercentile >= 100) {
+                throw new IllegalArgumentException("adaptive percentile must be in [0, 100)");
+            }
+            if (maxHedgeRate < 0 || maxHedgeRate > 1) {
+                throw new IllegalArgumentException("max hedge rate must be in [0, 1]");
+            }
+            HedgingPolicy policy = new HedgingPolicy();
+            policy.delayNanos = this.delayNanos;
+            policy.minDelayNanos = this.minDelayNanos;
+            policy.adaptivePercentile = this.adaptivePercentile;
+            policy.maxHedgeRate = this.maxHedgeRate;
+            policy.hedgeExecuteRequests = this.hedgeExecuteRequests;
+            policy.target = this.target;
+            return policy;
+        }
+    }
+
+}
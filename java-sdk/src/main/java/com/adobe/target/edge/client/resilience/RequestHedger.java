@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.edge.client.metrics.LatencyHistogram;
+import com.adobe.target.edge.client.metrics.LatencySnapshot;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.utils.CollectionUtils;
+import com.adobe.target.edge.client.utils.FutureUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Runs calls under a {@link HedgingPolicy}: the first successful attempt completes the call and the
+ * other one is cancelled. When the original attempt fails while a hedge is outstanding, the hedge's
+ * outcome is used.
+ */
+public class RequestHedger implements AutoCloseable {
+
+    public static final String HEDGES_SENT = "offers.hedges.sent";
+    public static final String HEDGES_WON = "offers.hedges.won";
+    private static final long CREDIT_UNIT = 1000;
+    private static final long MAX_CREDIT = 10 * CREDIT_UNIT;
+    private static final int MIN_ADAPTIVE_SAMPLES = 50;
+
+    private final HedgingPolicy policy;
+    private final TargetMetricsRegistry metricsRegistry;
+    private final ScheduledExecutorService scheduler;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong credit = new AtomicLong();
+    private final long creditPerCall;
+    private volatile long delayNanos;
+
+    public RequestHedger(HedgingPolicy policy, TargetMetricsRegistry metricsRegistry) {
+        this.policy = policy;
+        this.metricsRegistry = metricsRegistry;
+        this.creditPerCall = Math.round(policy.getMaxHedgeRate() * CREDIT_UNIT);
+        this.delayNanos = Math.max(policy.getDelayNanos(), policy.getMinDelayNanos());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "target-hedging-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (policy.isAdaptive()) {
+            scheduler.scheduleAtFixedRate(this::updateDelay, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    public boolean isHedgeable(DeliveryRequest request) {
+        if (!CollectionUtils.isEmpty(request.getNotifications())) {
+            return false;
+        }
+        ExecuteRequest execute = request.getExecute();
+        return policy.isHedgeExecuteRequests() || execute == null
+                || (execute.getPageLoad() == null && CollectionUtils.isEmpty(execute.getMboxes()));
+    }
+
+    public String hedgeUrl(String url, String defaultUrl) {
+        return policy.getTarget() == HedgingPolicy.HedgeTarget.DEFAULT_HOST ? defaultUrl : url;
+    }
+
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * @param attempt sends one attempt, the argument tells whether it is the hedge
+     * @param isSuccess whether an attempt's outcome can complete the call
+     */
+    public <T> CompletableFuture<T> execute(Function<Boolean, CompletableFuture<T>> attempt,
+                                            BiPredicate<T, Throwable> isSuccess) {
+        addCredit();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicBoolean decided = new AtomicBoolean();
+        AtomicReference<CompletableFuture<T>> hedge = new AtomicReference<>();
+        long startNanos = System.nanoTime();
+        CompletableFuture<T> primary = attempt.apply(false);
+        ScheduledFuture<?> timer = scheduler.schedule(() -> {
+            if (decided.get() || !tryAcquireCredit()) {
+                return;
+            }
+            count(HEDGES_SENT);
+            CompletableFuture<T> hedged = attempt.apply(true);
+            hedge.set(hedged);
+            if (decided.get()) {
+                // the call was decided while the hedge was being sent, so nothing will cancel it later
+                hedged.cancel(false);
+                return;
+            }
+            hedged.whenComplete((response, throwable) -> {
+                if (isSuccess.test(response, throwable) && decided.compareAndSet(false, true)) {
+                    if (policy.isAdaptive()) {
+                        // the primary is cancelled below, record how long it had taken so far as a lower bound
+                        latencies.record(System.nanoTime() - startNanos);
+                    }
+                    primary.cancel(false);
+                    count(HEDGES_WON);
+                    result.complete(response);
+                }
+            });
+        }, delayNanos, TimeUnit.NANOSECONDS);
+        primary.whenComplete((response, throwable) -> {
+            if (throwable == null && policy.isAdaptive()) {
+                latencies.record(System.nanoTime() - startNanos);
+            }
+            CompletableFuture<T> hedged = hedge.get();
+            if (isSuccess.test(response, throwable)) {
+                if (decided.compareAndSet(false, true)) {
+                    timer.cancel(false);
+                    if (hedged != null) {
+                        hedged.cancel(false);
+                    }
+                    result.complete(response);
+                }
+            } else if (hedged == null) {
+                timer.cancel(false);
+                complete(result, decided, response, throwable);
+            } else {
+                hedged.whenComplete((hedgeResponse, hedgeThrowable) ->
+                        complete(result, decided, hedgeResponse, hedgeThrowable));
+            }
+        });
+        return FutureUtils.onCancel(result, () -> {
+            decided.set(true);
+            timer.cancel(false);
+            primary.cancel(true);
+            CompletableFuture<T> hedged = hedge.get();
+            if (hedged != null) {
+                hedged.cancel(true);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void updateDelay() {
+        LatencySnapshot snapshot = latencies.snapshot();
+        if (snapshot.getCount() < MIN_ADAPTIVE_SAMPLES) {
+            return;
+        }
+        delayNanos = Math.max(policy.getMinDelayNanos(), snapshot.getValueAtPercentile(policy.getAdaptivePercentile()));
+        latencies.reset();
+    }
+
+    private void addCredit() {
+        long current;
+        do {
+            current = credit.get();
+            if (current >= MAX_CREDIT) {
+                return;
+            }
+        } while (!credit.compareAndSet(current, Math.min(MAX_CREDIT, current + creditPerCall)));
+    }
+
+    private boolean tryAcquireCredit() {
+        long current;
+        do {
+            current = credit.get();
+            if (current < CREDIT_UNIT) {
+                return false;
+            }
+        } while (!credit.compareAndSet(current, current - CREDIT_UNIT));
+        return true;
+    }
+
+    private void count(String counter) {
+        if (metricsRegistry != null) {
+            metricsRegistry.incrementCounter(counter);
+        }
+    }
+
+    private static <T> void complete(CompletableFuture<T> result, AtomicBoolean decided, T response,
+                                     Throwable throwable) {
+        if (!decided.compareAndSet(false, true)) {
+            return;
+        }
+        if (throwable != null) {
+            result.completeExceptionally(throwable);
+        } else {
+            result.complete(response);
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.service.TargetClientException;
+import com.adobe.target.edge.client.utils.FutureUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs calls of one type under a {@link RetryPolicy}, drawing retries from a token bucket that every first
+ * attempt refills by the policy budget ratio. No retry is scheduled past the deadline of the request.
+ */
+class Retrier {
+
+    private static final long CREDIT_UNIT = 1000;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final RetryPolicy policy;
+    private final ScheduledExecutorService scheduler;
+    private final TargetMetricsRegistry metricsRegistry;
+    private final String retriesCounter;
+    private final String throttledCounter;
+    private final AtomicLong credit;
+    private final long creditPerCall;
+    private final long maxCredit;
+
+    Retrier(RetryPolicy policy, ScheduledExecutorService scheduler, TargetMetricsRegistry metricsRegistry,
+            String counterPrefix) {
+        this.policy = policy;
+        this.scheduler = scheduler;
+        this.metricsRegistry = metricsRegistry;
+        this.retriesCounter = counterPrefix + ".retries";
+        this.throttledCounter = counterPrefix + ".retries.throttled";
+        this.maxCredit = policy.getMaxBurst() * CREDIT_UNIT;
+        this.creditPerCall = Math.round(policy.getBudgetRatio() * CREDIT_UNIT);
+        this.credit = new AtomicLong(maxCredit);
+    }
+
+    <T> T execute(TargetDeliveryRequest deliveryRequest, Supplier<T> call, ToIntFunction<T> status,
+                  boolean idempotent) {
+        for (int attempt = 1; ; attempt++) {
+            T response = null;
+            RuntimeException error = null;
+            try {
+                response = call.get();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            long backoffNanos = retryDelay(attempt, deliveryRequest, response, error, status, idempotent);
+            if (backoffNanos < 0) {
+                return result(response, error);
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(backoffNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return result(response, error);
+            }
+        }
+    }
+
+    <T> CompletableFuture<T> executeAsync(TargetDeliveryRequest deliveryRequest,
+                                          Supplier<CompletableFuture<T>> call, ToIntFunction<T> status,
+                                          boolean idempotent) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<T>> current = new AtomicReference<>();
+        attempt(1, deliveryRequest, call, status, idempotent, result, current);
+        return FutureUtils.onCancel(result, () -> current.get().cancel(true));
+    }
+
+    private <T> void attempt(int attempt, TargetDeliveryRequest deliveryRequest,
+                             Supplier<CompletableFuture<T>> call, ToIntFunction<T> status,
+                             boolean idempotent, CompletableFuture<T> result,
+                             AtomicReference<CompletableFuture<T>> current) {
+        if (result.isDone()) {
+            return;
+        }
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        current.set(future);
+        if (result.isCancelled()) {
+            future.cancel(true);
+            return;
+        }
+        future.whenComplete((response, throwable) -> {
+            Throwable error = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+            long backoffNanos = result.isDone() ? -1
+                    : retryDelay(attempt, deliveryRequest, response, error, status, idempotent);
+            if (backoffNanos < 0) {
+                if (error == null) {
+                    result.complete(response);
+                } else {
+                    result.completeExceptionally(error);
+                }
+                return;
+            }
+            scheduler.schedule(() -> attempt(attempt + 1, deliveryRequest, call, status, idempotent, result,
+                    current), backoffNanos, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    /**
+     * @return the backoff before the next attempt, or -1 when the call is not retried
+     */
+    private <T> long retryDelay(int attempt, TargetDeliveryRequest deliveryRequest, T response, Throwable error,
+                                ToIntFunction<T> status, boolean idempotent) {
+        if (attempt == 1) {
+            addCredit();
+        }
+        if (attempt >= policy.getMaxAttempts() || !isRetryable(response, error, status, idempotent)) {
+            return -1;
+        }
+        long backoffNanos = backoffNanos(attempt);
+        if (backoffNanos >= deliveryRequest.getRemainingNanos()) {
+            return -1;
+        }
+        if (!tryAcquireCredit()) {
+            count(throttledCounter);
+            return -1;
+        }
+        count(retriesCounter);
+        return backoffNanos;
+    }
+
+    private <T> boolean isRetryable(T response, Throwable error, ToIntFunction<T> status, boolean idempotent) {
+        boolean replayable = idempotent || policy.isRetryNonIdempotent();
+        if (error instanceof TargetClientException) {
+            // rejected or timed out by the client itself
+            return false;
+        }
+        if (error == null) {
+            int code = response == null ? 0 : status.applyAsInt(response);
+            return policy.getRetryStatuses().contains(code) && (replayable || code == TOO_MANY_REQUESTS);
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (isNotSent(cause)) {
+                return true;
+            }
+            if (cause instanceof IOException) {
+                return replayable;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNotSent(Throwable cause) {
+        return cause instanceof ConnectException || cause instanceof ConnectTimeoutException
+                || cause instanceof UnknownHostException;
+    }
+
+    long backoffNanos(int attempt) {
+        double ceiling = policy.getInitialBackoffNanos() * Math.pow(policy.getBackoffMultiplier(), attempt - 1);
+        long bound = (long) Math.min(policy.getMaxBackoffNanos(), ceiling);
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private static <T> T result(T response, RuntimeException error) {
+        if (error != null) {
+            throw error;
+        }
+        return response;
+    }
+
+    private void addCredit() {
+        long current;
+        do {
+            current = credit.get();
+            if (current >= maxCredit) {
+                return;
+            }
+        } while (!credit.compareAndSet(current, Math.min(maxCredit, current + creditPerCall)));
+    }
+
+    private boolean tryAcquireCredit() {
+        long current;
+        do {
+            current = credit.get();
+            if (current < CREDIT_UNIT) {
+                return false;
+            }
+        } while (!credit.compareAndSet(current, current - CREDIT_UNIT));
+        return true;
+    }
+
+    private void count(String counter) {
+        if (metricsRegistry != null) {
+            metricsRegistry.incrementCounter(counter);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How failed delivery calls are retried. Attempts are spaced by an exponential backoff with full jitter, and
+ * retries are limited to {@code budgetRatio} of all calls, with up to {@code maxBurst} retries saved up,
+ * so that an outage does not multiply the load on the edge.
+ *
+ * <p>A call is retried when it fails with an I/O error or returns one of {@code retryStatuses}. Execute mboxes,
+ * page loads and notifications are logged by the edge, so unless {@code retryNonIdempotent} is set those
+ * requests are only retried when they were never sent, i.e. the connection could not be made, or were
+ * turned away with a 429 status.
+ */
+public class RetryPolicy {
+
+    private int maxAttempts;
+    private long initialBackoffNanos;
+    private long maxBackoffNanos;
+    private double backoffMultiplier;
+    private Set<Integer> retryStatuses;
+    private double budgetRatio;
+    private int maxBurst;
+    private boolean retryNonIdempotent;
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialBackoffNanos() {
+        return initialBackoffNanos;
+    }
+
+    public long getMaxBackoffNanos() {
+        return maxBackoffNanos;
+    }
+
+    public double getBackoffMultiplier() {
+        return backoffMultiplier;
+    }
+
+    public Set<Integer> getRetryStatuses() {
+        return retryStatuses;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public int getMaxBurst() {
+        return maxBurst;
+    }
+
+    public boolean isRetryNonIdempotent() {
+        return retryNonIdempotent;
+    }
+
+    public static RetryPolicyBuilder builder() {
+        return new RetryPolicyBuilder();
+    }
+
+    public static final class RetryPolicyBuilder {
+        private int maxAttempts = 3;
+        private long initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(25);
+        private long maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(500);
+        private double backoffMultiplier = 2.0;
+        private Set<Integer> retryStatuses = new HashSet<>(Arrays.asList(429, 502, 503, 504));
+        private double budgetRatio = 0.1;
+        private int maxBurst = 10;
+        private boolean retryNonIdempotent = false;
+
+        private RetryPolicyBuilder() {
+        }
+
+        /**
+         * Total number of attempts, including the first one.
+         */
+        public RetryPolicyBuilder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public RetryPolicyBuilder initialBackoff(long initialBackoff, TimeUnit unit) {
+            this.initialBackoffNanos = unit.toNanos(initialBackoff);
+            return this;
+        }
+
+        public RetryPolicyBuilder maxBackoff(long maxBackoff, TimeUnit unit) {
+            this.maxBackoffNanos = unit.toNanos(maxBackoff);
+            return this;
+        }
+
+        public RetryPolicyBuilder backoffMultiplier(double backoffMultiplier) {
+            this.backoffMultiplier = backoffMultiplier;
+            return this;
+        }
+
+        public RetryPolicyBuilder retryStatuses(Integer... retryStatuses) {
+            this.retryStatuses = new HashSet<>(Arrays.asList(retryStatuses));
+            return this;
+        }
+
+        public RetryPolicyBuilder budgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+            return this;
+        }
+
+        public RetryPolicyBuilder maxBurst(int maxBurst) {
+            this.maxBurst = maxBurst;
+            return this;
+        }
+
+        public RetryPolicyBuilder retryNonIdempotent(boolean retryNonIdempotent) {
+            this.retryNonIdempotent = retryNonIdempotent;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("max attempts must be positive");
+            }
+            if (backoffMultiplier < 1) {
+                throw new IllegalArgumentException("backoff multiplier must be at least 1");
+            }
+            if (budgetRatio < 0 || budgetRatio > 1) {
+                throw new IllegalArgumentException("budget ratio must be in [0, 1]");
+            }
+            RetryPolicy policy = new RetryPolicy();
+            policy.maxAttempts = this.maxAttempts;
+            policy.initialBackoffNanos = this.initialBackoffNanos;
+            policy.maxBackoffNanos = Math.max(this.initialBackoffNanos, this.maxBackoffNanos);
+            policy.backoffMultiplier = this.backoffMultiplier;
+            policy.retryStatuses = Collections.unmodifiableSet(new HashSet<>(this.retryStatuses));
+            policy.budgetRatio = this.budgetRatio;
+            policy.maxBurst = this.maxBurst;
+            policy.retryNonIdempotent = this.retryNonIdempotent;
+            return policy;
+        }
+    }
+
+}
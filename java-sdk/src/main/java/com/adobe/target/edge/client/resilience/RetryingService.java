@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.service.TargetService;
+import com.adobe.target.edge.client.utils.CollectionUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Retries getOffers calls and notifications under their own {@link RetryPolicy}. Either policy may be
+ * absent, in which case those calls are passed through untouched.
+ */
+public class RetryingService implements TargetService {
+
+    public static final String OFFERS = "offers";
+    public static final String NOTIFICATIONS = "notifications";
+
+    private final TargetService targetService;
+    private final ScheduledExecutorService scheduler;
+    private final Retrier offers;
+    private final Retrier notifications;
+
+    public RetryingService(ClientConfig clientConfig, TargetService targetService) {
+        this.targetService = targetService;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "target-retry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.offers = retrier(clientConfig.getOffersRetryPolicy(), clientConfig, OFFERS);
+        this.notifications = retrier(clientConfig.getNotificationsRetryPolicy(), clientConfig, NOTIFICATIONS);
+    }
+
+    @Override
+    public TargetDeliveryResponse executeRequest(TargetDeliveryRequest deliveryRequest) {
+        if (offers == null) {
+            return targetService.executeRequest(deliveryRequest);
+        }
+        return offers.execute(deliveryRequest, () -> targetService.executeRequest(deliveryRequest),
+                TargetDeliveryResponse::getStatus, isIdempotent(deliveryRequest.getDeliveryRequest()));
+    }
+
+    @Override
+    public CompletableFuture<TargetDeliveryResponse> executeRequestAsync(TargetDeliveryRequest deliveryRequest) {
+        if (offers == null) {
+            return targetService.executeRequestAsync(deliveryRequest);
+        }
+        return offers.executeAsync(deliveryRequest, () -> targetService.executeRequestAsync(deliveryRequest),
+                TargetDeliveryResponse::getStatus, isIdempotent(deliveryRequest.getDeliveryRequest()));
+    }
+
+    @Override
+    public ResponseStatus executeNotification(TargetDeliveryRequest deliveryRequest) {
+        if (notifications == null) {
+            return targetService.executeNotification(deliveryRequest);
+        }
+        return notifications.execute(deliveryRequest, () -> targetService.executeNotification(deliveryRequest),
+                ResponseStatus::getStatus, false);
+    }
+
+    @Override
+    public CompletableFuture<ResponseStatus> executeNotificationAsync(TargetDeliveryRequest deliveryRequest) {
+        if (notifications == null) {
+            return targetService.executeNotificationAsync(deliveryRequest);
+        }
+        return notifications.executeAsync(deliveryRequest,
+                () -> targetService.executeNotificationAsync(deliveryRequest), ResponseStatus::getStatus, false);
+    }
+
+    @Override
+    public void close() throws Exception {
+        scheduler.shutdownNow();
+        targetService.close();
+    }
+
+    private Retrier retrier(RetryPolicy policy, ClientConfig clientConfig, String callType) {
+        return policy == null ? null : new Retrier(policy, scheduler, clientConfig.getMetricsRegistry(), callType);
+    }
+
+    /**
+     * Requests the edge does not log anything for, i.e. prefetch only, can be replayed safely.
+     */
+    private static boolean isIdempotent(DeliveryRequest request) {
+        if (!CollectionUtils.isEmpty(request.getNotifications())) {
+            return false;
+        }
+        ExecuteRequest execute = request.getExecute();
+        return execute == null || (execute.getPageLoad() == null && CollectionUtils.isEmpty(execute.getMboxes()));
+    }
+
+}
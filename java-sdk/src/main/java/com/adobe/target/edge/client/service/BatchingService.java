@@ -0,0 +1,463 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.delivery.v1.model.ExecuteResponse;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.MboxResponse;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.tracing.TraceContext;
+import com.adobe.target.edge.client.utils.CollectionUtils;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.adobe.target.edge.client.utils.FutureUtils.onCancel;
+import static com.adobe.target.edge.client.utils.StringUtils.isEmpty;
+
+/**
+ * Merges the execute mboxes of getOffersAsync calls made for the same session within a short window into a
+ * single delivery request, and hands each caller the {@link MboxResponse}s of its own mboxes. Calls are only
+ * merged when the rest of their requests, apart from the request id, are the same.
+ *
+ * <p>A batch is sent when its window ends or once it holds {@code batchMaxMboxes} mboxes. Mboxes are
+ * renumbered in the merged request and get their own indexes back in the responses. Requests with page loads,
+ * prefetches, notifications or a deadline, and blocking calls, are sent on their own.
+ *
+ * <p>Only calls of the same trace are merged. The merged call carries the trace context and build time of
+ * the first caller, so its span is a child of that caller's context and its queue time includes the window;
+ * the other callers' spans are not linked to it. Each caller gets a response for its own request.
+ *
+ * <p>Batches whose window ends are sent by a pool of {@code target-batch-sender} threads, so that the single
+ * {@code target-batching-timer} thread only keeps time. Full batches are sent by the caller that filled them.
+ *
+ * <p>{@link #close()} sends the open batches and waits, up to the socket timeout, for batched calls to
+ * complete before closing the services below; callers of calls still running after that are failed.
+ */
+public class BatchingService implements TargetService {
+
+    public static final String OFFERS_BATCHED = "offers.batched";
+    private static final Logger logger = LoggerFactory.getLogger(BatchingService.class);
+    private static final String REQUEST_ID = "requestId";
+    private static final String EXECUTE = "execute";
+
+    private final TargetService targetService;
+    private final TargetMetricsRegistry metricsRegistry;
+    private final long windowNanos;
+    private final int maxMboxes;
+    private final ObjectMapper keyMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private final ConcurrentMap<String, Batch> batches = new ConcurrentHashMap<>();
+    private final Set<Batch> sending = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    private final Executor sender;
+    private final long closeTimeoutMillis;
+
+    public BatchingService(ClientConfig clientConfig, TargetService targetService) {
+        this(clientConfig, targetService, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "target-batching-timer");
+            thread.setDaemon(true);
+            return thread;
+        }), newSender());
+    }
+
+    /**
+     * @param scheduler ends batch windows
+     * @param sender sends the batches whose window ended
+     */
+    BatchingService(ClientConfig clientConfig, TargetService targetService, ScheduledExecutorService scheduler,
+                    Executor sender) {
+        this.targetService = targetService;
+        this.metricsRegistry = clientConfig.getMetricsRegistry();
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(clientConfig.getBatchWindow());
+        this.maxMboxes = clientConfig.getBatchMaxMboxes();
+        this.closeTimeoutMillis = clientConfig.getSocketTimeout();
+        this.scheduler = scheduler;
+        this.sender = sender;
+    }
+
+    private static ExecutorService newSender() {
+        AtomicInteger threads = new AtomicInteger();
+        int size = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor sender = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "target-batch-sender-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        sender.allowCoreThreadTimeOut(true);
+        return sender;
+    }
+
+    @Override
+    public TargetDeliveryResponse executeRequest(TargetDeliveryRequest deliveryRequest) {
+        return targetService.executeRequest(deliveryRequest);
+    }
+
+    @Override
+    public CompletableFuture<TargetDeliveryResponse> executeRequestAsync(TargetDeliveryRequest deliveryRequest) {
+        String key = key(deliveryRequest);
+        if (key == null) {
+            return targetService.executeRequestAsync(deliveryRequest);
+        }
+        Caller caller = new Caller(deliveryRequest);
+        while (true) {
+            Batch batch = batches.get(key);
+            if (batch == null) {
+                Batch opened = new Batch(key);
+                opened.add(caller);
+                if (batches.putIfAbsent(key, opened) != null) {
+                    continue;
+                }
+                opened.timer = scheduler.schedule(() -> endWindow(opened), windowNanos, TimeUnit.NANOSECONDS);
+                batch = opened;
+            } else if (!batch.add(caller)) {
+                batches.remove(key, batch);
+                continue;
+            }
+            if (batch.isFull(maxMboxes)) {
+                send(batch);
+            }
+            return await(batch, caller);
+        }
+    }
+
+    @Override
+    public ResponseStatus executeNotification(TargetDeliveryRequest deliveryRequest) {
+        return targetService.executeNotification(deliveryRequest);
+    }
+
+    @Override
+    public CompletableFuture<ResponseStatus> executeNotificationAsync(TargetDeliveryRequest deliveryRequest) {
+        return targetService.executeNotificationAsync(deliveryRequest);
+    }
+
+    @Override
+    public void close() throws Exception {
+        scheduler.shutdownNow();
+        if (sender instanceof ExecutorService) {
+            // lets sends already handed over dispatch their calls, so that they are waited for below
+            ExecutorService senders = (ExecutorService) sender;
+            senders.shutdown();
+            senders.awaitTermination(closeTimeoutMillis > 0 ? closeTimeoutMillis : Long.MAX_VALUE,
+                    TimeUnit.MILLISECONDS);
+        }
+        batches.values().forEach(this::send);
+        CompletableFuture<?>[] calls = sending.stream().map(batch -> batch.delivered)
+                .toArray(CompletableFuture[]::new);
+        try {
+            if (closeTimeoutMillis > 0) {
+                CompletableFuture.allOf(calls).get(closeTimeoutMillis, TimeUnit.MILLISECONDS);
+            } else {
+                CompletableFuture.allOf(calls).get();
+            }
+        } catch (ExecutionException e) {
+            // failed calls have been reported to their callers
+        } catch (TimeoutException e) {
+            logger.debug("Closing with {} batched calls still running", sending.size());
+        } finally {
+            targetService.close();
+            TargetClientException closed = new TargetClientException("Client closed before the batched call completed");
+            sending.forEach(batch -> batch.fail(closed));
+        }
+    }
+
+    /**
+     * Returns the key of the batch the request can join, or null when it is sent on its own.
+     */
+    private String key(TargetDeliveryRequest deliveryRequest) {
+        DeliveryRequest request = deliveryRequest.getDeliveryRequest();
+        ExecuteRequest execute = request.getExecute();
+        if (execute == null || CollectionUtils.isEmpty(execute.getMboxes()) || execute.getPageLoad() != null
+                || request.getPrefetch() != null || !CollectionUtils.isEmpty(request.getNotifications())
+                || deliveryRequest.hasDeadline() || isEmpty(deliveryRequest.getSessionId())) {
+            return null;
+        }
+        try {
+            ObjectNode body = keyMapper.valueToTree(request);
+            body.remove(REQUEST_ID);
+            body.remove(EXECUTE);
+            TraceContext traceContext = deliveryRequest.getTraceContext();
+            return deliveryRequest.getSessionId() + '|' + deliveryRequest.getLocationHint() + '|'
+                    + (traceContext == null ? "" : traceContext.getTraceId()) + '|'
+                    + keyMapper.writeValueAsString(body);
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            logger.debug("Not batching request: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private CompletableFuture<TargetDeliveryResponse> await(Batch batch, Caller caller) {
+        return onCancel(caller.result, () -> batch.cancel(caller));
+    }
+
+    private void endWindow(Batch batch) {
+        try {
+            sender.execute(() -> send(batch));
+        } catch (RejectedExecutionException e) {
+            send(batch);
+        }
+    }
+
+    private void send(Batch batch) {
+        List<Caller> callers = batch.close();
+        if (callers == null) {
+            return;
+        }
+        batches.remove(batch.key, batch);
+        Future<?> timer = batch.timer;
+        if (timer != null) {
+            timer.cancel(false);
+        }
+        if (callers.isEmpty()) {
+            return;
+        }
+        if (callers.size() == 1) {
+            Caller caller = callers.get(0);
+            CompletableFuture<TargetDeliveryResponse> call = call(caller.request);
+            batch.setCall(call);
+            track(batch, call.whenComplete((response, throwable) -> {
+                if (throwable == null) {
+                    caller.result.complete(response);
+                } else {
+                    caller.result.completeExceptionally(unwrap(throwable));
+                }
+            }));
+            return;
+        }
+        if (metricsRegistry != null) {
+            for (int i = 1; i < callers.size(); i++) {
+                metricsRegistry.incrementCounter(OFFERS_BATCHED);
+            }
+        }
+        Map<Integer, Caller> owners = new HashMap<>();
+        Map<Integer, Integer> indexes = new HashMap<>();
+        List<MboxRequest> mboxes = new ArrayList<>(batch.mboxCount);
+        for (Caller caller : callers) {
+            for (MboxRequest mbox : caller.request.getDeliveryRequest().getExecute().getMboxes()) {
+                int index = mboxes.size() + 1;
+                owners.put(index, caller);
+                indexes.put(index, mbox.getIndex());
+                mboxes.add(reindex(mbox, index));
+            }
+        }
+        TargetDeliveryRequest first = callers.get(0).request;
+        TargetDeliveryRequest merged = first.withDeliveryRequest(
+                copy(first.getDeliveryRequest(), new ExecuteRequest().mboxes(mboxes)));
+        logger.debug("Sending {} mboxes of {} calls in one request", mboxes.size(), callers.size());
+        CompletableFuture<TargetDeliveryResponse> call = call(merged);
+        batch.setCall(call);
+        track(batch, call.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                Throwable error = unwrap(throwable);
+                callers.forEach(caller -> caller.result.completeExceptionally(error));
+                return;
+            }
+            Map<Caller, List<MboxResponse>> split = split(response.getResponse(), owners, indexes);
+            for (Caller caller : callers) {
+                caller.result.complete(forCaller(caller, response, split.get(caller)));
+            }
+        }));
+    }
+
+    /**
+     * Keeps the batch in {@link #sending} until its callers have been completed.
+     */
+    private void track(Batch batch, CompletableFuture<?> delivered) {
+        batch.delivered = delivered;
+        sending.add(batch);
+        delivered.whenComplete((response, throwable) -> sending.remove(batch));
+    }
+
+    private CompletableFuture<TargetDeliveryResponse> call(TargetDeliveryRequest deliveryRequest) {
+        try {
+            return targetService.executeRequestAsync(deliveryRequest);
+        } catch (RuntimeException e) {
+            CompletableFuture<TargetDeliveryResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private static Map<Caller, List<MboxResponse>> split(DeliveryResponse response, Map<Integer, Caller> owners,
+                                                         Map<Integer, Integer> indexes) {
+        Map<Caller, List<MboxResponse>> split = new HashMap<>();
+        if (response == null || response.getExecute() == null || response.getExecute().getMboxes() == null) {
+            return split;
+        }
+        for (MboxResponse mbox : response.getExecute().getMboxes()) {
+            Caller owner = owners.get(mbox.getIndex());
+            if (owner == null) {
+                continue;
+            }
+            mbox.setIndex(indexes.get(mbox.getIndex()));
+            split.computeIfAbsent(owner, k -> new ArrayList<>()).add(mbox);
+        }
+        return split;
+    }
+
+    private static TargetDeliveryResponse forCaller(Caller caller, TargetDeliveryResponse merged,
+                                                    List<MboxResponse> mboxes) {
+        DeliveryResponse response = merged.getResponse();
+        DeliveryResponse own = null;
+        if (response != null) {
+            own = new DeliveryResponse()
+                    .status(response.getStatus())
+                    .requestId(caller.request.getDeliveryRequest().getRequestId())
+                    .id(response.getId())
+                    .client(response.getClient())
+                    .edgeHost(response.getEdgeHost());
+            if (response.getExecute() != null) {
+                own.execute(new ExecuteResponse().mboxes(mboxes == null ? new ArrayList<>() : mboxes));
+            }
+        }
+        return new TargetDeliveryResponse(caller.request, own, merged.getStatus(), merged.getMessage(),
+                merged.getPhaseTimings());
+    }
+
+    private static MboxRequest reindex(MboxRequest mbox, int index) {
+        MboxRequest copy = new MboxRequest().index(index).name(mbox.getName());
+        copy.setAddress(mbox.getAddress());
+        copy.setParameters(mbox.getParameters());
+        copy.setProfileParameters(mbox.getProfileParameters());
+        copy.setOrder(mbox.getOrder());
+        copy.setProduct(mbox.getProduct());
+        return copy;
+    }
+
+    private static DeliveryRequest copy(DeliveryRequest request, ExecuteRequest execute) {
+        return new DeliveryRequest()
+                .requestId(request.getRequestId())
+                .impressionId(request.getImpressionId())
+                .id(request.getId())
+                .environmentId(request.getEnvironmentId())
+                .property(request.getProperty())
+                .trace(request.getTrace())
+                .context(request.getContext())
+                .experienceCloud(request.getExperienceCloud())
+                .execute(execute)
+                .qaMode(request.getQaMode());
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+    }
+
+    private static final class Caller {
+
+        private final TargetDeliveryRequest request;
+        private final CompletableFuture<TargetDeliveryResponse> result = new CompletableFuture<>();
+
+        private Caller(TargetDeliveryRequest request) {
+            this.request = request;
+        }
+    }
+
+    /**
+     * Calls collected for one session during a window. Callers that cancel before the batch is sent are
+     * left out of it; the merged call is cancelled once every caller has cancelled.
+     */
+    private static final class Batch {
+
+        private final String key;
+        private final List<Caller> callers = new ArrayList<>();
+        private volatile Future<?> timer;
+        private volatile CompletableFuture<?> delivered;
+        private Future<?> call;
+        private boolean closed;
+        private int mboxCount;
+        private int waiting;
+
+        private Batch(String key) {
+            this.key = key;
+        }
+
+        private synchronized boolean add(Caller caller) {
+            if (closed) {
+                return false;
+            }
+            callers.add(caller);
+            mboxCount += caller.request.getDeliveryRequest().getExecute().getMboxes().size();
+            waiting++;
+            return true;
+        }
+
+        private synchronized boolean isFull(int maxMboxes) {
+            return mboxCount >= maxMboxes;
+        }
+
+        /**
+         * Returns the callers to send, or null if the batch has already been sent.
+         */
+        private synchronized List<Caller> close() {
+            if (closed) {
+                return null;
+            }
+            closed = true;
+            return new ArrayList<>(callers);
+        }
+
+        private synchronized void setCall(Future<?> call) {
+            this.call = call;
+            if (waiting == 0) {
+                call.cancel(true);
+            }
+        }
+
+        private synchronized void cancel(Caller caller) {
+            if (!closed) {
+                callers.remove(caller);
+                mboxCount -= caller.request.getDeliveryRequest().getExecute().getMboxes().size();
+            }
+            if (--waiting == 0 && call != null) {
+                call.cancel(true);
+            }
+        }
+
+        private synchronized void fail(Throwable error) {
+            callers.forEach(caller -> caller.result.completeExceptionally(error));
+        }
+    }
+}
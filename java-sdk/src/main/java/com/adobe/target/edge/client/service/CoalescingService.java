@@ -0,0 +1,252 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.utils.CollectionUtils;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+
+import static com.adobe.target.edge.client.utils.FutureUtils.onCancel;
+
+/**
+ * Shares a single call among identical getOffers requests in flight at the same time, e.g. the prefetch
+ * calls of several fragments of one page. Requests are identical when they have the same session, location
+ * hint and request body apart from the request id. Every caller gets a response wrapping its own request,
+ * with a copy of the shared delivery response carrying its own request id.
+ *
+ * <p>Only prefetch requests are coalesced, since the edge logs impressions for execute mboxes and page loads.
+ * Requests with a deadline are sent on their own. The shared call is cancelled once every caller waiting for
+ * it has cancelled.
+ */
+public class CoalescingService implements TargetService {
+
+    public static final String OFFERS_COALESCED = "offers.coalesced";
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingService.class);
+    private static final String REQUEST_ID = "requestId";
+
+    private final TargetService targetService;
+    private final TargetMetricsRegistry metricsRegistry;
+    private final ObjectMapper keyMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    public CoalescingService(ClientConfig clientConfig, TargetService targetService) {
+        this.targetService = targetService;
+        this.metricsRegistry = clientConfig.getMetricsRegistry();
+    }
+
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    @Override
+    public TargetDeliveryResponse executeRequest(TargetDeliveryRequest deliveryRequest) {
+        String key = key(deliveryRequest);
+        if (key == null) {
+            return targetService.executeRequest(deliveryRequest);
+        }
+        Flight flight = new Flight();
+        Flight existing = flights.putIfAbsent(key, flight);
+        if (existing != null && existing.join()) {
+            coalesced();
+            return forRequest(deliveryRequest, join(existing.result));
+        }
+        if (existing != null) {
+            return targetService.executeRequest(deliveryRequest);
+        }
+        TargetDeliveryResponse response;
+        try {
+            response = targetService.executeRequest(deliveryRequest);
+        } catch (Throwable e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        flights.remove(key, flight);
+        flight.result.complete(response);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<TargetDeliveryResponse> executeRequestAsync(TargetDeliveryRequest deliveryRequest) {
+        String key = key(deliveryRequest);
+        if (key == null) {
+            return targetService.executeRequestAsync(deliveryRequest);
+        }
+        Flight flight = new Flight();
+        Flight existing = flights.putIfAbsent(key, flight);
+        if (existing != null && existing.join()) {
+            coalesced();
+            return await(key, existing, deliveryRequest);
+        }
+        if (existing != null) {
+            return targetService.executeRequestAsync(deliveryRequest);
+        }
+        CompletableFuture<TargetDeliveryResponse> call;
+        try {
+            call = targetService.executeRequestAsync(deliveryRequest);
+        } catch (Throwable e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        flight.call = call;
+        call.whenComplete((response, throwable) -> {
+            flights.remove(key, flight);
+            if (throwable == null) {
+                flight.result.complete(response);
+            } else {
+                flight.result.completeExceptionally(unwrap(throwable));
+            }
+        });
+        return await(key, flight, deliveryRequest);
+    }
+
+    @Override
+    public ResponseStatus executeNotification(TargetDeliveryRequest deliveryRequest) {
+        return targetService.executeNotification(deliveryRequest);
+    }
+
+    @Override
+    public CompletableFuture<ResponseStatus> executeNotificationAsync(TargetDeliveryRequest deliveryRequest) {
+        return targetService.executeNotificationAsync(deliveryRequest);
+    }
+
+    @Override
+    public void close() throws Exception {
+        targetService.close();
+    }
+
+    /**
+     * Returns the key identical requests share, or null when the request is not coalesced.
+     */
+    private String key(TargetDeliveryRequest deliveryRequest) {
+        DeliveryRequest request = deliveryRequest.getDeliveryRequest();
+        if (request.getPrefetch() == null || request.getExecute() != null
+                || !CollectionUtils.isEmpty(request.getNotifications()) || deliveryRequest.hasDeadline()) {
+            return null;
+        }
+        try {
+            ObjectNode body = keyMapper.valueToTree(request);
+            body.remove(REQUEST_ID);
+            return deliveryRequest.getSessionId() + '|' + deliveryRequest.getLocationHint() + '|'
+                    + keyMapper.writeValueAsString(body);
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            logger.debug("Not coalescing request: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the caller's view of the shared call. Cancelling it only cancels the shared call once no
+     * other caller is waiting for it.
+     */
+    private CompletableFuture<TargetDeliveryResponse> await(String key, Flight flight,
+                                                            TargetDeliveryRequest deliveryRequest) {
+        CompletableFuture<TargetDeliveryResponse> waiter = flight.result.thenApply(response ->
+                forRequest(deliveryRequest, response));
+        return onCancel(waiter, () -> {
+            if (flight.leave()) {
+                flights.remove(key, flight);
+                Future<?> call = flight.call;
+                if (call != null) {
+                    call.cancel(true);
+                }
+            }
+        });
+    }
+
+    private void coalesced() {
+        if (metricsRegistry != null) {
+            metricsRegistry.incrementCounter(OFFERS_COALESCED);
+        }
+    }
+
+    private static TargetDeliveryResponse forRequest(TargetDeliveryRequest deliveryRequest,
+                                                     TargetDeliveryResponse response) {
+        DeliveryResponse shared = response.getResponse();
+        DeliveryResponse own = shared == null ? null : new DeliveryResponse()
+                .status(shared.getStatus())
+                .requestId(deliveryRequest.getDeliveryRequest().getRequestId())
+                .id(shared.getId())
+                .client(shared.getClient())
+                .edgeHost(shared.getEdgeHost())
+                .execute(shared.getExecute())
+                .prefetch(shared.getPrefetch());
+        return new TargetDeliveryResponse(deliveryRequest, own, response.getStatus(), response.getMessage(),
+                response.getPhaseTimings());
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+    }
+
+    /**
+     * A shared call and the number of callers waiting for it. A flight every caller has left is abandoned,
+     * and later identical requests no longer join it.
+     */
+    private static final class Flight {
+
+        private final CompletableFuture<TargetDeliveryResponse> result = new CompletableFuture<>();
+        private volatile Future<?> call;
+        private int waiters = 1;
+        private boolean abandoned;
+
+        private synchronized boolean join() {
+            if (abandoned) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        private synchronized boolean leave() {
+            if (--waiters == 0 && !result.isDone()) {
+                abandoned = true;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+/**
+ * Thrown when a call does not complete before the deadline set on its request.
+ */
+public class DeadlineExceededException extends TargetClientException {
+
+    private final boolean dispatched;
+
+    public DeadlineExceededException(String message) {
+        this(message, null, false);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        this(message, cause, cause != null);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause, boolean dispatched) {
+        super(message, cause);
+        this.dispatched = dispatched;
+    }
+
+    /**
+     * Whether the call had been sent and was aborted on the wire, rather than given up before it was sent.
+     */
+    public boolean isDispatched() {
+        return dispatched;
+    }
+
+}
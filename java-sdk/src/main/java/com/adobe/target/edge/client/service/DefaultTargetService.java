@@ -11,23 +11,44 @@
  */
 package com.adobe.target.edge.client.service;
 
+import com.adobe.target.delivery.v1.model.Context;
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
 import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.Notification;
 import com.adobe.target.edge.client.ClientConfig;
 import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.http.TargetCallContext;
+import com.adobe.target.edge.client.metrics.CallRecord;
+import com.adobe.target.edge.client.metrics.CallType;
+import com.adobe.target.edge.client.metrics.PhaseTimings;
+import com.adobe.target.edge.client.metrics.SlowCallRecorder;
+import com.adobe.target.edge.client.metrics.TargetMetricKey;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
 import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.resilience.AdaptiveConcurrencyLimiter;
+import com.adobe.target.edge.client.resilience.RequestHedger;
+import com.adobe.target.edge.client.tracing.TargetSpan;
+import com.adobe.target.edge.client.tracing.TargetTracer;
+import com.adobe.target.edge.client.tracing.TraceContext;
 import com.adobe.target.edge.client.model.TargetDeliveryRequest;
 import com.adobe.target.edge.client.http.DefaultTargetHttpClient;
 import com.adobe.target.edge.client.http.TargetHttpClient;
 import kong.unirest.HttpResponse;
 import kong.unirest.UnirestParsingException;
+import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
+import static com.adobe.target.edge.client.utils.FutureUtils.onCancel;
 import static com.adobe.target.edge.client.utils.TargetConstants.SDK_VERSION;
 
 public class DefaultTargetService implements TargetService {
@@ -38,54 +59,326 @@ public class DefaultTargetService implements TargetService {
     public static final String SDK_VERSION_KEY = "X-EXC-SDK-Version";
     public static final String SESSION_ID = "sessionId";
     public static final String CLIENT = "client";
+    public static final String OFFERS_CANCELLED = "offers.cancelled";
+    public static final String NOTIFICATIONS_CANCELLED = "notifications.cancelled";
     private final TargetHttpClient targetHttpClient;
     private final ClientConfig clientConfig;
+    private final TargetMetricsRegistry metricsRegistry;
+    private final SlowCallRecorder slowCallRecorder;
+    private final TargetTracer tracer;
+    private final RequestHedger hedger;
 
     public DefaultTargetService(ClientConfig clientConfig) {
-        TargetHttpClient targetHttpClient = new DefaultTargetHttpClient(clientConfig);
-        if (clientConfig.isLogRequests()) {
-            this.targetHttpClient = TargetHttpClient.createLoggingHttpClient(targetHttpClient);
+        this.metricsRegistry = clientConfig.getMetricsRegistry();
+        AdaptiveConcurrencyLimiter limiter = clientConfig.getConcurrencyLimiter();
+        TargetHttpClient targetHttpClient;
+        if (clientConfig.isBulkheadsEnabled()) {
+            targetHttpClient = createBulkheadHttpClient(clientConfig, limiter);
         } else {
-            this.targetHttpClient = targetHttpClient;
+            targetHttpClient = new DefaultTargetHttpClient(clientConfig);
+        }
+        if (clientConfig.getTrafficRecorder() != null) {
+            targetHttpClient = TargetHttpClient.createRecordingHttpClient(targetHttpClient,
+                    clientConfig.getTrafficRecorder());
+        }
+        if (clientConfig.isLogRequests()) {
+            targetHttpClient = TargetHttpClient.createSampledLoggingHttpClient(targetHttpClient, clientConfig);
+        }
+        if (limiter != null) {
+            if (!clientConfig.isBulkheadsEnabled()) {
+                targetHttpClient = TargetHttpClient.createLimitingHttpClient(targetHttpClient, limiter,
+                        metricsRegistry);
+            }
+            if (metricsRegistry != null) {
+                limiter.registerMetrics(metricsRegistry);
+            }
         }
+        this.targetHttpClient = targetHttpClient;
         this.targetHttpClient.addDefaultHeader(SDK_USER_KEY, SDK_USER_VALUE);
         this.targetHttpClient.addDefaultHeader(SDK_VERSION_KEY, SDK_VERSION);
         this.clientConfig = clientConfig;
+        this.slowCallRecorder = clientConfig.getSlowCallRecorder();
+        this.tracer = clientConfig.getTracer();
+        this.hedger = clientConfig.getHedgingPolicy() == null ? null
+                : new RequestHedger(clientConfig.getHedgingPolicy(), metricsRegistry);
+    }
+
+    /**
+     * Gives getOffers calls and notifications separate pools. The concurrency limiter, which adapts to
+     * getOffers latencies, then only holds getOffers calls.
+     */
+    private TargetHttpClient createBulkheadHttpClient(ClientConfig clientConfig, AdaptiveConcurrencyLimiter limiter) {
+        TargetHttpClient offersClient = new DefaultTargetHttpClient(clientConfig, CallType.OFFERS,
+                clientConfig.getOffersBulkhead());
+        if (limiter != null) {
+            offersClient = TargetHttpClient.createLimitingHttpClient(offersClient, limiter, metricsRegistry);
+        }
+        TargetHttpClient notificationsClient = new DefaultTargetHttpClient(clientConfig, CallType.NOTIFICATIONS,
+                clientConfig.getNotificationsBulkhead());
+        return TargetHttpClient.createBulkheadHttpClient(offersClient, clientConfig.getOffersBulkhead(),
+                notificationsClient, clientConfig.getNotificationsBulkhead(), metricsRegistry);
     }
 
     @Override
     public TargetDeliveryResponse executeRequest(TargetDeliveryRequest deliveryRequest) {
+        if (isHedged(deliveryRequest)) {
+            return join(executeHedged(deliveryRequest));
+        }
         String url = clientConfig.getUrl(deliveryRequest.getLocationHint());
-        HttpResponse<DeliveryResponse> response = targetHttpClient.execute(getQueryParams(deliveryRequest),
-                url, deliveryRequest.getDeliveryRequest(), DeliveryResponse.class);
-        return getTargetDeliveryResponse(deliveryRequest, response);
+        String endpoint = TargetMetricKey.endpoint(deliveryRequest.getLocationHint());
+        TargetCallContext call = newCall(CallType.OFFERS, deliveryRequest);
+        HttpResponse<DeliveryResponse> response = timed(deliveryRequest, url, endpoint, call,
+                () -> targetHttpClient.execute(getQueryParams(deliveryRequest), url,
+                        deliveryRequest.getDeliveryRequest(), DeliveryResponse.class));
+        return getTargetDeliveryResponse(deliveryRequest, response, call);
     }
 
     @Override
     public CompletableFuture<TargetDeliveryResponse> executeRequestAsync(TargetDeliveryRequest deliveryRequest) {
-        String url = clientConfig.getUrl(deliveryRequest.getLocationHint());
+        if (isHedged(deliveryRequest)) {
+            return executeHedged(deliveryRequest);
+        }
+        return executeAsync(deliveryRequest, clientConfig.getUrl(deliveryRequest.getLocationHint()),
+                TargetMetricKey.endpoint(deliveryRequest.getLocationHint()));
+    }
+
+    private CompletableFuture<TargetDeliveryResponse> executeAsync(TargetDeliveryRequest deliveryRequest, String url,
+                                                                   String endpoint) {
+        TargetCallContext call = newCall(CallType.OFFERS, deliveryRequest);
         CompletableFuture<HttpResponse<DeliveryResponse>> responseCompletableFuture =
-                targetHttpClient.executeAsync(getQueryParams(deliveryRequest), url,
-                        deliveryRequest.getDeliveryRequest(), DeliveryResponse.class);
-        return responseCompletableFuture.thenApply(response -> getTargetDeliveryResponse(deliveryRequest, response));
+                timedAsync(deliveryRequest, url, endpoint, call,
+                        () -> targetHttpClient.executeAsync(getQueryParams(deliveryRequest), url,
+                                deliveryRequest.getDeliveryRequest(), DeliveryResponse.class));
+        return cancellable(call, responseCompletableFuture.thenApply(response ->
+                getTargetDeliveryResponse(deliveryRequest, response, call)));
+    }
+
+    private boolean isHedged(TargetDeliveryRequest deliveryRequest) {
+        return hedger != null && hedger.isHedgeable(deliveryRequest.getDeliveryRequest());
+    }
+
+    private CompletableFuture<TargetDeliveryResponse> executeHedged(TargetDeliveryRequest deliveryRequest) {
+        String url = clientConfig.getUrl(deliveryRequest.getLocationHint());
+        String endpoint = TargetMetricKey.endpoint(deliveryRequest.getLocationHint());
+        String hedgeUrl = hedger.hedgeUrl(url, clientConfig.getUrl(null));
+        String hedgeEndpoint = hedgeUrl.equals(url) ? endpoint : TargetMetricKey.DEFAULT_ENDPOINT;
+        return hedger.execute(hedge -> hedge ? executeAsync(deliveryRequest, hedgeUrl, hedgeEndpoint)
+                        : executeAsync(deliveryRequest, url, endpoint),
+                (response, throwable) -> throwable == null
+                        && response.getStatus() < HttpStatus.SC_INTERNAL_SERVER_ERROR);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
     }
 
     @Override
     public ResponseStatus executeNotification(TargetDeliveryRequest deliveryRequest) {
         String url = clientConfig.getUrl(deliveryRequest.getLocationHint());
-        HttpResponse<DeliveryResponse> response = targetHttpClient.execute(getQueryParams(deliveryRequest),
-                url, deliveryRequest.getDeliveryRequest(), DeliveryResponse.class);
+        String endpoint = TargetMetricKey.endpoint(deliveryRequest.getLocationHint());
+        TargetCallContext call = newCall(CallType.NOTIFICATIONS, deliveryRequest);
+        if (isBeacon(deliveryRequest)) {
+            HttpResponse<Void> response = timed(deliveryRequest, url, endpoint, call,
+                    () -> targetHttpClient.executeDiscardingBody(getQueryParams(deliveryRequest), url,
+                            deliveryRequest.getDeliveryRequest()));
+            return new ResponseStatus(response.getStatus(), response.getStatusText());
+        }
+        HttpResponse<DeliveryResponse> response = timed(deliveryRequest, url, endpoint, call,
+                () -> targetHttpClient.execute(getQueryParams(deliveryRequest), url,
+                        deliveryRequest.getDeliveryRequest(), DeliveryResponse.class));
         return new ResponseStatus(response.getStatus(), response.getStatusText());
     }
 
     @Override
     public CompletableFuture<ResponseStatus> executeNotificationAsync(TargetDeliveryRequest deliveryRequest) {
         String url = clientConfig.getUrl(deliveryRequest.getLocationHint());
+        String endpoint = TargetMetricKey.endpoint(deliveryRequest.getLocationHint());
+        TargetCallContext call = newCall(CallType.NOTIFICATIONS, deliveryRequest);
+        if (isBeacon(deliveryRequest)) {
+            return cancellable(call, timedAsync(deliveryRequest, url, endpoint, call,
+                    () -> targetHttpClient.executeDiscardingBodyAsync(getQueryParams(deliveryRequest), url,
+                            deliveryRequest.getDeliveryRequest()))
+                    .thenApply(response -> new ResponseStatus(response.getStatus(), response.getStatusText())));
+        }
         CompletableFuture<HttpResponse<DeliveryResponse>> responseCompletableFuture =
-                targetHttpClient.executeAsync(getQueryParams(deliveryRequest), url,
-                        deliveryRequest.getDeliveryRequest(), DeliveryResponse.class);
-        return responseCompletableFuture.thenApply(response -> new ResponseStatus(response.getStatus(),
-                response.getStatusText()));
+                timedAsync(deliveryRequest, url, endpoint, call,
+                        () -> targetHttpClient.executeAsync(getQueryParams(deliveryRequest), url,
+                                deliveryRequest.getDeliveryRequest(), DeliveryResponse.class));
+        return cancellable(call, responseCompletableFuture.thenApply(response ->
+                new ResponseStatus(response.getStatus(), response.getStatusText())));
+    }
+
+    /**
+     * Aborts the http exchange behind {@code future} when it is cancelled.
+     */
+    private <T> CompletableFuture<T> cancellable(TargetCallContext call, CompletableFuture<T> future) {
+        return onCancel(future, () -> {
+            call.cancel();
+            if (metricsRegistry != null) {
+                metricsRegistry.incrementCounter(call.getCallType() == CallType.OFFERS
+                        ? OFFERS_CANCELLED : NOTIFICATIONS_CANCELLED);
+            }
+        });
+    }
+
+    private <R> HttpResponse<R> timed(TargetDeliveryRequest deliveryRequest, String url, String endpoint,
+                                      TargetCallContext call, Supplier<HttpResponse<R>> dispatch) {
+        CallRecording recording = FlightRecorderEvents.beginDeliveryCall();
+        TargetSpan span = startSpan(deliveryRequest, url, call);
+        try {
+            if (call.isDeadlineExceeded()) {
+                throw new DeadlineExceededException("Deadline passed before calling " + url);
+            }
+            HttpResponse<R> response = call.dispatch(dispatch);
+            complete(deliveryRequest, url, endpoint, call, recording, span, response.getStatus(), null);
+            return response;
+        } catch (RuntimeException e) {
+            RuntimeException error = (RuntimeException) deadlineExceeded(url, call, e);
+            complete(deliveryRequest, url, endpoint, call, recording, span, 0, error);
+            throw error;
+        }
+    }
+
+    private <R> CompletableFuture<HttpResponse<R>> timedAsync(TargetDeliveryRequest deliveryRequest, String url,
+                                                              String endpoint, TargetCallContext call,
+                                                              Supplier<CompletableFuture<HttpResponse<R>>> dispatch) {
+        CallRecording recording = FlightRecorderEvents.beginDeliveryCall();
+        TargetSpan span = startSpan(deliveryRequest, url, call);
+        if (!call.hasDeadline()) {
+            return call.dispatch(dispatch).whenComplete((response, throwable) -> complete(deliveryRequest, url,
+                    endpoint, call, recording, span, response == null ? 0 : response.getStatus(), throwable));
+        }
+        CompletableFuture<HttpResponse<R>> result = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<R>> future;
+        if (call.isDeadlineExceeded()) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(new DeadlineExceededException("Deadline passed before calling " + url));
+        } else {
+            future = call.dispatch(dispatch);
+        }
+        future.whenComplete((response, throwable) -> {
+            Throwable error = throwable == null ? null : deadlineExceeded(url, call, unwrap(throwable));
+            complete(deliveryRequest, url, endpoint, call, recording, span,
+                    response == null ? 0 : response.getStatus(), error);
+            if (error == null) {
+                result.complete(response);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    private static TargetCallContext newCall(CallType callType, TargetDeliveryRequest deliveryRequest) {
+        TargetCallContext call = new TargetCallContext(callType, deliveryRequest.getBuildNanos());
+        if (deliveryRequest.hasDeadline()) {
+            call.setDeadlineNanos(deliveryRequest.getDeadlineNanos());
+        }
+        return call;
+    }
+
+    /**
+     * Reports failures of calls that ran out of time, typically aborted by the transport, as such.
+     */
+    private static Throwable deadlineExceeded(String url, TargetCallContext call, Throwable error) {
+        if (error instanceof DeadlineExceededException || !call.isDeadlineExceeded()) {
+            return error;
+        }
+        return new DeadlineExceededException("Deadline exceeded calling " + url, error, true);
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+    }
+
+    private TargetSpan startSpan(TargetDeliveryRequest deliveryRequest, String url, TargetCallContext call) {
+        TraceContext parent = deliveryRequest.getTraceContext();
+        TargetSpan span = tracer == null ? null : tracer.startSpan(call.getCallType(), url, parent);
+        if (span != null) {
+            call.setTraceContext(span.getContext());
+        } else if (parent != null) {
+            call.setTraceContext(parent.newChild());
+        }
+        return span;
+    }
+
+    private void complete(TargetDeliveryRequest deliveryRequest, String url, String endpoint, TargetCallContext call,
+                          CallRecording recording, TargetSpan span, int status, Throwable error) {
+        call.complete();
+        boolean captured = slowCallRecorder != null && !call.isCancelled()
+                && (SlowCallRecorder.isFailed(status) || slowCallRecorder.isSlow(call.getElapsedNanos()));
+        if (metricsRegistry == null && recording == null && span == null && !captured) {
+            return;
+        }
+        // each attempt of a hedged call is labelled with the endpoint it was sent to, and the attempt cancelled
+        // because the other one won is counted as cancelled, not as an error
+        PhaseTimings timings = call.getPhaseTimings();
+        if (metricsRegistry != null && !call.isCancelled()) {
+            metricsRegistry.recordLatency(endpoint, call.getCallType(), status, call.getElapsedNanos());
+            metricsRegistry.recordPhases(endpoint, call.getCallType(), timings);
+        }
+        if (recording != null) {
+            recording.commit(url, endpoint, call.getCallType(), status,
+                    mboxCount(deliveryRequest.getDeliveryRequest()), timings);
+        }
+        if (span != null) {
+            span.end(status, error, timings);
+        }
+        if (captured) {
+            DeliveryRequest request = deliveryRequest.getDeliveryRequest();
+            slowCallRecorder.record(new CallRecord(System.currentTimeMillis(), call.getCallType(), endpoint, url,
+                    status, error == null ? null : error.toString(), request.getRequestId(),
+                    deliveryRequest.getSessionId(), mboxNames(request), timings));
+        }
+    }
+
+    private static List<String> mboxNames(DeliveryRequest request) {
+        List<String> names = new ArrayList<>();
+        if (request.getExecute() != null && request.getExecute().getMboxes() != null) {
+            request.getExecute().getMboxes().forEach(mbox -> names.add(mbox.getName()));
+        }
+        if (request.getPrefetch() != null && request.getPrefetch().getMboxes() != null) {
+            request.getPrefetch().getMboxes().forEach(mbox -> names.add(mbox.getName()));
+        }
+        if (request.getNotifications() != null) {
+            for (Notification notification : request.getNotifications()) {
+                if (notification.getMbox() != null) {
+                    names.add(notification.getMbox().getName());
+                }
+            }
+        }
+        return names;
+    }
+
+    private static int mboxCount(DeliveryRequest request) {
+        int count = 0;
+        if (request.getExecute() != null && request.getExecute().getMboxes() != null) {
+            count += request.getExecute().getMboxes().size();
+        }
+        if (request.getPrefetch() != null && request.getPrefetch().getMboxes() != null) {
+            count += request.getPrefetch().getMboxes().size();
+        }
+        if (request.getNotifications() != null) {
+            for (Notification notification : request.getNotifications()) {
+                if (notification.getMbox() != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private boolean isBeacon(TargetDeliveryRequest deliveryRequest) {
+        Context context = deliveryRequest.getDeliveryRequest().getContext();
+        return context != null && Boolean.TRUE.equals(context.getBeacon());
     }
 
     private Map<String, Object> getQueryParams(TargetDeliveryRequest deliveryRequest) {
@@ -96,18 +389,25 @@ public class DefaultTargetService implements TargetService {
     }
 
     private TargetDeliveryResponse getTargetDeliveryResponse(TargetDeliveryRequest deliveryRequest,
-                                                             HttpResponse<DeliveryResponse> response) {
+                                                             HttpResponse<DeliveryResponse> response,
+                                                             TargetCallContext call) {
         DeliveryResponse deliveryResponse = response.getBody();
         if (deliveryResponse == null) {
             Optional<UnirestParsingException> parsingError = response.getParsingError();
             logger.error("Error parsing delivery response: {}", parsingError.get().getOriginalBody());
         }
         return new TargetDeliveryResponse(deliveryRequest, deliveryResponse, response.getStatus(),
-                response.getStatusText());
+                response.getStatusText(), call.getPhaseTimings());
     }
 
     @Override
     public void close() throws Exception {
+        if (hedger != null) {
+            hedger.close();
+        }
+        if (clientConfig.getConcurrencyLimiter() != null && metricsRegistry != null) {
+            clientConfig.getConcurrencyLimiter().unregisterMetrics(metricsRegistry);
+        }
         targetHttpClient.close();
     }
 
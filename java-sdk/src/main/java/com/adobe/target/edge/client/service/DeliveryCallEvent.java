@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+import com.adobe.target.edge.client.metrics.CallType;
+import com.adobe.target.edge.client.metrics.Phase;
+import com.adobe.target.edge.client.metrics.PhaseTimings;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.adobe.target.DeliveryCall")
+@Label("Target Delivery Call")
+@Description("A getOffers or sendNotifications call to Adobe Target")
+@Category({"Adobe Target"})
+@StackTrace(false)
+class DeliveryCallEvent extends Event implements CallRecording {
+
+    @Label("URL")
+    String url;
+
+    @Label("Endpoint")
+    @Description("default, or mboxedge<hint> when the call was routed to an edge cluster")
+    String endpoint;
+
+    @Label("Call Type")
+    String callType;
+
+    @Label("Status")
+    @Description("HTTP status, 0 when no response was received")
+    int status;
+
+    @Label("Mbox Count")
+    int mboxCount;
+
+    @Label("Request Size")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Build")
+    @Timespan
+    long buildNanos;
+
+    @Label("Serialize")
+    @Timespan
+    long serializeNanos;
+
+    @Label("Pool Lease")
+    @Timespan
+    long poolLeaseNanos;
+
+    @Label("Time To First Byte")
+    @Timespan
+    long timeToFirstByteNanos;
+
+    @Label("Body Read")
+    @Timespan
+    long bodyReadNanos;
+
+    @Label("Deserialize")
+    @Timespan
+    long deserializeNanos;
+
+    static CallRecording beginIfEnabled() {
+        DeliveryCallEvent event = new DeliveryCallEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commit(String url, String endpoint, CallType callType, int status, int mboxCount,
+                       PhaseTimings timings) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        this.url = url;
+        this.endpoint = endpoint;
+        this.callType = callType.name();
+        this.status = status;
+        this.mboxCount = mboxCount;
+        this.requestBytes = timings.getRequestBytes();
+        this.responseBytes = timings.getResponseBytes();
+        this.buildNanos = timings.getNanos(Phase.BUILD);
+        this.serializeNanos = timings.getNanos(Phase.SERIALIZE);
+        this.poolLeaseNanos = timings.getNanos(Phase.POOL_LEASE);
+        this.timeToFirstByteNanos = timings.getNanos(Phase.TIME_TO_FIRST_BYTE);
+        this.bodyReadNanos = timings.getNanos(Phase.BODY_READ);
+        this.deserializeNanos = timings.getNanos(Phase.DESERIALIZE);
+        commit();
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.delivery.v1.model.ExecuteResponse;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.MboxResponse;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.utils.CollectionUtils;
+import com.adobe.target.edge.client.utils.FutureUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.adobe.target.edge.client.utils.StringUtils.isEmpty;
+import static com.adobe.target.edge.client.utils.StringUtils.isNotEmpty;
+
+/**
+ * Removes execute mboxes that have recently come back empty from outgoing requests and answers
+ * them with empty {@link MboxResponse}s. Requests in QA mode or with a trace are passed through
+ * untouched and are not learned from.
+ */
+public class EmptyMboxFilteringService implements TargetService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmptyMboxFilteringService.class);
+    private static final int MAX_TRACKED_MBOXES = 10000;
+    private static final int HTTP_OK = 200;
+    private final TargetService targetService;
+    private final String client;
+    private final EmptyMboxTracker tracker;
+
+    public EmptyMboxFilteringService(ClientConfig clientConfig, TargetService targetService) {
+        this.targetService = targetService;
+        this.client = clientConfig.getClient();
+        this.tracker = new EmptyMboxTracker(clientConfig.getEmptyMboxThreshold(),
+                TimeUnit.MILLISECONDS.toNanos(clientConfig.getEmptyMboxTtl()), MAX_TRACKED_MBOXES);
+    }
+
+    public int getSuppressedMboxCount() {
+        return tracker.getSuppressedCount(System.nanoTime());
+    }
+
+    @Override
+    public TargetDeliveryResponse executeRequest(TargetDeliveryRequest deliveryRequest) {
+        if (!isFiltered(deliveryRequest)) {
+            return targetService.executeRequest(deliveryRequest);
+        }
+        List<MboxRequest> suppressed = new ArrayList<>();
+        TargetDeliveryRequest filtered = filter(deliveryRequest, suppressed);
+        if (filtered == null) {
+            return emptyResponse(deliveryRequest);
+        }
+        return complete(deliveryRequest, suppressed, targetService.executeRequest(filtered));
+    }
+
+    @Override
+    public CompletableFuture<TargetDeliveryResponse> executeRequestAsync(TargetDeliveryRequest deliveryRequest) {
+        if (!isFiltered(deliveryRequest)) {
+            return targetService.executeRequestAsync(deliveryRequest);
+        }
+        List<MboxRequest> suppressed = new ArrayList<>();
+        TargetDeliveryRequest filtered = filter(deliveryRequest, suppressed);
+        if (filtered == null) {
+            return CompletableFuture.completedFuture(emptyResponse(deliveryRequest));
+        }
+        CompletableFuture<TargetDeliveryResponse> future = targetService.executeRequestAsync(filtered);
+        return FutureUtils.propagateCancel(future.thenApply(response -> complete(deliveryRequest, suppressed,
+                response)), future);
+    }
+
+    @Override
+    public ResponseStatus executeNotification(TargetDeliveryRequest deliveryRequest) {
+        return targetService.executeNotification(deliveryRequest);
+    }
+
+    @Override
+    public CompletableFuture<ResponseStatus> executeNotificationAsync(TargetDeliveryRequest deliveryRequest) {
+        return targetService.executeNotificationAsync(deliveryRequest);
+    }
+
+    @Override
+    public void close() throws Exception {
+        targetService.close();
+    }
+
+    private static boolean isFiltered(TargetDeliveryRequest deliveryRequest) {
+        DeliveryRequest request = deliveryRequest.getDeliveryRequest();
+        return request.getExecute() != null
+                && !CollectionUtils.isEmpty(request.getExecute().getMboxes())
+                && request.getQaMode() == null
+                && request.getTrace() == null;
+    }
+
+    /**
+     * Returns the request to send with suppressed mboxes removed, the original request when none
+     * are suppressed, or null when nothing is left to ask the edge for.
+     */
+    private TargetDeliveryRequest filter(TargetDeliveryRequest deliveryRequest, List<MboxRequest> suppressed) {
+        DeliveryRequest request = deliveryRequest.getDeliveryRequest();
+        ExecuteRequest execute = request.getExecute();
+        long now = System.nanoTime();
+        List<MboxRequest> sent = new ArrayList<>(execute.getMboxes().size());
+        for (MboxRequest mbox : execute.getMboxes()) {
+            if (tracker.isSuppressed(key(request, mbox.getName()), now)) {
+                suppressed.add(mbox);
+            } else {
+                sent.add(mbox);
+            }
+        }
+        if (suppressed.isEmpty()) {
+            return deliveryRequest;
+        }
+        logger.debug("Answering {} empty mboxes locally", suppressed.size());
+        if (sent.isEmpty() && execute.getPageLoad() == null && request.getPrefetch() == null
+                && CollectionUtils.isEmpty(request.getNotifications())
+                && request.getId() != null && isNotEmpty(request.getId().getTntId())) {
+            return null;
+        }
+        ExecuteRequest filteredExecute = null;
+        if (!sent.isEmpty()) {
+            filteredExecute = new ExecuteRequest().pageLoad(execute.getPageLoad()).mboxes(sent);
+        } else if (execute.getPageLoad() != null) {
+            filteredExecute = new ExecuteRequest().pageLoad(execute.getPageLoad()).mboxes(null);
+        }
+        return deliveryRequest.withDeliveryRequest(copy(request, filteredExecute));
+    }
+
+    private TargetDeliveryResponse complete(TargetDeliveryRequest deliveryRequest,
+                                            List<MboxRequest> suppressed,
+                                            TargetDeliveryResponse targetResponse) {
+        DeliveryResponse response = targetResponse.getResponse();
+        if (targetResponse.getStatus() != HTTP_OK || response == null) {
+            return targetResponse;
+        }
+        learn(deliveryRequest.getDeliveryRequest(), response);
+        if (suppressed.isEmpty()) {
+            return targetResponse;
+        }
+        response.execute(merge(deliveryRequest.getDeliveryRequest().getExecute(), response.getExecute()));
+        return new TargetDeliveryResponse(deliveryRequest, response, targetResponse.getStatus(),
+                targetResponse.getMessage(), targetResponse.getPhaseTimings());
+    }
+
+    private void learn(DeliveryRequest request, DeliveryResponse response) {
+        if (response.getExecute() == null || response.getExecute().getMboxes() == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (MboxResponse mbox : response.getExecute().getMboxes()) {
+            String key = key(request, mbox.getName());
+            if (CollectionUtils.isEmpty(mbox.getOptions()) && CollectionUtils.isEmpty(mbox.getMetrics())) {
+                tracker.recordEmpty(key, now);
+            } else {
+                tracker.recordActive(key);
+            }
+        }
+    }
+
+    private TargetDeliveryResponse emptyResponse(TargetDeliveryRequest deliveryRequest) {
+        DeliveryRequest request = deliveryRequest.getDeliveryRequest();
+        DeliveryResponse response = new DeliveryResponse()
+                .status(HTTP_OK)
+                .requestId(isEmpty(request.getRequestId()) ? UUID.randomUUID().toString() : request.getRequestId())
+                .id(request.getId())
+                .client(client)
+                .execute(merge(request.getExecute(), null));
+        return new TargetDeliveryResponse(deliveryRequest, response, HTTP_OK, "OK");
+    }
+
+    /**
+     * Rebuilds the execute response in request order, filling suppressed mboxes with empty responses.
+     */
+    private static ExecuteResponse merge(ExecuteRequest execute, ExecuteResponse received) {
+        List<MboxResponse> receivedMboxes = received != null && received.getMboxes() != null
+                ? received.getMboxes() : new ArrayList<>();
+        ExecuteResponse merged = new ExecuteResponse().pageLoad(received != null ? received.getPageLoad() : null);
+        for (MboxRequest mbox : execute.getMboxes()) {
+            MboxResponse response = find(receivedMboxes, mbox);
+            if (response == null) {
+                response = new MboxResponse();
+                response.setIndex(mbox.getIndex());
+                response.setName(mbox.getName());
+            }
+            merged.addMboxesItem(response);
+        }
+        return merged;
+    }
+
+    private static MboxResponse find(List<MboxResponse> mboxes, MboxRequest mbox) {
+        for (MboxResponse response : mboxes) {
+            if (Objects.equals(response.getName(), mbox.getName())
+                    && Objects.equals(response.getIndex(), mbox.getIndex())) {
+                return response;
+            }
+        }
+        return null;
+    }
+
+    private static String key(DeliveryRequest request, String mboxName) {
+        if (request.getProperty() == null || request.getProperty().getToken() == null) {
+            return mboxName;
+        }
+        return mboxName + "|" + request.getProperty().getToken();
+    }
+
+    private static DeliveryRequest copy(DeliveryRequest request, ExecuteRequest execute) {
+        return new DeliveryRequest()
+                .requestId(request.getRequestId())
+                .impressionId(request.getImpressionId())
+                .id(request.getId())
+                .environmentId(request.getEnvironmentId())
+                .property(request.getProperty())
+                .trace(request.getTrace())
+                .context(request.getContext())
+                .experienceCloud(request.getExperienceCloud())
+                .execute(execute)
+                .prefetch(request.getPrefetch())
+                .notifications(request.getNotifications())
+                .qaMode(request.getQaMode());
+    }
+
+}
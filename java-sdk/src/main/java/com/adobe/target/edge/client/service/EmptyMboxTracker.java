@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks mboxes that keep coming back without options. After {@code threshold} consecutive empty
+ * responses an mbox is suppressed for {@code ttlNanos}; once that expires exactly one caller is
+ * let through as a probe while the others stay suppressed for another ttl.
+ */
+final class EmptyMboxTracker {
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int threshold;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    EmptyMboxTracker(int threshold, long ttlNanos, int maxEntries) {
+        this.threshold = threshold;
+        this.ttlNanos = ttlNanos;
+        this.maxEntries = maxEntries;
+    }
+
+    boolean isSuppressed(String key, long nowNanos) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        long suppressedUntil = entry.suppressedUntil.get();
+        if (suppressedUntil == 0) {
+            return false;
+        }
+        if (nowNanos - suppressedUntil < 0) {
+            return true;
+        }
+        return !entry.suppressedUntil.compareAndSet(suppressedUntil, nowNanos + ttlNanos);
+    }
+
+    void recordEmpty(String key, long nowNanos) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            if (entries.size() >= maxEntries) {
+                return;
+            }
+            entry = entries.computeIfAbsent(key, k -> new Entry());
+        }
+        if (entry.consecutiveEmpty.incrementAndGet() >= threshold) {
+            entry.suppressedUntil.set(nowNanos + ttlNanos);
+        }
+    }
+
+    void recordActive(String key) {
+        entries.remove(key);
+    }
+
+    int getSuppressedCount(long nowNanos) {
+        int count = 0;
+        for (Entry entry : entries.values()) {
+            long suppressedUntil = entry.suppressedUntil.get();
+            if (suppressedUntil != 0 && nowNanos - suppressedUntil < 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final class Entry {
+        private final AtomicInteger consecutiveEmpty = new AtomicInteger();
+        private final AtomicLong suppressedUntil = new AtomicLong();
+    }
+
+}
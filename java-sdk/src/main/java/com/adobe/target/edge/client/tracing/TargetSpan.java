@@ -0,0 +1,29 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.tracing;
+
+import com.adobe.target.edge.client.metrics.PhaseTimings;
+
+public interface TargetSpan {
+
+    /**
+     * @return the context propagated to Target in the {@code traceparent} and {@code tracestate} headers,
+     * or null to not propagate
+     */
+    TraceContext getContext();
+
+    /**
+     * @param status the HTTP status, or 0 when no response was received
+     * @param error the failure of the call, or null
+     */
+    void end(int status, Throwable error, PhaseTimings timings);
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.tracing;
+
+import com.adobe.target.edge.client.metrics.CallType;
+
+/**
+ * Bridge to an application's tracing library. The SDK calls {@link #startSpan} on the calling thread
+ * right before a delivery call is dispatched, and ends the returned span when the call completes.
+ * Implementations should be cheap and must not throw.
+ */
+public interface TargetTracer {
+
+    /**
+     * @param parent the trace context given on the delivery request, or null
+     * @return the span for the call, or null to not trace it
+     */
+    TargetSpan startSpan(CallType callType, String url, TraceContext parent);
+}
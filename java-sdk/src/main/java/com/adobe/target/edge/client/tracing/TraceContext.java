@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * W3C trace context (https://www.w3.org/TR/trace-context/) carried by the {@code traceparent} and
+ * {@code tracestate} headers.
+ */
+public class TraceContext {
+
+    public static final String TRACEPARENT = "traceparent";
+    public static final String TRACESTATE = "tracestate";
+
+    private static final String VERSION = "00";
+    private static final Pattern TRACEPARENT_PATTERN =
+            Pattern.compile("[0-9a-f]{2}-[0-9a-f]{32}-[0-9a-f]{16}-[0-9a-f]{2}(-.*)?");
+    private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+    private static final String INVALID_SPAN_ID = "0000000000000000";
+
+    private final String traceId;
+    private final String spanId;
+    private final String flags;
+    private final String traceState;
+
+    public TraceContext(String traceId, String spanId, String flags, String traceState) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.flags = flags;
+        this.traceState = traceState;
+    }
+
+    /**
+     * @return the parsed context, or null when {@code traceparent} is missing or malformed
+     */
+    public static TraceContext parse(String traceparent, String tracestate) {
+        if (traceparent == null) {
+            return null;
+        }
+        String value = traceparent.trim().toLowerCase();
+        if (!TRACEPARENT_PATTERN.matcher(value).matches() || value.startsWith("ff")
+                || (value.startsWith(VERSION) && value.length() != 55)) {
+            return null;
+        }
+        String traceId = value.substring(3, 35);
+        String spanId = value.substring(36, 52);
+        if (INVALID_TRACE_ID.equals(traceId) || INVALID_SPAN_ID.equals(spanId)) {
+            return null;
+        }
+        return new TraceContext(traceId, spanId, value.substring(53, 55), tracestate);
+    }
+
+    /**
+     * @return a context in the same trace, with a new random span id
+     */
+    public TraceContext newChild() {
+        return new TraceContext(traceId, randomSpanId(), flags, traceState);
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public String getFlags() {
+        return flags;
+    }
+
+    public boolean isSampled() {
+        return (Integer.parseInt(flags, 16) & 1) == 1;
+    }
+
+    public String getTraceState() {
+        return traceState;
+    }
+
+    public String toTraceParent() {
+        return VERSION + "-" + traceId + "-" + spanId + "-" + flags;
+    }
+
+    static String randomSpanId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        String hex = Long.toHexString(id);
+        return INVALID_SPAN_ID.substring(hex.length()) + hex;
+    }
+
+    @Override
+    public String toString() {
+        return toTraceParent() + (traceState == null ? "" : " " + traceState);
+    }
+}
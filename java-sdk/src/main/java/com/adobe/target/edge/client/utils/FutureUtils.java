@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+public class FutureUtils {
+
+    /**
+     * Runs {@code onCancel} once {@code future} is cancelled, e.g. to abort the work it was derived from,
+     * since cancelling a {@link CompletableFuture} does not reach the stages it depends on.
+     */
+    public static <T> CompletableFuture<T> onCancel(CompletableFuture<T> future, Runnable onCancel) {
+        future.whenComplete((value, throwable) -> {
+            if (future.isCancelled()) {
+                onCancel.run();
+            }
+        });
+        return future;
+    }
+
+    public static <T> CompletableFuture<T> propagateCancel(CompletableFuture<T> derived, Future<?> source) {
+        return onCancel(derived, () -> source.cancel(true));
+    }
+
+}
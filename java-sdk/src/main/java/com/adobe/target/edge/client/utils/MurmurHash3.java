@@ -0,0 +1,202 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.utils;
+
+/**
+ * 32-bit x86 MurmurHash3 over the UTF-8 bytes of a char sequence, the hash Target allocates
+ * visitors with, matching Guava's {@code Hashing.murmur3_32(seed).hashString(input, UTF_8)}.
+ * Unpaired surrogates are encoded as {@code '?'}, as {@link String#getBytes} does.
+ *
+ * <p>Keys made of several parts can be hashed without building a string or a byte array through
+ * the package private streaming methods, which encode chars as they go. Their state packs h1 into
+ * the high 32 bits, up to three pending bytes into bits 8 to 31 and the pending byte count into
+ * the low 2 bits.
+ */
+public final class MurmurHash3 {
+
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+    private static final int PENDING_COUNT = 3;
+    private static final long MAX_PACKED_DECIMAL = 10_000_000_000_000_000L;
+
+    private MurmurHash3() {
+    }
+
+    public static int hashUtf8(CharSequence input) {
+        return hashUtf8(0, input);
+    }
+
+    public static int hashUtf8(int seed, CharSequence input) {
+        int length = input.length();
+        return finish(putChars(begin(seed), input, 0, length), utf8Length(input, 0, length));
+    }
+
+    static long begin(int seed) {
+        return (long) seed << 32;
+    }
+
+    static long putByte(long state, int b) {
+        int low = (int) state;
+        int count = low & PENDING_COUNT;
+        if (count < 3) {
+            int pending = (low >>> 8) | ((b & 0xFF) << (8 * count));
+            return (state & 0xFFFFFFFF00000000L) | ((((long) pending) << 8) & 0xFFFFFF00L) | (count + 1);
+        }
+        int k1 = (low >>> 8) | (b << 24);
+        int h1 = mixH1((int) (state >>> 32), mixK1(k1));
+        return (long) h1 << 32;
+    }
+
+    /**
+     * Feeds the UTF-8 encoding of a char; a surrogate, which needs its pair, is fed as {@code '?'}.
+     */
+    static long putChar(long state, char c) {
+        if (c < 0x80) {
+            return putByte(state, c);
+        }
+        if (c < 0x800) {
+            state = putByte(state, 0xC0 | (c >>> 6));
+            return putByte(state, 0x80 | (c & 0x3F));
+        }
+        if (Character.isSurrogate(c)) {
+            return putByte(state, '?');
+        }
+        state = putByte(state, 0xE0 | (c >>> 12));
+        state = putByte(state, 0x80 | ((c >>> 6) & 0x3F));
+        return putByte(state, 0x80 | (c & 0x3F));
+    }
+
+    static long putChars(long state, CharSequence input, int start, int end) {
+        int i = start;
+        while (i < end) {
+            char c = input.charAt(i);
+            if (((int) state & PENDING_COUNT) == 0 && i + 3 < end) {
+                // nothing pending: four ASCII chars make a whole block
+                char c1 = input.charAt(i + 1);
+                char c2 = input.charAt(i + 2);
+                char c3 = input.charAt(i + 3);
+                if ((c | c1 | c2 | c3) < 0x80) {
+                    int h1 = mixH1((int) (state >>> 32), mixK1(c | (c1 << 8) | (c2 << 16) | (c3 << 24)));
+                    state = (long) h1 << 32;
+                    i += 4;
+                    continue;
+                }
+            }
+            if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(input.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, input.charAt(i + 1));
+                state = putByte(state, 0xF0 | (codePoint >>> 18));
+                state = putByte(state, 0x80 | ((codePoint >>> 12) & 0x3F));
+                state = putByte(state, 0x80 | ((codePoint >>> 6) & 0x3F));
+                state = putByte(state, 0x80 | (codePoint & 0x3F));
+                i += 2;
+            } else {
+                state = putChar(state, c);
+                i++;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Feeds the decimal digits of a non-negative value, as {@link Long#toString(long)} would write them.
+     */
+    static long putDecimal(long state, long value) {
+        if (value < MAX_PACKED_DECIMAL) {
+            // collect the digits least significant first, a nibble each, so only constant divisions are needed
+            long packed = 0;
+            int digits = 0;
+            do {
+                packed = (packed << 4) | (value % 10);
+                value /= 10;
+                digits++;
+            } while (value > 0);
+            for (; digits > 0; digits--, packed >>>= 4) {
+                state = putByte(state, (int) ('0' + (packed & 0xF)));
+            }
+            return state;
+        }
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            long digit = value / divisor;
+            state = putByte(state, (int) ('0' + digit));
+            value -= digit * divisor;
+        }
+        return state;
+    }
+
+    /**
+     * @return the number of bytes {@link #putChars} feeds for the chars
+     */
+    static int utf8Length(CharSequence input, int start, int end) {
+        int length = end - start;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                length++;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(input.charAt(i + 1))) {
+                length += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    static int decimalLength(long value) {
+        int length = 1;
+        while (value >= 10) {
+            value /= 10;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * @param length the number of bytes fed since {@link #begin(int)}
+     */
+    static int finish(long state, int length) {
+        int h1 = (int) (state >>> 32);
+        if (((int) state & PENDING_COUNT) != 0) {
+            h1 ^= mixK1((int) state >>> 8);
+        }
+        return fmix(h1, length);
+    }
+
+    private static int mixK1(int k1) {
+        k1 *= C1;
+        k1 = Integer.rotateLeft(k1, 15);
+        return k1 * C2;
+    }
+
+    private static int mixH1(int h1, int k1) {
+        h1 ^= k1;
+        h1 = Integer.rotateLeft(h1, 13);
+        return h1 * 5 + 0xe6546b64;
+    }
+
+    private static int fmix(int h1, int length) {
+        h1 ^= length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        return h1 ^ (h1 >>> 16);
+    }
+
+}
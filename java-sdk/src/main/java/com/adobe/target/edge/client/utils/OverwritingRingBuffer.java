@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-capacity, lock-free buffer that keeps the most recently added elements, overwriting the oldest
+ * once full.
+ */
+public class OverwritingRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLong next = new AtomicLong();
+
+    public OverwritingRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+        }
+        this.capacity = capacity;
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        elements = new AtomicReferenceArray<>(size);
+    }
+
+    public void add(E element) {
+        elements.set((int) next.getAndIncrement() & mask, element);
+    }
+
+    /**
+     * @return the buffered elements, newest first
+     */
+    public List<E> snapshot() {
+        long last = next.get();
+        int count = (int) Math.min(last, capacity);
+        List<E> snapshot = new ArrayList<>(count);
+        for (long i = last - 1; i >= last - count; i--) {
+            E element = elements.get((int) i & mask);
+            if (element != null) {
+                snapshot.add(element);
+            }
+        }
+        return snapshot;
+    }
+
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            elements.set(i, null);
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
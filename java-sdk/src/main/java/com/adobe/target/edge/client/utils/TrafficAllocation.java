@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.utils;
+
+import com.adobe.target.delivery.v1.model.VisitorId;
+
+import static com.adobe.target.edge.client.utils.StringUtils.isNotEmpty;
+
+/**
+ * Deterministically splits visitors into allocation buckets per activity, the way Target does:
+ * MurmurHash3 of the UTF-8 bytes of {@code client.activityId.visitorId.salt} modulo 10000. The
+ * visitor id is the marketingCloudVisitorId, else the tntId without its location hint, else the
+ * thirdPartyId. Nothing is allocated while hashing.
+ */
+public final class TrafficAllocation {
+
+    public static final int TOTAL_BUCKETS = 10000;
+    public static final String DEFAULT_SALT = "0";
+
+    private TrafficAllocation() {
+    }
+
+    /**
+     * @return the visitor's bucket for the activity, in {@code [0, TOTAL_BUCKETS)}
+     * @throws IllegalArgumentException when the visitor id holds none of the supported ids
+     */
+    public static int bucket(String client, long activityId, VisitorId visitorId) {
+        return bucket(client, activityId, visitorId, DEFAULT_SALT);
+    }
+
+    public static int bucket(String client, long activityId, VisitorId visitorId, String salt) {
+        if (visitorId != null) {
+            String marketingCloudVisitorId = visitorId.getMarketingCloudVisitorId();
+            if (isNotEmpty(marketingCloudVisitorId)) {
+                return bucket(client, activityId, marketingCloudVisitorId, marketingCloudVisitorId.length(), salt);
+            }
+            String tntId = visitorId.getTntId();
+            if (isNotEmpty(tntId)) {
+                int locationHintIndex = tntId.indexOf('.');
+                return bucket(client, activityId, tntId, locationHintIndex < 0 ? tntId.length() : locationHintIndex,
+                        salt);
+            }
+            String thirdPartyId = visitorId.getThirdPartyId();
+            if (isNotEmpty(thirdPartyId)) {
+                return bucket(client, activityId, thirdPartyId, thirdPartyId.length(), salt);
+            }
+        }
+        throw new IllegalArgumentException("visitor id has no marketingCloudVisitorId, tntId or thirdPartyId");
+    }
+
+    public static int bucket(String client, long activityId, String visitorId) {
+        return bucket(client, activityId, visitorId, visitorId.length(), DEFAULT_SALT);
+    }
+
+    /**
+     * @return the visitor's allocation for the activity as a percentage in {@code [0, 100)}, with
+     * two decimals, comparable to the experience split percentages of an activity
+     */
+    public static double allocationPercent(String client, long activityId, VisitorId visitorId) {
+        return bucket(client, activityId, visitorId) / 100.0;
+    }
+
+    private static int bucket(String client, long activityId, String visitorId, int visitorIdLength, String salt) {
+        if (activityId < 0) {
+            throw new IllegalArgumentException("activity id cannot be negative");
+        }
+        long state = MurmurHash3.begin(0);
+        state = MurmurHash3.putChars(state, client, 0, client.length());
+        state = MurmurHash3.putChar(state, '.');
+        state = MurmurHash3.putDecimal(state, activityId);
+        state = MurmurHash3.putChar(state, '.');
+        state = MurmurHash3.putChars(state, visitorId, 0, visitorIdLength);
+        state = MurmurHash3.putChar(state, '.');
+        state = MurmurHash3.putChars(state, salt, 0, salt.length());
+        int length = MurmurHash3.utf8Length(client, 0, client.length()) + MurmurHash3.decimalLength(activityId)
+                + MurmurHash3.utf8Length(visitorId, 0, visitorIdLength) + MurmurHash3.utf8Length(salt, 0, salt.length())
+                + 3;
+        return Math.abs(MurmurHash3.finish(state, length) % TOTAL_BUCKETS);
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client;
+
+import com.adobe.target.delivery.v1.model.ChannelType;
+import com.adobe.target.delivery.v1.model.Context;
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.PrefetchRequest;
+import com.adobe.target.delivery.v1.model.VisitorId;
+import com.adobe.target.edge.client.http.JacksonObjectMapper;
+import com.adobe.target.edge.client.model.TargetCookie;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.service.VisitorProvider;
+import com.adobe.target.edge.client.testing.MockDeliveryEdge;
+import com.adobe.target.edge.client.utils.CookieUtils;
+import com.adobe.target.edge.client.utils.TrafficAllocation;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the bytes allocated on the calling thread per operation of a getOffers round trip and fails when a
+ * budget is exceeded. Budgets can be overridden with {@code -Dtarget.allocationBudget.<operation>=<bytes>}.
+ * <p>
+ * The measurements take a while and depend on the JIT, so they only run with {@code -PallocationBudget}.
+ */
+@Tag("allocationBudget")
+@EnabledIfSystemProperty(named = "allocationBudget", matches = "true")
+class AllocationBudgetTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+    private static final String TEST_SESSION_ID = "430a140336d545daacde53af9636eef5";
+    private static final String TEST_TNT_ID = "20250794242226839061607285880759069379.22_33";
+    private static final int WARMUP_ITERATIONS = 2000;
+    private static final int MEASURED_ITERATIONS = 2000;
+
+    private static MockDeliveryEdge edge;
+    private static TargetClient targetClient;
+    private static JacksonObjectMapper objectMapper;
+    private static volatile Object sink;
+
+    @BeforeAll
+    static void setUp() {
+        edge = MockDeliveryEdge.start();
+        targetClient = TargetClient.create(edge.configure(ClientConfig.builder()
+                .client("testclient")
+                .organizationId(TEST_ORG_ID))
+                .build());
+        VisitorProvider.init(TEST_ORG_ID);
+        objectMapper = new JacksonObjectMapper();
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        targetClient.close();
+        edge.close();
+    }
+
+    @Test
+    void buildRequest() {
+        assertWithinBudget("buildRequest", 12_000, AllocationBudgetTest::request);
+    }
+
+    @Test
+    void serializeRequest() {
+        DeliveryRequest deliveryRequest = request().getDeliveryRequest();
+        assertWithinBudget("serializeRequest", 3_000, () -> objectMapper.writeValue(deliveryRequest));
+    }
+
+    @Test
+    void deserializeResponse() {
+        String json = objectMapper.writeValue(targetClient.getOffers(request()).getResponse());
+        assertWithinBudget("deserializeResponse", 6_000, () -> objectMapper.readValue(json, DeliveryResponse.class));
+    }
+
+    @Test
+    void createCookies() {
+        TargetDeliveryResponse response = targetClient.getOffers(request());
+        assertWithinBudget("createCookies", 2_500, response::getCookies);
+    }
+
+    @Test
+    void trafficAllocationBucket() {
+        VisitorId visitorId = new VisitorId().tntId(TEST_TNT_ID);
+        // only the boxed result is allocated
+        assertWithinBudget("trafficAllocationBucket", 16,
+                () -> TrafficAllocation.bucket("testclient", 125873L, visitorId));
+    }
+
+    @Test
+    void getOffersRoundTrip() {
+        assertWithinBudget("getOffers", 60_000, () -> targetClient.getOffers(request()));
+    }
+
+    private static void assertWithinBudget(String operation, long defaultBudget, Supplier<?> operationToMeasure) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled());
+
+        long budget = Long.getLong("target.allocationBudget." + operation, defaultBudget);
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink = operationToMeasure.get();
+        }
+        long before = allocation.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink = operationToMeasure.get();
+        }
+        long bytesPerOperation = (allocation.getThreadAllocatedBytes(threadId) - before) / MEASURED_ITERATIONS;
+
+        assertTrue(bytesPerOperation <= budget, () -> operation + " allocated " + bytesPerOperation
+                + " bytes per call, over its budget of " + budget + " bytes");
+    }
+
+    private static TargetDeliveryRequest request() {
+        return TargetDeliveryRequest.builder()
+                .context(new Context().channel(ChannelType.WEB))
+                .execute(new ExecuteRequest().mboxes(Arrays.asList(
+                        new MboxRequest().name("home").index(1),
+                        new MboxRequest().name("cart").index(2))))
+                .prefetch(new PrefetchRequest().mboxes(
+                        Collections.singletonList(new MboxRequest().name("footer").index(1))))
+                .cookies(cookies())
+                .build();
+    }
+
+    private static List<TargetCookie> cookies() {
+        return Collections.singletonList(CookieUtils.createTargetCookie(TEST_SESSION_ID, TEST_TNT_ID).get());
+    }
+}
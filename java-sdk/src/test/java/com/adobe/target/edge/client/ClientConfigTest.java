@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
@@ -62,4 +63,13 @@ public class ClientConfigTest {
         assertEquals(PROXY_PASSWORD, proxyConfig.getPassword());
         assertTrue(proxyConfig.isAuthProxy());
     }
+
+    @Test
+    void testBatchMaxMboxesMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> ClientConfig.builder()
+                .client("emeaprod4")
+                .organizationId(TEST_ORG_ID)
+                .batchMaxMboxes(0)
+                .build());
+    }
 }
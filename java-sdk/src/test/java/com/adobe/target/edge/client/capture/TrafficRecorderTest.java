@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.capture;
+
+import com.adobe.target.delivery.v1.model.Address;
+import com.adobe.target.delivery.v1.model.ChannelType;
+import com.adobe.target.delivery.v1.model.Context;
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.TargetClient;
+import com.adobe.target.edge.client.metrics.CallType;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.testing.MockDeliveryEdge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrafficRecorderTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+    private static final String TEST_SESSION_ID = "430a140336d545daacde53af9636eef5";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recordsAnonymizedCalls() throws Exception {
+        Path file = tempDir.resolve("traffic.jsonl.gz");
+        MboxRequest mbox = new MboxRequest().name("home").index(1);
+        mbox.setParameters(Collections.singletonMap("email", "jane@example.com"));
+        try (MockDeliveryEdge edge = MockDeliveryEdge.start()) {
+            TrafficRecorder recorder = new TrafficRecorder(file);
+            try (TargetClient targetClient = TargetClient.create(edge.configure(ClientConfig.builder()
+                    .client("testclient")
+                    .organizationId(TEST_ORG_ID)
+                    .trafficRecorder(recorder))
+                    .build())) {
+                targetClient.getOffers(TargetDeliveryRequest.builder()
+                        .context(new Context()
+                                .channel(ChannelType.WEB)
+                                .address(new Address().url("http://www.example.com/cart?email=jane@example.com")))
+                        .execute(new ExecuteRequest().mboxes(Collections.singletonList(mbox)))
+                        .sessionId(TEST_SESSION_ID)
+                        .tntId("2a7b2f9e1c5d4e3f.28_0")
+                        .thirdPartyId("jane")
+                        .locationHint("28")
+                        .build());
+            }
+            recorder.close();
+            assertEquals(1, recorder.getRecordedCalls());
+        }
+
+        List<RecordedCall> calls = TrafficRecording.read(file);
+
+        assertEquals(1, calls.size());
+        RecordedCall call = calls.get(0);
+        DeliveryRequest request = call.getRequest();
+        assertEquals(CallType.OFFERS, call.getCallType());
+        assertEquals("28", call.getLocationHint());
+        assertEquals(200, call.getStatus());
+        assertNotEquals(TEST_SESSION_ID, call.getSessionId());
+        assertEquals("http://www.example.com/cart", request.getContext().getAddress().getUrl());
+        assertNotEquals("jane", request.getId().getThirdPartyId());
+        assertTrue(request.getId().getTntId().endsWith(".28_0"));
+        assertNotEquals("2a7b2f9e1c5d4e3f.28_0", request.getId().getTntId());
+        assertNotEquals("jane@example.com", request.getExecute().getMboxes().get(0).getParameters().get("email"));
+        assertNotNull(call.getResponse());
+        assertEquals("home", call.getResponse().getExecute().getMboxes().get(0).getName());
+    }
+
+    @Test
+    void hashesConsistentlyWithinARecording() {
+        TrafficAnonymizer anonymizer = new TrafficAnonymizer();
+
+        assertEquals(anonymizer.hash("jane"), anonymizer.hash("jane"));
+        assertNotEquals(anonymizer.hash("jane"), new TrafficAnonymizer().hash("jane"));
+        assertEquals(anonymizer.hash("2a7b2f9e1c5d4e3f") + ".28_0", anonymizer.hashTntId("2a7b2f9e1c5d4e3f.28_0"));
+        assertEquals("28", TrafficRecorder.locationHint("https://mboxedge28.tt.omtrdc.net/rest/v1/delivery"));
+        assertNull(TrafficRecorder.locationHint("https://acme.tt.omtrdc.net/rest/v1/delivery"));
+    }
+}
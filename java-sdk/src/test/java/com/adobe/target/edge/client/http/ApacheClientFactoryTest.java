@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.metrics.ConnectionPoolStats;
+import com.adobe.target.edge.client.metrics.ConnectionPoolStats.Pool;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApacheClientFactoryTest {
+
+    private HttpServer server;
+    private TargetMetricsRegistry metricsRegistry;
+    private DefaultTargetHttpClient targetHttpClient;
+    private String route;
+
+    @BeforeEach
+    void init() throws Exception {
+        byte[] responseBody = "{\"status\":200}".getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().close();
+            exchange.sendResponseHeaders(200, responseBody.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(responseBody);
+            }
+        });
+        server.start();
+        route = "http://localhost:" + server.getAddress().getPort();
+        metricsRegistry = new TargetMetricsRegistry();
+        targetHttpClient = new DefaultTargetHttpClient(ClientConfig.builder().client("test").organizationId("org")
+                .metricsRegistry(metricsRegistry)
+                .build());
+    }
+
+    @AfterEach
+    void close() {
+        targetHttpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void testPoolStatsAndLeaseWaitsPerRoute() {
+        targetHttpClient.execute(Collections.emptyMap(), route + "/rest/v1/delivery", new DeliveryRequest(),
+                DeliveryResponse.class);
+        targetHttpClient.executeAsync(Collections.emptyMap(), route + "/rest/v1/delivery", new DeliveryRequest(),
+                DeliveryResponse.class).join();
+
+        List<ConnectionPoolStats> stats = metricsRegistry.getConnectionPoolStats();
+
+        ConnectionPoolStats sync = find(stats, Pool.SYNC, route);
+        assertEquals(0, sync.getLeased());
+        assertEquals(1, sync.getAvailable());
+        assertEquals(0, sync.getPending());
+        assertEquals(100, sync.getMax());
+        assertEquals(1, find(stats, Pool.ASYNC, route).getAvailable());
+        assertEquals(1, find(stats, Pool.SYNC, ConnectionPoolStats.TOTAL).getAvailable());
+        assertEquals(1, metricsRegistry.getLeaseWait(Pool.SYNC, ConnectionPoolStats.SHARED, route).getCount());
+        assertEquals(1, metricsRegistry.getLeaseWait(Pool.ASYNC, ConnectionPoolStats.SHARED, route).getCount());
+    }
+
+    @Test
+    void testPoolUnregisteredOnClose() {
+        targetHttpClient.execute(Collections.emptyMap(), route + "/rest/v1/delivery", new DeliveryRequest(),
+                DeliveryResponse.class);
+        assertTrue(!metricsRegistry.getConnectionPoolStats().isEmpty());
+
+        targetHttpClient.close();
+
+        assertTrue(metricsRegistry.getConnectionPoolStats().isEmpty());
+    }
+
+    private static ConnectionPoolStats find(List<ConnectionPoolStats> stats, Pool pool, String route) {
+        return stats.stream()
+                .filter(stat -> stat.getPool() == pool && stat.getRoute().equals(route))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No stats for " + pool + " " + route + " in " + stats));
+    }
+
+}
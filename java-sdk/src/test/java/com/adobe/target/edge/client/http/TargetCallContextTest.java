@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.metrics.CallType;
+import com.adobe.target.edge.client.metrics.Phase;
+import com.adobe.target.edge.client.metrics.PhaseTimings;
+import com.adobe.target.edge.client.tracing.TraceContext;
+import com.sun.net.httpserver.HttpServer;
+import kong.unirest.HttpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TargetCallContextTest {
+
+    private static final byte[] RESPONSE_BODY = "{\"status\":200,\"requestId\":\"1\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final AtomicReference<String> receivedTraceParent = new AtomicReference<>();
+    private HttpServer server;
+    private DefaultTargetHttpClient targetHttpClient;
+    private String url;
+
+    @BeforeEach
+    void init() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().close();
+            receivedTraceParent.set(exchange.getRequestHeaders().getFirst(TraceContext.TRACEPARENT));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, RESPONSE_BODY.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(RESPONSE_BODY);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/rest/v1/delivery";
+        targetHttpClient = new DefaultTargetHttpClient(ClientConfig.builder().client("test").organizationId("org")
+                .build());
+    }
+
+    @AfterEach
+    void close() {
+        targetHttpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void testPhasesNotObservedOutsideTransport() {
+        TargetCallContext call = new TargetCallContext(CallType.OFFERS, 5);
+        call.complete();
+
+        PhaseTimings timings = call.getPhaseTimings();
+
+        assertEquals(5, timings.getNanos(Phase.BUILD));
+        assertFalse(timings.isObserved(Phase.SERIALIZE));
+        assertFalse(timings.isObserved(Phase.POOL_LEASE));
+        assertFalse(timings.isObserved(Phase.TIME_TO_FIRST_BYTE));
+        assertEquals(PhaseTimings.NOT_OBSERVED, timings.getResponseBytes());
+        assertTrue(timings.getTotalNanos() >= 0);
+    }
+
+    @Test
+    void testAllPhasesObservedForSyncCall() {
+        TargetCallContext call = new TargetCallContext(CallType.OFFERS, PhaseTimings.NOT_OBSERVED);
+
+        HttpResponse<DeliveryResponse> response = call.dispatch(() -> targetHttpClient.execute(
+                Collections.emptyMap(), url, new DeliveryRequest().requestId("1"), DeliveryResponse.class));
+        call.complete();
+
+        assertEquals(200, response.getStatus());
+        assertAllTransportPhasesObserved(call.getPhaseTimings());
+    }
+
+    @Test
+    void testAllPhasesObservedForAsyncCall() {
+        TargetCallContext call = new TargetCallContext(CallType.OFFERS, PhaseTimings.NOT_OBSERVED);
+
+        HttpResponse<DeliveryResponse> response = call.dispatch(() -> targetHttpClient.executeAsync(
+                Collections.emptyMap(), url, new DeliveryRequest().requestId("1"), DeliveryResponse.class)).join();
+        call.complete();
+
+        assertEquals(200, response.getStatus());
+        assertAllTransportPhasesObserved(call.getPhaseTimings());
+    }
+
+    @Test
+    void testTraceContextPropagated() {
+        TargetCallContext call = new TargetCallContext(CallType.OFFERS, PhaseTimings.NOT_OBSERVED);
+        TraceContext traceContext = TraceContext.parse("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01",
+                null);
+        call.setTraceContext(traceContext);
+
+        call.dispatch(() -> targetHttpClient.executeAsync(Collections.emptyMap(), url, new DeliveryRequest(),
+                DeliveryResponse.class)).join();
+
+        assertEquals(traceContext.toTraceParent(), receivedTraceParent.get());
+
+        targetHttpClient.execute(Collections.emptyMap(), url, new DeliveryRequest(), DeliveryResponse.class);
+
+        assertNull(receivedTraceParent.get());
+    }
+
+    private void assertAllTransportPhasesObserved(PhaseTimings timings) {
+        assertFalse(timings.isObserved(Phase.BUILD));
+        assertTrue(timings.isObserved(Phase.SERIALIZE));
+        assertTrue(timings.isObserved(Phase.POOL_LEASE));
+        assertTrue(timings.isObserved(Phase.TIME_TO_FIRST_BYTE));
+        assertTrue(timings.isObserved(Phase.BODY_READ));
+        assertTrue(timings.isObserved(Phase.DESERIALIZE));
+        assertTrue(timings.getRequestBytes() > 0);
+        assertEquals(RESPONSE_BODY.length, timings.getResponseBytes());
+    }
+
+}
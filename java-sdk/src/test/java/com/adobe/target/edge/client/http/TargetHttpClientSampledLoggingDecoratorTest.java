@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.http;
+
+import com.adobe.target.edge.client.ClientConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TargetHttpClientSampledLoggingDecoratorTest {
+
+    @Mock
+    private TargetHttpClient delegate;
+
+    private TargetHttpClientSampledLoggingDecorator decorator;
+
+    @AfterEach
+    void close() throws Exception {
+        decorator.close();
+    }
+
+    @Test
+    void testSessionSamplingIsStablePerSession() {
+        decorator = create(ClientConfig.builder().logRequestsSampleRate(0.5).logRequestsSampleBySession(true));
+
+        int sampledSessions = 0;
+        for (int i = 0; i < 1000; i++) {
+            Map<String, Object> queryParams = Collections.singletonMap("sessionId", "session-" + i);
+            boolean sampled = decorator.isSampled(queryParams);
+            for (int call = 0; call < 5; call++) {
+                assertEquals(sampled, decorator.isSampled(queryParams));
+            }
+            sampledSessions += sampled ? 1 : 0;
+        }
+        assertTrue(sampledSessions > 350 && sampledSessions < 650, "sampled " + sampledSessions);
+    }
+
+    @Test
+    void testSampleRateBounds() throws Exception {
+        decorator = create(ClientConfig.builder().logRequestsSampleRate(0));
+        assertFalse(decorator.isSampled(Collections.singletonMap("sessionId", "1")));
+        decorator.close();
+
+        decorator = create(ClientConfig.builder());
+        assertTrue(decorator.isSampled(Collections.singletonMap("sessionId", "1")));
+    }
+
+    @Test
+    void testBodiesTruncated() {
+        decorator = create(ClientConfig.builder().logRequestsMaxBodyLength(4));
+
+        assertEquals("abcd", decorator.truncate("abcd"));
+        assertEquals("abcd...(2 more chars)", decorator.truncate("abcdef"));
+    }
+
+    @Test
+    void testRenderingStopsAtMaxBodyLength() throws Exception {
+        decorator = create(ClientConfig.builder().logRequestsMaxBodyLength(8));
+        assertEquals("{\"key\":\"...(truncated)", decorator.render(Collections.singletonMap("key", "value")));
+        decorator.close();
+
+        decorator = create(ClientConfig.builder());
+        assertEquals("{\"key\":\"value\"}", decorator.render(Collections.singletonMap("key", "value")));
+    }
+
+    @Test
+    void testFailuresRateLimitedPerSecond() {
+        decorator = create(ClientConfig.builder().logRequestsMaxFailuresPerSecond(2));
+        long second = TimeUnit.SECONDS.toNanos(1);
+
+        assertTrue(decorator.tryAcquireFailure(10 * second));
+        assertTrue(decorator.tryAcquireFailure(10 * second + 1));
+        assertFalse(decorator.tryAcquireFailure(11 * second - 1));
+        assertTrue(decorator.tryAcquireFailure(11 * second));
+    }
+
+    @Test
+    void testFailedCallsOverTheRateAreNotLogged() {
+        decorator = create(ClientConfig.builder().logRequestsMaxFailuresPerSecond(1));
+        when(delegate.execute(any(), any(), any(), any())).thenThrow(new IllegalStateException("edge down"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class,
+                    () -> decorator.execute(Collections.emptyMap(), "url", "request", String.class));
+        }
+        assertTrue(decorator.getSuppressedFailures() >= 1, "suppressed " + decorator.getSuppressedFailures());
+    }
+
+    private TargetHttpClientSampledLoggingDecorator create(ClientConfig.ClientConfigBuilder builder) {
+        return new TargetHttpClientSampledLoggingDecorator(delegate, builder.client("test").organizationId("org")
+                .build());
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBucketIndexRoundTrip() {
+        for (long value : new long[]{0, 1, 127, 128, 255, 256, 1_000, 1_000_000, 123_456_789L,
+                LatencyHistogram.MAX_TRACKABLE_VALUE}) {
+            long highest = LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(value));
+            assertTrue(highest >= value, "value " + value);
+            assertTrue(highest - value <= Math.max(1, value / 64), "value " + value);
+        }
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        LatencySnapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.getCount());
+        assertWithinError(TimeUnit.MILLISECONDS.toNanos(5), snapshot.getP50());
+        assertWithinError(TimeUnit.MICROSECONDS.toNanos(9_900), snapshot.getP99());
+        assertWithinError(TimeUnit.MICROSECONDS.toNanos(9_990), snapshot.getP999());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), snapshot.getMax());
+    }
+
+    @Test
+    void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 25_000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100_000, histogram.snapshot().getCount());
+    }
+
+    @Test
+    void testRegistryKeysByEndpointCallTypeAndStatusClass() {
+        TargetMetricsRegistry registry = new TargetMetricsRegistry();
+        registry.recordLatency(TargetMetricKey.endpoint(null), CallType.OFFERS, 200, 1_000);
+        registry.recordLatency(TargetMetricKey.endpoint("28"), CallType.OFFERS, 503, 2_000);
+        registry.recordLatency(TargetMetricKey.endpoint("28"), CallType.NOTIFICATIONS, 0, 3_000);
+
+        assertEquals(3, registry.getLatencies().size());
+        assertEquals(1, registry.getLatency("default", CallType.OFFERS, "2xx").getCount());
+        assertEquals(1, registry.getLatency("mboxedge28", CallType.OFFERS, "5xx").getCount());
+        assertEquals(1, registry.getLatency("mboxedge28", CallType.NOTIFICATIONS, "error").getCount());
+        assertEquals(0, registry.getLatency("mboxedge31", CallType.OFFERS, "2xx").getCount());
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 50, "expected ~" + expected + " but was " + actual);
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlowCallRecorderTest {
+
+    @Test
+    void testKeepsLastSlowCallsNewestFirst() {
+        SlowCallRecorder recorder = new SlowCallRecorder(3, 100, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 5; i++) {
+            recorder.record(record("slow-" + i, 200, TimeUnit.MILLISECONDS.toNanos(150)));
+            recorder.record(record("fast-" + i, 200, TimeUnit.MILLISECONDS.toNanos(10)));
+        }
+
+        List<CallRecord> slowCalls = recorder.getSlowCalls();
+        assertEquals(3, slowCalls.size());
+        assertEquals("slow-4", slowCalls.get(0).getRequestId());
+        assertEquals("slow-2", slowCalls.get(2).getRequestId());
+        assertTrue(recorder.getFailedCalls().isEmpty());
+    }
+
+    @Test
+    void testKeepsFailedCalls() {
+        SlowCallRecorder recorder = new SlowCallRecorder(2, 1, TimeUnit.SECONDS);
+
+        recorder.record(record("ok", 200, 0));
+        recorder.record(record("timeout", 0, 0));
+        recorder.record(record("server-error", 503, 0));
+        recorder.record(record("no-content", 204, 0));
+
+        List<CallRecord> failedCalls = recorder.getFailedCalls();
+        assertEquals(2, failedCalls.size());
+        assertEquals("server-error", failedCalls.get(0).getRequestId());
+        assertEquals("timeout", failedCalls.get(1).getRequestId());
+        assertTrue(recorder.getSlowCalls().isEmpty());
+
+        recorder.clear();
+        assertTrue(recorder.getFailedCalls().isEmpty());
+    }
+
+    private static CallRecord record(String requestId, int status, long totalNanos) {
+        PhaseTimings timings = new PhaseTimings(new long[Phase.values().length], totalNanos, 0, 0);
+        return new CallRecord(System.currentTimeMillis(), CallType.OFFERS, "default", "url", status, null,
+                requestId, "session", Collections.emptyList(), timings);
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.ondevice;
+
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.MboxResponse;
+import com.adobe.target.delivery.v1.model.Notification;
+import com.adobe.target.delivery.v1.model.Option;
+import com.adobe.target.delivery.v1.model.PrefetchRequest;
+import com.adobe.target.delivery.v1.model.View;
+import com.adobe.target.delivery.v1.model.ViewRequest;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.service.TargetService;
+import com.adobe.target.edge.client.service.VisitorProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class OnDeviceDecisioningServiceTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+    private static final String TEST_TNT_ID = "20250794242226839061607285880759069379.22_33";
+    private static final String ARTIFACT = "{"
+            + "\"version\": \"1\","
+            + "\"mboxes\": {"
+            + "  \"hero\": [{\"activityId\": 1, \"experienceId\": 0,"
+            + "    \"conditions\": [{\"key\": \"mbox.page\", \"operator\": \"equals\", \"values\": [\"home\"]}],"
+            + "    \"options\": [{\"type\": \"html\", \"content\": \"<b>home</b>\", \"eventToken\": \"token-home\"}]}],"
+            + "  \"split\": ["
+            + "    {\"activityId\": 2, \"experienceId\": 0, \"allocation\": [0, 50],"
+            + "     \"options\": [{\"type\": \"json\", \"content\": {\"variant\": \"a\"}, \"eventToken\": \"token-a\"}]},"
+            + "    {\"activityId\": 2, \"experienceId\": 1, \"allocation\": [50, 100],"
+            + "     \"options\": [{\"type\": \"json\", \"content\": {\"variant\": \"b\"}, \"eventToken\": \"token-b\"}]}]"
+            + "},"
+            + "\"views\": {"
+            + "  \"checkout\": [{\"activityId\": 3, \"experienceId\": 0,"
+            + "    \"options\": [{\"type\": \"actions\", \"content\": [], \"eventToken\": \"token-checkout\"}]}]"
+            + "}}";
+
+    @Mock
+    private TargetService remoteService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void initVisitorProvider() {
+        VisitorProvider.init(TEST_ORG_ID);
+    }
+
+    @Test
+    void decidesExecuteMboxesLocally() throws Exception {
+        Mockito.doReturn(CompletableFuture.completedFuture(new ResponseStatus(204, "No Content")))
+                .when(remoteService).executeNotificationAsync(any(TargetDeliveryRequest.class));
+        OnDeviceDecisioningService service = service(DecisioningMethod.ON_DEVICE, writeArtifact());
+
+        TargetDeliveryResponse response = service.executeRequest(executeRequest("hero", "home"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals(TEST_TNT_ID, response.getResponse().getId().getTntId());
+        MboxResponse mbox = response.getResponse().getExecute().getMboxes().get(0);
+        assertEquals("hero", mbox.getName());
+        Option option = mbox.getOptions().get(0);
+        assertEquals("<b>home</b>", option.getContent());
+        assertNull(option.getEventToken());
+        assertEquals("1", option.getResponseTokens().get(DecisioningEngine.ACTIVITY_ID_TOKEN));
+        ArgumentCaptor<TargetDeliveryRequest> notification = ArgumentCaptor.forClass(TargetDeliveryRequest.class);
+        verify(remoteService).executeNotificationAsync(notification.capture());
+        List<Notification> notifications = notification.getValue().getDeliveryRequest().getNotifications();
+        assertEquals(Collections.singletonList("token-home"), notifications.get(0).getTokens());
+        verify(remoteService, never()).executeRequest(any(TargetDeliveryRequest.class));
+
+        TargetDeliveryResponse unqualified = service.executeRequest(executeRequest("hero", "search"));
+        assertTrue(unqualified.getResponse().getExecute().getMboxes().get(0).getOptions().isEmpty());
+    }
+
+    @Test
+    void allocatesVisitorsStablyAcrossExperiences() throws Exception {
+        OnDeviceDecisioningService service = service(DecisioningMethod.ON_DEVICE, writeArtifact());
+        int variantA = 0;
+        for (int i = 0; i < 1000; i++) {
+            String variant = prefetchedVariant(service, "visitor-" + i);
+            assertEquals(variant, prefetchedVariant(service, "visitor-" + i));
+            if ("a".equals(variant)) {
+                variantA++;
+            }
+        }
+        assertTrue(variantA > 400 && variantA < 600, "variant a allocated " + variantA + " of 1000");
+    }
+
+    @Test
+    void prefetchesAllViewsWithEventTokens() throws Exception {
+        OnDeviceDecisioningService service = service(DecisioningMethod.ON_DEVICE, writeArtifact());
+
+        TargetDeliveryResponse response = service.executeRequest(TargetDeliveryRequest.builder()
+                .tntId(TEST_TNT_ID)
+                .prefetch(new PrefetchRequest().addViewsItem(new ViewRequest()))
+                .build());
+
+        View view = response.getResponse().getPrefetch().getViews().get(0);
+        assertEquals("checkout", view.getName());
+        assertEquals("token-checkout", view.getOptions().get(0).getEventToken());
+    }
+
+    @Test
+    void hybridSendsUncoveredRequestsToEdge() throws Exception {
+        OnDeviceDecisioningService service = service(DecisioningMethod.HYBRID, writeArtifact());
+        TargetDeliveryRequest request = executeRequest("unknown", "home");
+
+        service.executeRequest(request);
+
+        verify(remoteService).executeRequest(request);
+    }
+
+    @Test
+    void sendsRequestsToEdgeWithoutArtifact() throws Exception {
+        OnDeviceDecisioningService service = service(DecisioningMethod.ON_DEVICE,
+                tempDir.resolve("missing.json"));
+        TargetDeliveryRequest request = executeRequest("hero", "home");
+
+        service.executeRequest(request);
+
+        assertNull(service.getRulesArtifact());
+        verify(remoteService).executeRequest(request);
+    }
+
+    private OnDeviceDecisioningService service(DecisioningMethod decisioningMethod, Path artifact) {
+        ClientConfig clientConfig = ClientConfig.builder()
+                .client("testclient")
+                .organizationId(TEST_ORG_ID)
+                .decisioningMethod(decisioningMethod)
+                .rulesArtifactLocation(artifact.toString())
+                .rulesArtifactPollingInterval(0)
+                .build();
+        OnDeviceDecisioningService service = new OnDeviceDecisioningService(clientConfig, remoteService);
+        service.getInitialLoad().join();
+        return service;
+    }
+
+    private Path writeArtifact() throws Exception {
+        return Files.write(tempDir.resolve("rules.json"), ARTIFACT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TargetDeliveryRequest executeRequest(String mboxName, String page) {
+        MboxRequest mbox = new MboxRequest().name(mboxName).index(1);
+        mbox.setParameters(Collections.singletonMap("page", page));
+        return TargetDeliveryRequest.builder()
+                .tntId(TEST_TNT_ID)
+                .execute(new ExecuteRequest().addMboxesItem(mbox))
+                .build();
+    }
+
+    private static String prefetchedVariant(OnDeviceDecisioningService service, String thirdPartyId) {
+        TargetDeliveryResponse response = service.executeRequest(TargetDeliveryRequest.builder()
+                .thirdPartyId(thirdPartyId)
+                .prefetch(new PrefetchRequest().addMboxesItem(new MboxRequest().name("split").index(1)))
+                .build());
+        Option option = response.getResponse().getPrefetch().getMboxes().get(0).getOptions().get(0);
+        return (String) ((Map<?, ?>) option.getContent()).get("variant");
+    }
+
+}
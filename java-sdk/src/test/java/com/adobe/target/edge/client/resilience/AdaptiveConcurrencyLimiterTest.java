@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+import com.adobe.target.edge.client.http.TargetHttpClient;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.resilience.AdaptiveConcurrencyLimiter.Algorithm;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void aimdGrowsUnderLoadAndBacksOffOnDrops() {
+        try (AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder()
+                .algorithm(Algorithm.AIMD)
+                .initialLimit(4)
+                .backoffRatio(0.5)
+                .build()) {
+            limiter.acquire().join();
+            limiter.acquire().join();
+            limiter.release(MILLIS, false);
+            limiter.release(MILLIS, false);
+            assertEquals(5, limiter.getLimit());
+
+            limiter.acquire().join();
+            limiter.release(MILLIS, true);
+            assertEquals(2, limiter.getLimit());
+            assertEquals(0, limiter.getInFlight());
+        }
+    }
+
+    @Test
+    void gradientShrinksWhenLatencyRises() {
+        try (AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder()
+                .algorithm(Algorithm.GRADIENT)
+                .initialLimit(20)
+                .build()) {
+            for (int i = 0; i < 20; i++) {
+                limiter.acquire().join();
+            }
+            limiter.release(MILLIS, false);
+            for (int i = 0; i < 9; i++) {
+                limiter.release(10 * MILLIS, false);
+            }
+
+            assertTrue(limiter.getLimit() < 15, "limit " + limiter.getLimit());
+        }
+    }
+
+    @Test
+    void queuedCallIsReleasedByCompletingCall() {
+        try (AdaptiveConcurrencyLimiter limiter = fixedLimiter(1, TimeUnit.SECONDS.toMillis(5))) {
+            limiter.acquire().join();
+            CompletableFuture<Void> queued = limiter.acquire();
+            CompletableFuture<Void> rejected = limiter.acquire();
+
+            assertFalse(queued.isDone());
+            assertTrue(rejected.isCompletedExceptionally());
+            assertEquals(1, limiter.getRejectedCount());
+
+            limiter.release(MILLIS, false);
+            assertTrue(queued.isDone());
+            assertFalse(queued.isCompletedExceptionally());
+            assertEquals(1, limiter.getInFlight());
+        }
+    }
+
+    @Test
+    void queuedCallIsRejectedAfterMaxQueueWait() {
+        try (AdaptiveConcurrencyLimiter limiter = fixedLimiter(1, 10)) {
+            limiter.acquire().join();
+
+            CompletionException e = assertThrows(CompletionException.class, () -> limiter.acquire().join());
+            assertTrue(e.getCause() instanceof ConcurrencyLimitExceededException);
+
+            limiter.release(MILLIS, false);
+            assertEquals(0, limiter.getInFlight());
+            assertEquals(0, limiter.getQueued());
+        }
+    }
+
+    @Test
+    void cancelledAndClientRejectedCallsLeaveTheLimitAlone() throws Exception {
+        TargetHttpClient delegate = Mockito.mock(TargetHttpClient.class);
+        CompletableFuture<Object> cancelled = new CompletableFuture<>();
+        CompletableFuture<Object> rejected = new CompletableFuture<>();
+        Mockito.doReturn(cancelled).doReturn(rejected).when(delegate).executeAsync(any(), any(), any(), any());
+        try (AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder()
+                .algorithm(Algorithm.AIMD)
+                .initialLimit(4)
+                .backoffRatio(0.5)
+                .build();
+             TargetHttpClient client = TargetHttpClient.createLimitingHttpClient(delegate, limiter, null)) {
+            client.executeAsync(Collections.emptyMap(), "http://localhost", "{}", Object.class);
+            client.executeAsync(Collections.emptyMap(), "http://localhost", "{}", Object.class);
+            assertEquals(2, limiter.getInFlight());
+
+            cancelled.cancel(true);
+            rejected.completeExceptionally(new BulkheadFullException("Bulkhead full"));
+
+            assertEquals(4, limiter.getLimit());
+            assertEquals(0, limiter.getInFlight());
+        }
+    }
+
+    @Test
+    void gaugesStayUntilTheLastSharingClientUnregisters() {
+        TargetMetricsRegistry registry = new TargetMetricsRegistry();
+        try (AdaptiveConcurrencyLimiter offers = AdaptiveConcurrencyLimiter.builder().initialLimit(7).build();
+             AdaptiveConcurrencyLimiter other = AdaptiveConcurrencyLimiter.builder().name("other").initialLimit(3)
+                     .build()) {
+            offers.registerMetrics(registry);
+            offers.registerMetrics(registry);
+            other.registerMetrics(registry);
+            assertEquals(7, registry.getGauge("http.concurrency.limit"));
+            assertEquals(3, registry.getGauge("other.limit"));
+
+            offers.unregisterMetrics(registry);
+            assertTrue(registry.getGauges().containsKey("http.concurrency.limit"));
+
+            offers.unregisterMetrics(registry);
+            assertFalse(registry.getGauges().containsKey("http.concurrency.limit"));
+            assertTrue(registry.getGauges().containsKey("other.inflight"));
+        }
+    }
+
+    private static AdaptiveConcurrencyLimiter fixedLimiter(int queueSize, long maxQueueWaitMillis) {
+        return AdaptiveConcurrencyLimiter.builder()
+                .initialLimit(1)
+                .maxLimit(1)
+                .maxQueueSize(queueSize)
+                .maxQueueWait(maxQueueWaitMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.service.DeadlineExceededException;
+import com.adobe.target.edge.client.service.TargetService;
+import com.adobe.target.edge.client.service.VisitorProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CircuitBreakingServiceTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+
+    private final TargetMetricsRegistry metricsRegistry = new TargetMetricsRegistry();
+    private final TargetService remote = Mockito.mock(TargetService.class);
+    private TargetDeliveryRequest degraded;
+    private TargetDeliveryRequest healthy;
+
+    @BeforeEach
+    void init() {
+        VisitorProvider.init(TEST_ORG_ID);
+        degraded = TargetDeliveryRequest.builder().locationHint("34").build();
+        healthy = TargetDeliveryRequest.builder().locationHint("35").build();
+        Mockito.doAnswer(invocation -> {
+            TargetDeliveryRequest request = invocation.getArgument(0);
+            return request == degraded ? response(request, 502) : response(request, 200);
+        }).when(remote).executeRequest(any(TargetDeliveryRequest.class));
+    }
+
+    @Test
+    void answersWithFallbackOnlyForTheFailingCluster() {
+        TargetDeliveryResponse defaultContent = response(degraded, 200);
+        CircuitBreakingService service = service(CircuitBreakerPolicy.builder()
+                .minimumCalls(4)
+                .fallback(request -> defaultContent));
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(502, service.executeRequest(degraded).getStatus());
+            assertEquals(200, service.executeRequest(healthy).getStatus());
+        }
+
+        assertSame(defaultContent, service.executeRequest(degraded));
+        assertSame(defaultContent, service.executeRequestAsync(degraded).join());
+        assertEquals(200, service.executeRequest(healthy).getStatus());
+        assertTrue(service.isOpen("34"));
+        assertFalse(service.isOpen("35"));
+        assertEquals(2, metricsRegistry.getCounter(CircuitBreakingService.REJECTED));
+        verify(remote, times(4)).executeRequest(degraded);
+    }
+
+    @Test
+    void failsFastWithoutFallback() {
+        CircuitBreakingService service = service(CircuitBreakerPolicy.builder().minimumCalls(1));
+
+        service.executeRequest(degraded);
+
+        assertThrows(CircuitBreakerOpenException.class, () -> service.executeRequest(degraded));
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> service.executeRequestAsync(degraded).join());
+        assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+        ResponseStatus status = service.executeNotification(degraded);
+        assertEquals(503, status.getStatus());
+    }
+
+    @Test
+    void closesAfterSuccessfulProbes() throws InterruptedException {
+        CircuitBreakingService service = service(CircuitBreakerPolicy.builder()
+                .minimumCalls(1)
+                .halfOpenCalls(2)
+                .openDuration(20, TimeUnit.MILLISECONDS));
+        CompletableFuture<TargetDeliveryResponse> probe = new CompletableFuture<>();
+        Mockito.doReturn(probe).when(remote).executeRequestAsync(degraded);
+
+        service.executeRequest(degraded);
+        assertTrue(service.isOpen("34"));
+        Thread.sleep(30);
+
+        CompletableFuture<TargetDeliveryResponse> first = service.executeRequestAsync(degraded);
+        CompletableFuture<TargetDeliveryResponse> second = service.executeRequestAsync(degraded);
+        assertThrows(CompletionException.class, () -> service.executeRequestAsync(degraded).join());
+        probe.complete(response(degraded, 200));
+
+        assertEquals(200, first.join().getStatus());
+        assertEquals(200, second.join().getStatus());
+        assertFalse(service.isOpen("34"));
+    }
+
+    @Test
+    void ignoresCancelledAndClientSideFailures() {
+        CircuitBreakingService service = service(CircuitBreakerPolicy.builder().minimumCalls(1));
+        CompletableFuture<TargetDeliveryResponse> pending = new CompletableFuture<>();
+        Mockito.doReturn(pending).when(remote).executeRequestAsync(degraded);
+        Mockito.doThrow(new DeadlineExceededException("Deadline exceeded")).when(remote).executeRequest(degraded);
+
+        assertThrows(DeadlineExceededException.class, () -> service.executeRequest(degraded));
+        assertTrue(service.executeRequestAsync(degraded).cancel(true));
+
+        assertTrue(pending.isCancelled());
+        assertFalse(service.isOpen("34"));
+    }
+
+    @Test
+    void countsCallsAbortedByTheirDeadlineAsFailures() {
+        CircuitBreakingService service = service(CircuitBreakerPolicy.builder().minimumCalls(1));
+        Mockito.doThrow(new DeadlineExceededException("Deadline exceeded calling mboxedge34",
+                new SocketTimeoutException("Read timed out"), true)).when(remote).executeRequest(degraded);
+
+        assertThrows(DeadlineExceededException.class, () -> service.executeRequest(degraded));
+
+        assertTrue(service.isOpen("34"));
+    }
+
+    @Test
+    void releasesProbesThatThrowBeforeTheCall() throws InterruptedException {
+        CircuitBreakingService service = service(CircuitBreakerPolicy.builder()
+                .minimumCalls(1)
+                .halfOpenCalls(1)
+                .openDuration(20, TimeUnit.MILLISECONDS));
+        service.executeRequest(degraded);
+        assertTrue(service.isOpen("34"));
+        Thread.sleep(30);
+
+        Mockito.doThrow(new ConcurrencyLimitExceededException("Limit exceeded"))
+                .when(remote).executeRequestAsync(degraded);
+        assertThrows(ConcurrencyLimitExceededException.class, () -> service.executeRequestAsync(degraded));
+
+        Mockito.doReturn(CompletableFuture.completedFuture(response(degraded, 200)))
+                .when(remote).executeRequestAsync(degraded);
+        assertEquals(200, service.executeRequestAsync(degraded).join().getStatus());
+        assertFalse(service.isOpen("34"));
+    }
+
+    private CircuitBreakingService service(CircuitBreakerPolicy.CircuitBreakerPolicyBuilder policy) {
+        return new CircuitBreakingService(ClientConfig.builder()
+                .client("emeaprod4")
+                .organizationId(TEST_ORG_ID)
+                .metricsRegistry(metricsRegistry)
+                .circuitBreakerPolicy(policy.build())
+                .build(), remote);
+    }
+
+    private static TargetDeliveryResponse response(TargetDeliveryRequest request, int status) {
+        return new TargetDeliveryResponse(request, new DeliveryResponse().status(status), status, "");
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.PrefetchRequest;
+import com.adobe.target.delivery.v1.model.VisitorId;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.TargetClient;
+import com.adobe.target.edge.client.metrics.CallType;
+import com.adobe.target.edge.client.metrics.TargetMetricKey;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.service.VisitorProvider;
+import com.adobe.target.edge.client.testing.MockDeliveryEdge;
+import com.adobe.target.edge.client.testing.MockResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestHedgerTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+
+    private final TargetMetricsRegistry metricsRegistry = new TargetMetricsRegistry();
+
+    @Test
+    void takesTheHedgeWhenTheCallIsSlow() {
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        try (RequestHedger hedger = hedger(1.0)) {
+            String result = hedger.execute(hedge -> hedge ? CompletableFuture.completedFuture("hedge") : primary,
+                    (response, throwable) -> throwable == null).join();
+
+            assertEquals("hedge", result);
+            assertTrue(primary.isCancelled());
+            assertEquals(1, metricsRegistry.getCounter(RequestHedger.HEDGES_SENT));
+            assertEquals(1, metricsRegistry.getCounter(RequestHedger.HEDGES_WON));
+        }
+    }
+
+    @Test
+    void doesNotHedgeFastCalls() throws Exception {
+        AtomicInteger hedges = new AtomicInteger();
+        try (RequestHedger hedger = hedger(1.0)) {
+            String result = hedger.execute(hedge -> {
+                if (hedge) {
+                    hedges.incrementAndGet();
+                }
+                return CompletableFuture.completedFuture("primary");
+            }, (response, throwable) -> throwable == null).join();
+            Thread.sleep(50);
+
+            assertEquals("primary", result);
+            assertEquals(0, hedges.get());
+        }
+    }
+
+    @Test
+    void capsTheHedgeRate() throws Exception {
+        AtomicInteger hedges = new AtomicInteger();
+        try (RequestHedger hedger = hedger(0.1)) {
+            for (int i = 0; i < 50; i++) {
+                CompletableFuture<String> primary = new CompletableFuture<>();
+                CompletableFuture<String> result = hedger.execute(hedge -> {
+                    if (hedge) {
+                        hedges.incrementAndGet();
+                        return new CompletableFuture<>();
+                    }
+                    return primary;
+                }, (response, throwable) -> throwable == null);
+                Thread.sleep(15);
+                primary.complete("primary");
+                assertEquals("primary", result.join());
+            }
+            assertTrue(hedges.get() <= 5, hedges.get() + " hedges for 50 calls");
+        }
+    }
+
+    @Test
+    void usesTheHedgeOutcomeWhenTheCallFails() {
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        CompletableFuture<String> hedged = new CompletableFuture<>();
+        try (RequestHedger hedger = hedger(1.0)) {
+            CompletableFuture<String> result = hedger.execute(hedge -> hedge ? hedged : primary,
+                    (response, throwable) -> throwable == null);
+            while (metricsRegistry.getCounter(RequestHedger.HEDGES_SENT) == 0) {
+                Thread.yield();
+            }
+            primary.completeExceptionally(new IllegalStateException("reset"));
+            assertFalse(result.isDone());
+
+            hedged.complete("hedge");
+            assertEquals("hedge", result.join());
+        }
+    }
+
+    @Test
+    void cancelsAHedgeSentAfterTheCallFailed() {
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        CompletableFuture<String> hedged = new CompletableFuture<>();
+        try (RequestHedger hedger = hedger(1.0)) {
+            CompletableFuture<String> result = hedger.execute(hedge -> {
+                if (hedge) {
+                    primary.completeExceptionally(new IllegalStateException("reset"));
+                    return hedged;
+                }
+                return primary;
+            }, (response, throwable) -> throwable == null);
+
+            assertThrows(CompletionException.class, result::join);
+            while (!hedged.isDone()) {
+                Thread.yield();
+            }
+            assertTrue(hedged.isCancelled());
+        }
+    }
+
+    @Test
+    void hedgesSlowClustersToTheDefaultHost() throws Exception {
+        VisitorProvider.init(TEST_ORG_ID);
+        try (MockDeliveryEdge edge = MockDeliveryEdge.builder()
+                .responder(request -> {
+                    MockResponse response = MockResponse.ok(new DeliveryResponse()
+                            .status(200)
+                            .edgeHost(request.getHost())
+                            .id(new VisitorId().tntId("20250794242226839061607285880759069379.22_33")));
+                    return request.getHost().startsWith("mboxedge") ? response.delay(2, TimeUnit.SECONDS) : response;
+                })
+                .start();
+             TargetClient targetClient = TargetClient.create(edge.configure(ClientConfig.builder()
+                     .client("testclient")
+                     .organizationId(TEST_ORG_ID)
+                     .metricsRegistry(metricsRegistry)
+                     .hedgingPolicy(HedgingPolicy.builder()
+                             .delay(50, TimeUnit.MILLISECONDS)
+                             .maxHedgeRate(1.0)
+                             .build()))
+                     .build())) {
+            long startNanos = System.nanoTime();
+            TargetDeliveryResponse response = targetClient.getOffers(TargetDeliveryRequest.builder()
+                    .locationHint("22")
+                    .prefetch(new PrefetchRequest().addMboxesItem(new MboxRequest().name("hero").index(1)))
+                    .build());
+
+            assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(1));
+            assertTrue(response.getResponse().getEdgeHost().startsWith("testclient."));
+            assertEquals(1, metricsRegistry.getCounter(RequestHedger.HEDGES_WON));
+            assertEquals(1, metricsRegistry.getLatency(TargetMetricKey.DEFAULT_ENDPOINT, CallType.OFFERS, "2xx")
+                    .getCount());
+            assertEquals(0, metricsRegistry.getLatency("mboxedge22", CallType.OFFERS, "2xx").getCount());
+        }
+    }
+
+    private RequestHedger hedger(double maxHedgeRate) {
+        return new RequestHedger(HedgingPolicy.builder()
+                .delay(10, TimeUnit.MILLISECONDS)
+                .minDelay(1, TimeUnit.MILLISECONDS)
+                .maxHedgeRate(maxHedgeRate)
+                .build(), metricsRegistry);
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.resilience;
+
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.PrefetchRequest;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.service.TargetService;
+import com.adobe.target.edge.client.service.VisitorProvider;
+import kong.unirest.UnirestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class RetryingServiceTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+
+    private final TargetMetricsRegistry metricsRegistry = new TargetMetricsRegistry();
+    private final TargetService remote = Mockito.mock(TargetService.class);
+    private TargetDeliveryRequest prefetch;
+    private TargetDeliveryRequest execute;
+
+    @BeforeEach
+    void init() {
+        VisitorProvider.init(TEST_ORG_ID);
+        prefetch = TargetDeliveryRequest.builder()
+                .prefetch(new PrefetchRequest().addMboxesItem(new MboxRequest().index(1).name("mbox")))
+                .build();
+        execute = TargetDeliveryRequest.builder()
+                .execute(new ExecuteRequest().addMboxesItem(new MboxRequest().index(1).name("mbox")))
+                .build();
+    }
+
+    @Test
+    void retriesPrefetchOnRetryableStatus() {
+        Mockito.doReturn(response(prefetch, 503), response(prefetch, 200))
+                .when(remote).executeRequest(prefetch);
+        RetryingService service = service(policy(), null);
+
+        assertEquals(200, service.executeRequest(prefetch).getStatus());
+
+        verify(remote, times(2)).executeRequest(prefetch);
+        assertEquals(1, metricsRegistry.getCounter("offers.retries"));
+    }
+
+    @Test
+    void retriesExecuteOnlyWhenNotProcessed() {
+        Mockito.doReturn(response(execute, 502)).when(remote).executeRequest(execute);
+        RetryingService service = service(policy(), null);
+
+        assertEquals(502, service.executeRequest(execute).getStatus());
+        verify(remote, times(1)).executeRequest(execute);
+
+        Mockito.doThrow(new UnirestException(new SocketTimeoutException("Read timed out")))
+                .when(remote).executeRequest(execute);
+        assertThrows(UnirestException.class, () -> service.executeRequest(execute));
+        verify(remote, times(2)).executeRequest(execute);
+
+        Mockito.doReturn(response(execute, 429), response(execute, 200)).when(remote).executeRequest(execute);
+        assertEquals(200, service.executeRequest(execute).getStatus());
+        verify(remote, times(4)).executeRequest(execute);
+    }
+
+    @Test
+    void retriesNotificationsThatCouldNotConnect() {
+        CompletableFuture<ResponseStatus> refused = new CompletableFuture<>();
+        refused.completeExceptionally(new UnirestException(new ConnectException("Connection refused")));
+        Mockito.doReturn(refused, CompletableFuture.completedFuture(new ResponseStatus(200, "OK")))
+                .when(remote).executeNotificationAsync(any(TargetDeliveryRequest.class));
+        RetryingService service = service(null, policy());
+
+        assertEquals(200, service.executeNotificationAsync(execute).join().getStatus());
+        assertEquals(1, metricsRegistry.getCounter("notifications.retries"));
+    }
+
+    @Test
+    void stopsRetryingWhenBudgetIsSpent() {
+        Mockito.doReturn(response(prefetch, 503)).when(remote).executeRequest(prefetch);
+        RetryingService service = service(RetryPolicy.builder()
+                .maxAttempts(5)
+                .initialBackoff(1, TimeUnit.MILLISECONDS)
+                .maxBurst(2)
+                .budgetRatio(0)
+                .build(), null);
+
+        assertEquals(503, service.executeRequest(prefetch).getStatus());
+        assertEquals(503, service.executeRequest(prefetch).getStatus());
+
+        verify(remote, times(4)).executeRequest(prefetch);
+        assertEquals(2, metricsRegistry.getCounter("offers.retries"));
+        assertEquals(2, metricsRegistry.getCounter("offers.retries.throttled"));
+    }
+
+    private RetryingService service(RetryPolicy offers, RetryPolicy notifications) {
+        return new RetryingService(ClientConfig.builder()
+                .client("emeaprod4")
+                .organizationId(TEST_ORG_ID)
+                .metricsRegistry(metricsRegistry)
+                .offersRetryPolicy(offers)
+                .notificationsRetryPolicy(notifications)
+                .build(), remote);
+    }
+
+    private static RetryPolicy policy() {
+        return RetryPolicy.builder()
+                .initialBackoff(1, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private static TargetDeliveryResponse response(TargetDeliveryRequest request, int status) {
+        return new TargetDeliveryResponse(request, new DeliveryResponse().status(status), status, "");
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.delivery.v1.model.ExecuteResponse;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.MboxResponse;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.TargetClient;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.testing.MockDeliveryEdge;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchingServiceTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+    private static final String SESSION_ID = "38f8b9b5-0a7c-4e52-9a0e-3d5a6cfd4c1e";
+
+    private final TargetMetricsRegistry metricsRegistry = new TargetMetricsRegistry();
+    private MockDeliveryEdge edge;
+    private TargetClient targetClient;
+
+    @BeforeEach
+    void init() {
+        VisitorProvider.init(TEST_ORG_ID);
+        edge = MockDeliveryEdge.start();
+        targetClient = TargetClient.create(edge.configure(ClientConfig.builder()
+                .client("testclient")
+                .organizationId(TEST_ORG_ID)
+                .metricsRegistry(metricsRegistry)
+                .batchWindow(100)
+                .batchMaxMboxes(4))
+                .build());
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        targetClient.close();
+        edge.close();
+    }
+
+    @Test
+    void mergesMboxesOfTheSameSession() throws Exception {
+        ScheduledExecutorService timer = mock(ScheduledExecutorService.class);
+        ArgumentCaptor<Runnable> windowEnd = ArgumentCaptor.forClass(Runnable.class);
+        doReturn(mock(ScheduledFuture.class)).when(timer).schedule(windowEnd.capture(), anyLong(), any());
+        TargetService downstream = mock(TargetService.class);
+        ArgumentCaptor<TargetDeliveryRequest> sent = ArgumentCaptor.forClass(TargetDeliveryRequest.class);
+        when(downstream.executeRequestAsync(sent.capture())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(echo(invocation.getArgument(0))));
+        BatchingService batching = new BatchingService(ClientConfig.builder()
+                .client("testclient")
+                .organizationId(TEST_ORG_ID)
+                .metricsRegistry(metricsRegistry)
+                .batchWindow(100)
+                .batchMaxMboxes(4)
+                .build(), downstream, timer, Runnable::run);
+
+        CompletableFuture<TargetDeliveryResponse> header = batching.executeRequestAsync(execute(SESSION_ID, "header"));
+        CompletableFuture<TargetDeliveryResponse> footer = batching.executeRequestAsync(
+                execute(SESSION_ID, "footer", "banner"));
+        assertFalse(header.isDone());
+        verify(downstream, never()).executeRequestAsync(any());
+
+        windowEnd.getValue().run();
+
+        assertEquals(Arrays.asList("header:1"), mboxes(header.getNow(null)));
+        assertEquals(Arrays.asList("footer:1", "banner:2"), mboxes(footer.getNow(null)));
+        assertEquals(header.get().getRequest().getRequestId(), header.get().getResponse().getRequestId());
+        assertEquals(footer.get().getRequest().getRequestId(), footer.get().getResponse().getRequestId());
+        verify(downstream, times(1)).executeRequestAsync(any());
+        assertEquals(Arrays.asList(1, 2, 3), sent.getValue().getDeliveryRequest().getExecute().getMboxes()
+                .stream().map(MboxRequest::getIndex).collect(Collectors.toList()));
+        assertEquals(1, metricsRegistry.getCounter(BatchingService.OFFERS_BATCHED));
+    }
+
+    @Test
+    void keepsSessionsApart() throws Exception {
+        CompletableFuture<TargetDeliveryResponse> first = targetClient.getOffersAsync(execute(SESSION_ID, "header"));
+        CompletableFuture<TargetDeliveryResponse> second = targetClient.getOffersAsync(
+                execute("a8a1b2d6-5f0e-4c8e-9e43-2b7f8f0c9d11", "header"));
+
+        assertEquals(Arrays.asList("header:1"), mboxes(first.get(5, TimeUnit.SECONDS)));
+        assertEquals(Arrays.asList("header:1"), mboxes(second.get(5, TimeUnit.SECONDS)));
+        assertEquals(2, edge.getRequestCount());
+    }
+
+    @Test
+    void sendsFullBatchesBeforeTheWindowEnds() throws Exception {
+        try (TargetClient longWindowClient = TargetClient.create(edge.configure(ClientConfig.builder()
+                .client("testclient")
+                .organizationId(TEST_ORG_ID)
+                .batchWindow(TimeUnit.MINUTES.toMillis(1))
+                .batchMaxMboxes(4))
+                .build())) {
+            CompletableFuture<TargetDeliveryResponse> first = longWindowClient.getOffersAsync(
+                    execute(SESSION_ID, "a", "b"));
+            CompletableFuture<TargetDeliveryResponse> second = longWindowClient.getOffersAsync(
+                    execute(SESSION_ID, "c", "d"));
+
+            assertEquals(Arrays.asList("a:1", "b:2"), mboxes(first.get(5, TimeUnit.SECONDS)));
+            assertEquals(Arrays.asList("c:1", "d:2"), mboxes(second.get(5, TimeUnit.SECONDS)));
+            assertEquals(1, edge.getRequestCount());
+        }
+    }
+
+    @Test
+    void keepsTracesApart() throws Exception {
+        TargetDeliveryRequest first = TargetDeliveryRequest.builder()
+                .sessionId(SESSION_ID)
+                .execute(new ExecuteRequest().addMboxesItem(new MboxRequest().name("header").index(1)))
+                .traceParent("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01")
+                .build();
+        TargetDeliveryRequest second = TargetDeliveryRequest.builder()
+                .sessionId(SESSION_ID)
+                .execute(new ExecuteRequest().addMboxesItem(new MboxRequest().name("footer").index(1)))
+                .traceParent("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01")
+                .build();
+
+        CompletableFuture<TargetDeliveryResponse> header = targetClient.getOffersAsync(first);
+        CompletableFuture<TargetDeliveryResponse> footer = targetClient.getOffersAsync(second);
+
+        assertEquals(Arrays.asList("header:1"), mboxes(header.get(5, TimeUnit.SECONDS)));
+        assertEquals(Arrays.asList("footer:1"), mboxes(footer.get(5, TimeUnit.SECONDS)));
+        assertEquals(2, edge.getRequestCount());
+    }
+
+    @Test
+    void closeCompletesOpenBatches() throws Exception {
+        TargetClient longWindowClient = TargetClient.create(edge.configure(ClientConfig.builder()
+                .client("testclient")
+                .organizationId(TEST_ORG_ID)
+                .batchWindow(TimeUnit.MINUTES.toMillis(1)))
+                .build());
+        CompletableFuture<TargetDeliveryResponse> header = longWindowClient.getOffersAsync(
+                execute(SESSION_ID, "header"));
+
+        longWindowClient.close();
+
+        assertTrue(header.isDone());
+        assertEquals(Arrays.asList("header:1"), mboxes(header.get()));
+    }
+
+    private static TargetDeliveryRequest execute(String sessionId, String... mboxes) {
+        ExecuteRequest execute = new ExecuteRequest();
+        for (int i = 0; i < mboxes.length; i++) {
+            execute.addMboxesItem(new MboxRequest().name(mboxes[i]).index(i + 1));
+        }
+        return TargetDeliveryRequest.builder()
+                .sessionId(sessionId)
+                .requestId(UUID.randomUUID().toString())
+                .execute(execute)
+                .build();
+    }
+
+    private static TargetDeliveryResponse echo(TargetDeliveryRequest request) {
+        ExecuteResponse execute = new ExecuteResponse();
+        for (MboxRequest mbox : request.getDeliveryRequest().getExecute().getMboxes()) {
+            execute.addMboxesItem(new MboxResponse().name(mbox.getName()).index(mbox.getIndex()));
+        }
+        return new TargetDeliveryResponse(request, new DeliveryResponse().status(200)
+                .requestId(request.getDeliveryRequest().getRequestId()).execute(execute), 200, "OK");
+    }
+
+    private static List<String> mboxes(TargetDeliveryResponse response) {
+        return response.getResponse().getExecute().getMboxes().stream()
+                .map(mbox -> mbox.getName() + ":" + mbox.getIndex())
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.Notification;
+import com.adobe.target.delivery.v1.model.NotificationMbox;
+import com.adobe.target.delivery.v1.model.PrefetchRequest;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.TargetClient;
+import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.http.TargetHttpClientBulkheadDecorator;
+import com.adobe.target.edge.client.metrics.ConnectionPoolStats;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.resilience.BulkheadFullException;
+import com.adobe.target.edge.client.resilience.BulkheadPolicy;
+import com.adobe.target.edge.client.testing.MockDeliveryEdge;
+import com.adobe.target.edge.client.testing.MockResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+
+    private final TargetMetricsRegistry metricsRegistry = new TargetMetricsRegistry();
+
+    @Test
+    void slowNotificationsDoNotHoldBackGetOffers() throws Exception {
+        VisitorProvider.init(TEST_ORG_ID);
+        try (MockDeliveryEdge edge = MockDeliveryEdge.builder()
+                .responder(request -> request.getDeliveryRequest().getNotifications() == null
+                        ? MockResponse.ok(new DeliveryResponse().status(200))
+                        : MockResponse.ok(new DeliveryResponse().status(200)).delay(2, TimeUnit.SECONDS))
+                .start();
+             TargetClient targetClient = TargetClient.create(edge.configure(ClientConfig.builder()
+                     .client("testclient")
+                     .organizationId(TEST_ORG_ID)
+                     .metricsRegistry(metricsRegistry)
+                     .maxConnectionsPerHost(1)
+                     .notificationsBulkhead(BulkheadPolicy.builder()
+                             .maxConnectionsPerHost(2)
+                             .maxConcurrentCalls(2)
+                             .build()))
+                     .build())) {
+            CompletableFuture<ResponseStatus> first = targetClient.sendNotificationsAsync(notification("1"));
+            CompletableFuture<ResponseStatus> second = targetClient.sendNotificationsAsync(notification("2"));
+            CompletableFuture<ResponseStatus> rejected = targetClient.sendNotificationsAsync(notification("3"));
+
+            ExecutionException error = assertThrows(ExecutionException.class, rejected::get);
+            assertTrue(error.getCause() instanceof BulkheadFullException);
+            assertEquals(1, metricsRegistry.getCounter(TargetHttpClientBulkheadDecorator.NOTIFICATIONS_REJECTED));
+
+            long startNanos = System.nanoTime();
+            TargetDeliveryResponse response = targetClient.getOffers(TargetDeliveryRequest.builder()
+                    .prefetch(new PrefetchRequest().addMboxesItem(new MboxRequest().name("hero").index(1)))
+                    .build());
+            assertEquals(200, response.getStatus());
+            assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(1));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (leasedConnections("notifications") < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(2, leasedConnections("notifications"));
+
+            assertEquals(200, first.get(5, TimeUnit.SECONDS).getStatus());
+            assertEquals(200, second.get(5, TimeUnit.SECONDS).getStatus());
+        }
+    }
+
+    private static TargetDeliveryRequest notification(String id) {
+        return TargetDeliveryRequest.builder()
+                .notifications(Collections.singletonList(
+                        new Notification().id(id).mbox(new NotificationMbox().name("hero"))))
+                .build();
+    }
+
+    private int leasedConnections(String bulkhead) {
+        return metricsRegistry.getConnectionPoolStats().stream()
+                .filter(stats -> stats.getPool() == ConnectionPoolStats.Pool.ASYNC)
+                .filter(stats -> bulkhead.equals(stats.getBulkhead()))
+                .filter(stats -> ConnectionPoolStats.TOTAL.equals(stats.getRoute()))
+                .mapToInt(ConnectionPoolStats::getLeased)
+                .sum();
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.PrefetchRequest;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.TargetClient;
+import com.adobe.target.edge.client.metrics.ConnectionPoolStats;
+import com.adobe.target.edge.client.metrics.SlowCallRecorder;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.testing.MockDeliveryEdge;
+import com.adobe.target.edge.client.testing.MockResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallCancellationTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+
+    private final TargetMetricsRegistry metricsRegistry = new TargetMetricsRegistry();
+    private final SlowCallRecorder slowCallRecorder = new SlowCallRecorder(10, 1, TimeUnit.MILLISECONDS);
+
+    @Test
+    void cancellingGetOffersAsyncAbortsTheExchange() throws Exception {
+        VisitorProvider.init(TEST_ORG_ID);
+        try (MockDeliveryEdge edge = MockDeliveryEdge.builder()
+                .responder(request -> MockResponse.ok(new DeliveryResponse().status(200)).delay(5, TimeUnit.SECONDS))
+                .start();
+             TargetClient targetClient = TargetClient.create(edge.configure(ClientConfig.builder()
+                     .client("testclient")
+                     .organizationId(TEST_ORG_ID)
+                     .metricsRegistry(metricsRegistry)
+                     .slowCallRecorder(slowCallRecorder))
+                     .build())) {
+            CompletableFuture<TargetDeliveryResponse> future = targetClient.getOffersAsync(
+                    TargetDeliveryRequest.builder()
+                            .prefetch(new PrefetchRequest().addMboxesItem(new MboxRequest().name("hero").index(1)))
+                            .build());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (leasedConnections() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, leasedConnections());
+
+            assertTrue(future.cancel(true));
+
+            while (leasedConnections() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(0, leasedConnections());
+            assertEquals(1, metricsRegistry.getCounter(DefaultTargetService.OFFERS_CANCELLED));
+            Thread.sleep(50);
+            assertTrue(slowCallRecorder.getSlowCalls().isEmpty());
+            assertTrue(slowCallRecorder.getFailedCalls().isEmpty());
+        }
+    }
+
+    private int leasedConnections() {
+        return metricsRegistry.getConnectionPoolStats().stream()
+                .filter(stats -> stats.getPool() == ConnectionPoolStats.Pool.ASYNC)
+                .filter(stats -> ConnectionPoolStats.TOTAL.equals(stats.getRoute()))
+                .mapToInt(ConnectionPoolStats::getLeased)
+                .sum();
+    }
+
+}
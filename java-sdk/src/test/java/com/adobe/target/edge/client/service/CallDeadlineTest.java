@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.PrefetchRequest;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.TargetClient;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.testing.MockDeliveryEdge;
+import com.adobe.target.edge.client.testing.MockResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallDeadlineTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+
+    @BeforeEach
+    void init() {
+        VisitorProvider.init(TEST_ORG_ID);
+    }
+
+    @Test
+    void abortsCallsPastTheirDeadline() throws Exception {
+        try (MockDeliveryEdge edge = slowEdge();
+             TargetClient targetClient = client(edge)) {
+            long startNanos = System.nanoTime();
+            TargetRequestException e = assertThrows(TargetRequestException.class,
+                    () -> targetClient.getOffers(request("slow", 100)));
+
+            assertTrue(e.getCause() instanceof DeadlineExceededException);
+            assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(1));
+            assertEquals(200, targetClient.getOffers(request("fast", 1000)).getStatus());
+        }
+    }
+
+    @Test
+    void abortsAsyncCallsPastTheirDeadline() throws Exception {
+        try (MockDeliveryEdge edge = slowEdge();
+             TargetClient targetClient = client(edge)) {
+            long startNanos = System.nanoTime();
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> targetClient.getOffersAsync(request("slow", 100)).join());
+
+            assertTrue(e.getCause() instanceof DeadlineExceededException);
+            assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(1));
+            assertEquals(200, targetClient.getOffersAsync(request("fast", 1000)).join().getStatus());
+        }
+    }
+
+    private static MockDeliveryEdge slowEdge() {
+        return MockDeliveryEdge.builder()
+                .responder(request -> {
+                    MockResponse response = MockResponse.ok(new DeliveryResponse().status(200));
+                    return request.getBody().contains("slow") ? response.delay(2, TimeUnit.SECONDS) : response;
+                })
+                .start();
+    }
+
+    private static TargetClient client(MockDeliveryEdge edge) {
+        return TargetClient.create(edge.configure(ClientConfig.builder()
+                .client("testclient")
+                .organizationId(TEST_ORG_ID))
+                .build());
+    }
+
+    private static TargetDeliveryRequest request(String mbox, long deadlineMillis) {
+        return TargetDeliveryRequest.builder()
+                .prefetch(new PrefetchRequest().addMboxesItem(new MboxRequest().name(mbox).index(1)))
+                .deadline(deadlineMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.PrefetchRequest;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.TargetClient;
+import com.adobe.target.edge.client.metrics.TargetMetricsRegistry;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.testing.MockDeliveryEdge;
+import com.adobe.target.edge.client.testing.MockResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoalescingServiceTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+    private static final String SESSION_ID = "38f8b9b5-0a7c-4e52-9a0e-3d5a6cfd4c1e";
+
+    private final TargetMetricsRegistry metricsRegistry = new TargetMetricsRegistry();
+    private MockDeliveryEdge edge;
+    private TargetClient targetClient;
+
+    @BeforeEach
+    void init() {
+        VisitorProvider.init(TEST_ORG_ID);
+        edge = MockDeliveryEdge.builder()
+                .responder(request -> MockResponse.ok(new DeliveryResponse().status(200))
+                        .delay(300, TimeUnit.MILLISECONDS))
+                .start();
+        targetClient = TargetClient.create(edge.configure(ClientConfig.builder()
+                .client("testclient")
+                .organizationId(TEST_ORG_ID)
+                .metricsRegistry(metricsRegistry)
+                .coalesceRequests(true))
+                .build());
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        targetClient.close();
+        edge.close();
+    }
+
+    @Test
+    void identicalRequestsShareOneCall() throws Exception {
+        CompletableFuture<TargetDeliveryResponse> first = targetClient.getOffersAsync(prefetch("1", "hero"));
+        CompletableFuture<TargetDeliveryResponse> second = targetClient.getOffersAsync(prefetch("2", "hero"));
+        TargetDeliveryResponse third = targetClient.getOffers(prefetch("3", "hero"));
+
+        assertEquals(200, first.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(200, second.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(200, third.getStatus());
+        assertEquals("2", second.get().getRequest().getRequestId());
+        assertEquals("3", third.getRequest().getRequestId());
+        assertEquals("1", first.get().getResponse().getRequestId());
+        assertEquals("2", second.get().getResponse().getRequestId());
+        assertEquals("3", third.getResponse().getRequestId());
+        assertEquals(1, edge.getRequestCount());
+        assertEquals(2, metricsRegistry.getCounter(CoalescingService.OFFERS_COALESCED));
+    }
+
+    @Test
+    void differentRequestsAreSentSeparately() throws Exception {
+        CompletableFuture<TargetDeliveryResponse> first = targetClient.getOffersAsync(prefetch("1", "hero"));
+        CompletableFuture<TargetDeliveryResponse> second = targetClient.getOffersAsync(prefetch("2", "footer"));
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(2, edge.getRequestCount());
+        assertEquals(0, metricsRegistry.getCounter(CoalescingService.OFFERS_COALESCED));
+    }
+
+    @Test
+    void sharedCallOutlivesCancelledWaiters() throws Exception {
+        CompletableFuture<TargetDeliveryResponse> first = targetClient.getOffersAsync(prefetch("1", "hero"));
+        CompletableFuture<TargetDeliveryResponse> second = targetClient.getOffersAsync(prefetch("2", "hero"));
+
+        assertTrue(first.cancel(true));
+
+        assertEquals(200, second.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(0, metricsRegistry.getCounter(DefaultTargetService.OFFERS_CANCELLED));
+    }
+
+    private static TargetDeliveryRequest prefetch(String requestId, String mbox) {
+        return TargetDeliveryRequest.builder()
+                .sessionId(SESSION_ID)
+                .requestId(requestId)
+                .prefetch(new PrefetchRequest().addMboxesItem(new MboxRequest().name(mbox).index(1)))
+                .build();
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+import com.adobe.target.delivery.v1.model.Context;
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.Notification;
+import com.adobe.target.delivery.v1.model.NotificationMbox;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.http.DefaultTargetHttpClient;
+import com.adobe.target.edge.client.http.ResponseStatus;
+import com.adobe.target.edge.client.metrics.CallType;
+import com.adobe.target.edge.client.metrics.PhaseTimings;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.tracing.TargetSpan;
+import com.adobe.target.edge.client.tracing.TargetTracer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import kong.unirest.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultTargetServiceTest {
+
+    static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+
+    @Mock
+    private DefaultTargetHttpClient defaultTargetHttpClient;
+
+    @Mock
+    private HttpResponse<Void> emptyResponse;
+
+    private DefaultTargetService targetService;
+
+    @BeforeEach
+    void init() throws NoSuchFieldException {
+        Mockito.lenient().doReturn(HttpStatus.SC_NO_CONTENT).when(emptyResponse).getStatus();
+        Mockito.lenient().doReturn(emptyResponse)
+                .when(defaultTargetHttpClient).executeDiscardingBody(any(Map.class), any(String.class),
+                any(DeliveryRequest.class));
+        Mockito.lenient().doReturn(CompletableFuture.completedFuture(emptyResponse))
+                .when(defaultTargetHttpClient).executeDiscardingBodyAsync(any(Map.class), any(String.class),
+                any(DeliveryRequest.class));
+
+        ClientConfig clientConfig = ClientConfig.builder()
+                .client("emeaprod4")
+                .organizationId(TEST_ORG_ID)
+                .build();
+        targetService = new DefaultTargetService(clientConfig);
+        FieldSetter.setField(targetService, targetService.getClass()
+                .getDeclaredField("targetHttpClient"), defaultTargetHttpClient);
+    }
+
+    @Test
+    void testBeaconNotificationDiscardsBody() {
+        TargetDeliveryRequest request = TargetDeliveryRequest.fromRequest(new DeliveryRequest()
+                .context(new Context().beacon(true)));
+
+        ResponseStatus status = targetService.executeNotification(request);
+
+        assertEquals(HttpStatus.SC_NO_CONTENT, status.getStatus());
+        verify(defaultTargetHttpClient).executeDiscardingBody(any(Map.class), any(String.class),
+                any(DeliveryRequest.class));
+        verify(defaultTargetHttpClient, never()).execute(any(Map.class), any(String.class),
+                any(DeliveryRequest.class), any(Class.class));
+    }
+
+    @Test
+    void testBeaconNotificationAsyncDiscardsBody() {
+        TargetDeliveryRequest request = TargetDeliveryRequest.fromRequest(new DeliveryRequest()
+                .context(new Context().beacon(true)));
+
+        ResponseStatus status = targetService.executeNotificationAsync(request).join();
+
+        assertEquals(HttpStatus.SC_NO_CONTENT, status.getStatus());
+        verify(defaultTargetHttpClient, never()).executeAsync(any(Map.class), any(String.class),
+                any(DeliveryRequest.class), any(Class.class));
+    }
+
+    @Test
+    void testTracerSpanWrapsCall() throws NoSuchFieldException {
+        TargetSpan span = Mockito.mock(TargetSpan.class);
+        TargetTracer tracer = Mockito.mock(TargetTracer.class);
+        Mockito.doReturn(span).when(tracer).startSpan(any(CallType.class), any(String.class), any());
+        DefaultTargetService tracedService = new DefaultTargetService(ClientConfig.builder()
+                .client("emeaprod4")
+                .organizationId(TEST_ORG_ID)
+                .tracer(tracer)
+                .build());
+        FieldSetter.setField(tracedService, tracedService.getClass()
+                .getDeclaredField("targetHttpClient"), defaultTargetHttpClient);
+        TargetDeliveryRequest request = TargetDeliveryRequest.fromRequest(new DeliveryRequest()
+                .context(new Context().beacon(true)));
+
+        tracedService.executeNotificationAsync(request).join();
+
+        verify(tracer).startSpan(CallType.NOTIFICATIONS, "https://emeaprod4.tt.omtrdc.net/rest/v1/delivery", null);
+        verify(span).end(eq(HttpStatus.SC_NO_CONTENT), isNull(), any(PhaseTimings.class));
+    }
+
+    @Test
+    void testDeliveryCallRecordedByFlightRecorder() throws Exception {
+        TargetDeliveryRequest request = TargetDeliveryRequest.fromRequest(new DeliveryRequest()
+                .context(new Context().beacon(true))
+                .notifications(Arrays.asList(
+                        new Notification().id("1").mbox(new NotificationMbox().name("mbox1")),
+                        new Notification().id("2").mbox(new NotificationMbox().name("mbox2")))));
+        Path dump = Files.createTempFile("target-delivery", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.adobe.target.DeliveryCall");
+            recording.start();
+            targetService.executeNotification(request);
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        Files.delete(dump);
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("NOTIFICATIONS", event.getString("callType"));
+        assertEquals("default", event.getString("endpoint"));
+        assertEquals(HttpStatus.SC_NO_CONTENT, event.getInt("status"));
+        assertEquals(2, event.getInt("mboxCount"));
+    }
+
+}
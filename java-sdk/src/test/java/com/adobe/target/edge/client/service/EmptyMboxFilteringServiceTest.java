@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.service;
+
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.delivery.v1.model.ExecuteResponse;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.MboxResponse;
+import com.adobe.target.delivery.v1.model.Option;
+import com.adobe.target.delivery.v1.model.OptionType;
+import com.adobe.target.delivery.v1.model.PrefetchRequest;
+import com.adobe.target.delivery.v1.model.QAMode;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.TargetClient;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryRequestBuilder;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import com.adobe.target.edge.client.testing.MockDeliveryEdge;
+import com.adobe.target.edge.client.testing.MockRequest;
+import com.adobe.target.edge.client.testing.MockResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmptyMboxFilteringServiceTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+    private static final String TEST_TNT_ID = "20250794242226839061607285880759069379.22_33";
+    private static final long TTL_MILLIS = 200;
+
+    private final Set<String> liveMboxes = ConcurrentHashMap.newKeySet();
+    private MockDeliveryEdge edge;
+    private TargetClient targetClient;
+
+    @BeforeEach
+    void init() {
+        VisitorProvider.init(TEST_ORG_ID);
+        liveMboxes.add("live");
+        edge = MockDeliveryEdge.builder().responder(this::respond).start();
+        targetClient = TargetClient.create(edge.configure(ClientConfig.builder()
+                .client("testclient")
+                .organizationId(TEST_ORG_ID)
+                .emptyMboxTtl(TTL_MILLIS)
+                .emptyMboxThreshold(2))
+                .build());
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        targetClient.close();
+        edge.close();
+    }
+
+    @Test
+    void suppressesConsistentlyEmptyMboxesUntilProbed() throws Exception {
+        getOffers();
+        getOffers();
+        assertEquals(Arrays.asList("live", "empty"), lastSentMboxes());
+
+        TargetDeliveryResponse filtered = getOffers();
+        assertEquals(Arrays.asList("live"), lastSentMboxes());
+        List<MboxResponse> mboxes = filtered.getResponse().getExecute().getMboxes();
+        assertEquals(Arrays.asList("live", "empty"),
+                mboxes.stream().map(MboxResponse::getName).collect(Collectors.toList()));
+        assertEquals(1, mboxes.get(0).getOptions().size());
+        assertTrue(mboxes.get(1).getOptions().isEmpty());
+        assertEquals(2, filtered.getRequest().getExecute().getMboxes().size());
+
+        liveMboxes.add("empty");
+        Thread.sleep(TTL_MILLIS + 50);
+        getOffers();
+        assertEquals(Arrays.asList("live", "empty"), lastSentMboxes());
+        TargetDeliveryResponse launched = getOffers();
+        assertEquals(Arrays.asList("live", "empty"), lastSentMboxes());
+        assertEquals(1, launched.getResponse().getExecute().getMboxes().get(1).getOptions().size());
+    }
+
+    @Test
+    void doesNotFilterQaModeRequests() {
+        getOffers();
+        getOffers();
+        long requests = edge.getRequestCount();
+
+        targetClient.getOffers(request().qaMode(new QAMode()).build());
+
+        assertEquals(requests + 1, edge.getRequestCount());
+        assertEquals(Arrays.asList("live", "empty"), lastSentMboxes());
+    }
+
+    @Test
+    void dropsTheExecuteWhenOnlyOtherContentIsLeft() {
+        TargetDeliveryRequestBuilder request = TargetDeliveryRequest.builder()
+                .tntId(TEST_TNT_ID)
+                .execute(new ExecuteRequest().addMboxesItem(new MboxRequest().name("empty").index(1)))
+                .prefetch(new PrefetchRequest().addMboxesItem(new MboxRequest().name("hero").index(1)));
+        targetClient.getOffers(request.build());
+        targetClient.getOffers(request.build());
+        long requests = edge.getRequestCount();
+
+        TargetDeliveryResponse filtered = targetClient.getOffers(request.build());
+
+        assertEquals(requests + 1, edge.getRequestCount());
+        assertNull(edge.getLastRequest().getDeliveryRequest().getExecute());
+        assertEquals(1, edge.getLastRequest().getDeliveryRequest().getPrefetch().getMboxes().size());
+        List<MboxResponse> mboxes = filtered.getResponse().getExecute().getMboxes();
+        assertEquals(1, mboxes.size());
+        assertEquals("empty", mboxes.get(0).getName());
+        assertTrue(mboxes.get(0).getOptions().isEmpty());
+    }
+
+    private TargetDeliveryResponse getOffers() {
+        return targetClient.getOffers(request().build());
+    }
+
+    private static TargetDeliveryRequestBuilder request() {
+        return TargetDeliveryRequest.builder()
+                .tntId(TEST_TNT_ID)
+                .execute(new ExecuteRequest()
+                        .addMboxesItem(new MboxRequest().name("live").index(1))
+                        .addMboxesItem(new MboxRequest().name("empty").index(2)));
+    }
+
+    private List<String> lastSentMboxes() {
+        return edge.getLastRequest().getDeliveryRequest().getExecute().getMboxes().stream()
+                .map(MboxRequest::getName)
+                .collect(Collectors.toList());
+    }
+
+    private MockResponse respond(MockRequest mockRequest) {
+        ExecuteRequest executeRequest = mockRequest.getDeliveryRequest().getExecute();
+        if (executeRequest == null) {
+            return MockResponse.ok(new DeliveryResponse()
+                    .status(200)
+                    .client("testclient")
+                    .id(mockRequest.getDeliveryRequest().getId()));
+        }
+        ExecuteResponse execute = new ExecuteResponse();
+        for (MboxRequest mbox : executeRequest.getMboxes()) {
+            MboxResponse response = new MboxResponse().index(mbox.getIndex()).name(mbox.getName());
+            if (liveMboxes.contains(mbox.getName())) {
+                response.addOptionsItem(new Option().type(OptionType.HTML).content("<b>" + mbox.getName() + "</b>"));
+            }
+            execute.addMboxesItem(response);
+        }
+        return MockResponse.ok(new DeliveryResponse()
+                .status(200)
+                .client("testclient")
+                .id(mockRequest.getDeliveryRequest().getId())
+                .execute(execute));
+    }
+
+}
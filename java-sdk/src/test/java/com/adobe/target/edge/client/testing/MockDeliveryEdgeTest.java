@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.testing;
+
+import com.adobe.target.delivery.v1.model.ChannelType;
+import com.adobe.target.delivery.v1.model.Context;
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.ExecuteRequest;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.TargetClient;
+import com.adobe.target.edge.client.model.TargetDeliveryRequest;
+import com.adobe.target.edge.client.model.TargetDeliveryRequestBuilder;
+import com.adobe.target.edge.client.model.TargetDeliveryResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MockDeliveryEdgeTest {
+
+    private static final String TEST_ORG_ID = "0DD934B85278256B0A490D44@AdobeOrg";
+
+    private MockDeliveryEdge edge;
+    private TargetClient targetClient;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (targetClient != null) {
+            targetClient.close();
+        }
+        if (edge != null) {
+            edge.close();
+        }
+    }
+
+    @Test
+    void echoesMboxesAndRoutesByLocationHint() {
+        edge = MockDeliveryEdge.start();
+        targetClient = createClient();
+
+        TargetDeliveryResponse response = targetClient.getOffers(request().locationHint("28").build());
+
+        assertEquals(200, response.getStatus());
+        assertEquals("home", response.getResponse().getExecute().getMboxes().get(0).getName());
+        assertEquals(1, edge.getRequestCount("mboxedge28." + MockDeliveryEdge.DEFAULT_SERVER_DOMAIN));
+        assertEquals("testclient", edge.getLastRequest().getQueryParams().get("client"));
+        assertTrue(response.getResponse().getId().getTntId().endsWith(".28_0"));
+    }
+
+    @Test
+    void servesScriptedResponsesInOrder() {
+        edge = MockDeliveryEdge.start();
+        targetClient = createClient();
+        edge.enqueue(MockResponse.ok(new DeliveryResponse().status(200).client("scripted"))
+                        .delay(50, TimeUnit.MILLISECONDS),
+                MockResponse.error(503));
+
+        long start = System.nanoTime();
+        TargetDeliveryResponse first = targetClient.getOffers(request().build());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        TargetDeliveryResponse second = targetClient.getOffers(request().build());
+
+        assertEquals("scripted", first.getResponse().getClient());
+        assertTrue(elapsedMillis >= 50);
+        assertEquals(503, second.getStatus());
+        assertEquals(1, edge.getErrorCount());
+    }
+
+    @Test
+    void injectsErrorsAtConfiguredRate() {
+        edge = MockDeliveryEdge.builder().errorRate(1.0, 502).start();
+        targetClient = createClient();
+
+        assertEquals(502, targetClient.getOffers(request().build()).getStatus());
+    }
+
+    @Test
+    void resetsConnections() {
+        edge = MockDeliveryEdge.builder().resetRate(1.0).start();
+        targetClient = createClient();
+
+        assertThrows(RuntimeException.class, () -> targetClient.getOffers(request().build()));
+        assertEquals(1, edge.getResetCount());
+    }
+
+    @Test
+    void answersOtherCallsWithNotFound() throws Exception {
+        edge = MockDeliveryEdge.start();
+        String base = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + edge.getPort();
+
+        assertEquals(404, status("GET", base + "/rest/v1/delivery"));
+        assertEquals(404, status("POST", base + "/rest/v2/delivery"));
+        assertEquals(0, edge.getRequestCount());
+        assertEquals(0, edge.getErrorCount());
+    }
+
+    @Test
+    void samplesLatencyDistributions() {
+        Random random = new Random(42);
+        long fixed = LatencyDistribution.fixed(5, TimeUnit.MILLISECONDS).sampleNanos(random);
+        long uniform = LatencyDistribution.uniform(1, 2, TimeUnit.MILLISECONDS).sampleNanos(random);
+        long logNormal = LatencyDistribution.logNormal(10, 0.5, TimeUnit.MILLISECONDS).sampleNanos(random);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5), fixed);
+        assertTrue(uniform >= TimeUnit.MILLISECONDS.toNanos(1) && uniform <= TimeUnit.MILLISECONDS.toNanos(2));
+        assertTrue(logNormal > 0);
+    }
+
+    private static int status(String method, String url) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod(method);
+            if ("POST".equals(method)) {
+                connection.setDoOutput(true);
+                try (OutputStream body = connection.getOutputStream()) {
+                    body.write("{}".getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private TargetClient createClient() {
+        return TargetClient.create(edge.configure(ClientConfig.builder()
+                .client("testclient")
+                .organizationId(TEST_ORG_ID)
+                .enableRetries(false))
+                .build());
+    }
+
+    private static TargetDeliveryRequestBuilder request() {
+        return TargetDeliveryRequest.builder()
+                .context(new Context().channel(ChannelType.WEB))
+                .execute(new ExecuteRequest().mboxes(
+                        Collections.singletonList(new MboxRequest().name("home").index(1))));
+    }
+}
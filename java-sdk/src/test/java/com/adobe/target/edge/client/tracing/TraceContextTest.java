@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.tracing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceContextTest {
+
+    private static final String TRACEPARENT = "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01";
+
+    @Test
+    void testParse() {
+        TraceContext context = TraceContext.parse(TRACEPARENT, "congo=t61rcWkgMzE");
+
+        assertEquals("0af7651916cd43dd8448eb211c80319c", context.getTraceId());
+        assertEquals("b7ad6b7169203331", context.getSpanId());
+        assertTrue(context.isSampled());
+        assertEquals("congo=t61rcWkgMzE", context.getTraceState());
+        assertEquals(TRACEPARENT, context.toTraceParent());
+    }
+
+    @Test
+    void testParseRejectsInvalidHeaders() {
+        assertNull(TraceContext.parse(null, null));
+        assertNull(TraceContext.parse("garbage", null));
+        assertNull(TraceContext.parse("00-00000000000000000000000000000000-b7ad6b7169203331-01", null));
+        assertNull(TraceContext.parse("00-0af7651916cd43dd8448eb211c80319c-0000000000000000-01", null));
+        assertNull(TraceContext.parse("ff-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01", null));
+        assertNull(TraceContext.parse(TRACEPARENT + "-extra", null));
+    }
+
+    @Test
+    void testNewChildKeepsTrace() {
+        TraceContext parent = TraceContext.parse(TRACEPARENT, "congo=t61rcWkgMzE");
+
+        TraceContext child = parent.newChild();
+
+        assertEquals(parent.getTraceId(), child.getTraceId());
+        assertEquals(parent.getFlags(), child.getFlags());
+        assertEquals(parent.getTraceState(), child.getTraceState());
+        assertNotEquals(parent.getSpanId(), child.getSpanId());
+        assertEquals(16, child.getSpanId().length());
+        assertEquals(child.getSpanId(), TraceContext.parse(child.toTraceParent(), null).getSpanId());
+    }
+
+}
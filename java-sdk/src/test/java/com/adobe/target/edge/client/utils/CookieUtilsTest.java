@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.utils;
+
+import com.adobe.target.edge.client.model.TargetCookie;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static com.adobe.target.edge.client.utils.TargetConstants.CLUSTER_COOKIE_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CookieUtilsTest {
+
+    @Test
+    void testCreateClusterCookieFromLocationHint() {
+        Optional<TargetCookie> cookie = CookieUtils.createClusterCookie(
+                "20250794242226839061607285880759069379.22_33");
+
+        assertTrue(cookie.isPresent());
+        assertEquals(CLUSTER_COOKIE_NAME, cookie.get().getName());
+        assertEquals("22", cookie.get().getValue());
+    }
+
+    @Test
+    void testNoClusterCookieWithoutLocationHint() {
+        assertFalse(CookieUtils.createClusterCookie("20250794242226839061607285880759069379").isPresent());
+        assertFalse(CookieUtils.createClusterCookie("20250794242226839061607285880759069379.22").isPresent());
+        assertFalse(CookieUtils.createClusterCookie(null).isPresent());
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.utils;
+
+import com.adobe.target.delivery.v1.model.VisitorId;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrafficAllocationTest {
+
+    @Test
+    void hashMatchesReferenceValues() {
+        // published MurmurHash3_x86_32 vectors over UTF-8 bytes, which Target's SDKs hash allocation keys with
+        assertEquals(0, MurmurHash3.hashUtf8(""));
+        assertEquals(0x3c2569b2, MurmurHash3.hashUtf8("a"));
+        assertEquals(0xb3dd93fa, MurmurHash3.hashUtf8("abc"));
+        assertEquals(0x248bfa47, MurmurHash3.hashUtf8("hello"));
+        assertEquals(0x149bbb7f, MurmurHash3.hashUtf8("hello, world"));
+        assertEquals(0x2e4ff723, MurmurHash3.hashUtf8("The quick brown fox jumps over the lazy dog"));
+        assertEquals(0x5a97808a, MurmurHash3.hashUtf8(0x9747b28c, "aaaa"));
+        assertEquals(0x24884cba, MurmurHash3.hashUtf8(0x9747b28c, "Hello, world!"));
+        assertEquals(0xd58063c1, MurmurHash3.hashUtf8(0x9747b28c, "\u03c0\u03c0\u03c0\u03c0\u03c0\u03c0\u03c0\u03c0"));
+    }
+
+    @Test
+    void hashEncodesCharsLikeStringGetBytes() {
+        String[] inputs = {"\u00fc\u20ac\ud83d\ude00x", "a\ud800b", "\ude00", "caf\u00e9.1.\u4e2d\u6587.0"};
+        for (String input : inputs) {
+            assertEquals(referenceHash(input.getBytes(StandardCharsets.UTF_8)), MurmurHash3.hashUtf8(input), input);
+        }
+    }
+
+    @Test
+    void bucketsMatchReferenceValues() {
+        assertEquals(4075, TrafficAllocation.bucket("testclient", 125873L,
+                new VisitorId().tntId("2a5a1c8bd5d24a0c8f7e4b1f0d5f6a37.28_0")));
+        assertEquals(4975, TrafficAllocation.bucket("emeaprod4", 1L, new VisitorId()
+                .tntId("2a5a1c8bd5d24a0c8f7e4b1f0d5f6a37.28_0")
+                .marketingCloudVisitorId("63513393284916440003394744302410521497")));
+        assertEquals(7782, TrafficAllocation.bucket("emeaprod4", 9007199254740993L,
+                new VisitorId().thirdPartyId("third-party-42")));
+        assertEquals(40.75, TrafficAllocation.allocationPercent("testclient", 125873L,
+                new VisitorId().tntId("2a5a1c8bd5d24a0c8f7e4b1f0d5f6a37")));
+    }
+
+    @Test
+    void bucketMatchesHashOfConcatenatedKey() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long activityId = i < 10 ? Long.MAX_VALUE - i
+                    : random.nextInt(Integer.MAX_VALUE) * (long) random.nextInt(1000);
+            String visitorId = UUID.randomUUID().toString().substring(0, 1 + random.nextInt(36))
+                    + (i % 3 == 0 ? "\u00e9\u4e2d" : "");
+            String key = "client" + i + "." + activityId + "." + visitorId + "." + TrafficAllocation.DEFAULT_SALT;
+            int expected = Math.abs(MurmurHash3.hashUtf8(key) % TrafficAllocation.TOTAL_BUCKETS);
+            assertEquals(expected, TrafficAllocation.bucket("client" + i, activityId, visitorId), key);
+        }
+    }
+
+    @Test
+    void spreadsVisitorsEvenly() {
+        int[] deciles = new int[10];
+        int visitors = 100000;
+        for (int i = 0; i < visitors; i++) {
+            deciles[TrafficAllocation.bucket("testclient", 125873L, "visitor-" + i) / 1000]++;
+        }
+        for (int count : deciles) {
+            assertTrue(Math.abs(count - visitors / 10) < visitors / 100, "decile holds " + count + " visitors");
+        }
+    }
+
+    @Test
+    void rejectsVisitorIdsWithoutIds() {
+        assertThrows(IllegalArgumentException.class,
+                () -> TrafficAllocation.bucket("testclient", 1L, new VisitorId()));
+    }
+
+    private static int referenceHash(byte[] data) {
+        int h1 = 0;
+        int blocks = data.length / 4 * 4;
+        for (int i = 0; i < blocks; i += 4) {
+            int k1 = (data[i] & 0xFF) | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF) << 16 | data[i + 3] << 24;
+            h1 ^= Integer.rotateLeft(k1 * 0xcc9e2d51, 15) * 0x1b873593;
+            h1 = Integer.rotateLeft(h1, 13) * 5 + 0xe6546b64;
+        }
+        int k1 = 0;
+        for (int i = data.length - 1; i >= blocks; i--) {
+            k1 = k1 << 8 | (data[i] & 0xFF);
+        }
+        if (data.length > blocks) {
+            h1 ^= Integer.rotateLeft(k1 * 0xcc9e2d51, 15) * 0x1b873593;
+        }
+        h1 ^= data.length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        return h1 ^ h1 >>> 16;
+    }
+
+}
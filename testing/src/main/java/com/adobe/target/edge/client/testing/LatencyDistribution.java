@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.testing;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the artificial latency {@link MockDeliveryEdge} adds before answering a request.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    long sampleNanos(Random random);
+
+    static LatencyDistribution none() {
+        return random -> 0;
+    }
+
+    static LatencyDistribution fixed(long latency, TimeUnit unit) {
+        long nanos = unit.toNanos(latency);
+        return random -> nanos;
+    }
+
+    static LatencyDistribution uniform(long min, long max, TimeUnit unit) {
+        if (max < min) {
+            throw new IllegalArgumentException("max latency must not be lower than min latency");
+        }
+        long minNanos = unit.toNanos(min);
+        long rangeNanos = unit.toNanos(max) - minNanos;
+        return random -> minNanos + (long) (random.nextDouble() * rangeNanos);
+    }
+
+    /**
+     * Long-tailed latency around {@code median}; {@code sigma} is the standard deviation of the underlying normal,
+     * so that p99 is roughly {@code median * exp(2.33 * sigma)}.
+     */
+    static LatencyDistribution logNormal(long median, double sigma, TimeUnit unit) {
+        long medianNanos = unit.toNanos(median);
+        return random -> (long) (medianNanos * Math.exp(sigma * random.nextGaussian()));
+    }
+}
@@ -0,0 +1,559 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.testing;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+import com.adobe.target.delivery.v1.model.ExecuteResponse;
+import com.adobe.target.delivery.v1.model.MboxRequest;
+import com.adobe.target.delivery.v1.model.MboxResponse;
+import com.adobe.target.delivery.v1.model.PrefetchMboxResponse;
+import com.adobe.target.delivery.v1.model.PrefetchResponse;
+import com.adobe.target.delivery.v1.model.VisitorId;
+import com.adobe.target.edge.client.ClientConfig;
+import com.adobe.target.edge.client.http.JacksonObjectMapper;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * In-JVM stand-in for the Target delivery edge, for tests, benchmarks and load tests.
+ * <p>
+ * Every host under {@link #getServerDomain()} resolves to the loopback address through {@link #getDnsResolver()},
+ * so location hint routing ({@code mboxedge<hint>.<domain>}) works unchanged; {@link #configure} wires both into a
+ * {@link ClientConfig}. Responses come from scripted {@link #enqueue entries} first, then from the configured
+ * reset and error rates, and finally from the responder, which by default echoes the requested mboxes. Only
+ * {@code POST} requests to the delivery API are served, anything else gets a 404 and is not counted as a request.
+ * Connections are kept alive and served one request at a time, as the real edge does over HTTP/1.1.
+ */
+public final class MockDeliveryEdge implements AutoCloseable {
+
+    public static final String DEFAULT_SERVER_DOMAIN = "target.mock";
+    private static final String CLUSTER_PREFIX = "mboxedge";
+    private static final String DEFAULT_LOCATION_HINT = "35";
+    private static final String DELIVERY_METHOD = "POST";
+    private static final String DELIVERY_PATH = "/rest/v1/delivery";
+
+    private final String domain;
+    private final Function<MockRequest, MockResponse> responder;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final int errorStatus;
+    private final double resetRate;
+    private final Random seeds;
+    private final JacksonObjectMapper objectMapper = new JacksonObjectMapper();
+    private final Queue<MockResponse> script = new ConcurrentLinkedQueue<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong resetCount = new AtomicLong();
+    private final Map<String, LongAdder> requestsByHost = new ConcurrentHashMap<>();
+    private final AtomicReference<MockRequest> lastRequest = new AtomicReference<>();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final ServerSocket serverSocket;
+    private final ExecutorService workers;
+    private volatile boolean closed;
+
+    private MockDeliveryEdge(Builder builder) throws IOException {
+        this.domain = builder.serverDomain;
+        this.responder = builder.responder != null ? builder.responder : this::defaultResponse;
+        this.latency = builder.latency;
+        this.errorRate = builder.errorRate;
+        this.errorStatus = builder.errorStatus;
+        this.resetRate = builder.resetRate;
+        this.seeds = new Random(builder.seed);
+        this.serverSocket = new ServerSocket(0, builder.backlog, InetAddress.getLoopbackAddress());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mock-delivery-edge-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers.execute(this::acceptConnections);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static MockDeliveryEdge start() {
+        return builder().start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Value for {@link ClientConfig.ClientConfigBuilder#serverDomain}, including the port the edge listens on.
+     */
+    public String getServerDomain() {
+        return domain + ":" + getPort();
+    }
+
+    /**
+     * Resolves the edge's domain and all of its subdomains to the loopback address, and everything else through
+     * the system resolver.
+     */
+    public DnsResolver getDnsResolver() {
+        return host -> isEdgeHost(host)
+                ? new InetAddress[]{InetAddress.getLoopbackAddress()}
+                : SystemDefaultDnsResolver.INSTANCE.resolve(host);
+    }
+
+    public ClientConfig.ClientConfigBuilder configure(ClientConfig.ClientConfigBuilder builder) {
+        return builder
+                .serverDomain(getServerDomain())
+                .secure(false)
+                .dnsResolver(getDnsResolver());
+    }
+
+    /**
+     * Queues responses that are served, in order, ahead of the configured error and reset rates and the responder.
+     */
+    public void enqueue(MockResponse... responses) {
+        Collections.addAll(script, responses);
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getRequestCount(String host) {
+        LongAdder count = requestsByHost.get(host);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public long getResetCount() {
+        return resetCount.get();
+    }
+
+    public MockRequest getLastRequest() {
+        return lastRequest.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        for (Socket connection : connections) {
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+            }
+        }
+        workers.shutdownNow();
+    }
+
+    private boolean isEdgeHost(String host) {
+        return host.equalsIgnoreCase(domain) || host.toLowerCase().endsWith("." + domain.toLowerCase());
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            connections.add(socket);
+            Random random = new Random(seeds.nextLong());
+            workers.execute(() -> serve(socket, random));
+        }
+    }
+
+    private void serve(Socket socket, Random random) {
+        try (Socket connection = socket) {
+            connection.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(connection.getInputStream());
+            OutputStream out = new BufferedOutputStream(connection.getOutputStream());
+            while (!closed) {
+                String requestLine = readLine(in);
+                if (requestLine == null) {
+                    return;
+                }
+                if (requestLine.isEmpty()) {
+                    continue;
+                }
+                Map<String, String> headers = readHeaders(in);
+                byte[] body = readBody(in, headers);
+                boolean keepAlive = !"close".equalsIgnoreCase(headers.get("connection"));
+                MockRequest request = toMockRequest(requestLine, headers, body);
+                if (!isDeliveryCall(requestLine, request)) {
+                    write(out, MockResponse.error(404), keepAlive);
+                    if (!keepAlive) {
+                        return;
+                    }
+                    continue;
+                }
+                record(request);
+
+                MockResponse response = respond(request, random);
+                sleep(response.hasDelay() ? response.getDelayNanos() : latency.sampleNanos(random));
+                if (response.isReset()) {
+                    resetCount.incrementAndGet();
+                    connection.setSoLinger(true, 0);
+                    return;
+                }
+                if (response.getStatus() >= 400) {
+                    errorCount.incrementAndGet();
+                }
+                write(out, response, keepAlive);
+                if (!keepAlive) {
+                    return;
+                }
+            }
+        } catch (IOException ignored) {
+            // the client went away or the edge is closing
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private static boolean isDeliveryCall(String requestLine, MockRequest request) {
+        return requestLine.startsWith(DELIVERY_METHOD + " ") && DELIVERY_PATH.equals(request.getPath());
+    }
+
+    private void record(MockRequest request) {
+        requestCount.incrementAndGet();
+        requestsByHost.computeIfAbsent(request.getHost(), host -> new LongAdder()).increment();
+        lastRequest.set(request);
+    }
+
+    private MockResponse respond(MockRequest request, Random random) {
+        MockResponse scripted = script.poll();
+        if (scripted != null) {
+            return scripted;
+        }
+        if (resetRate > 0 && random.nextDouble() < resetRate) {
+            return MockResponse.reset();
+        }
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            return MockResponse.error(errorStatus);
+        }
+        try {
+            return responder.apply(request);
+        } catch (RuntimeException e) {
+            return MockResponse.status(500, "{\"status\":500,\"message\":\"" + e.getClass().getSimpleName() + "\"}");
+        }
+    }
+
+    private MockResponse defaultResponse(MockRequest mockRequest) {
+        DeliveryRequest request = mockRequest.getDeliveryRequest();
+        DeliveryResponse response = new DeliveryResponse()
+                .status(200)
+                .client(mockRequest.getQueryParams().get("client"))
+                .edgeHost(mockRequest.getHost())
+                .id(visitorId(request, locationHint(mockRequest.getHost())));
+        if (request == null) {
+            return MockResponse.ok(response);
+        }
+        response.requestId(request.getRequestId());
+        if (request.getExecute() != null && request.getExecute().getMboxes() != null) {
+            List<MboxResponse> mboxes = new ArrayList<>();
+            for (MboxRequest mbox : request.getExecute().getMboxes()) {
+                mboxes.add(new MboxResponse().index(mbox.getIndex()).name(mbox.getName()));
+            }
+            response.execute(new ExecuteResponse().mboxes(mboxes));
+        }
+        if (request.getPrefetch() != null && request.getPrefetch().getMboxes() != null) {
+            List<PrefetchMboxResponse> mboxes = new ArrayList<>();
+            for (MboxRequest mbox : request.getPrefetch().getMboxes()) {
+                PrefetchMboxResponse mboxResponse = new PrefetchMboxResponse();
+                mboxResponse.setIndex(mbox.getIndex());
+                mboxResponse.setName(mbox.getName());
+                mboxes.add(mboxResponse);
+            }
+            response.prefetch(new PrefetchResponse().mboxes(mboxes));
+        }
+        return MockResponse.ok(response);
+    }
+
+    private static VisitorId visitorId(DeliveryRequest request, String locationHint) {
+        if (request != null && request.getId() != null && request.getId().getTntId() != null) {
+            return request.getId();
+        }
+        String tntId = UUID.randomUUID().toString().replace("-", "") + "." + locationHint + "_0";
+        return new VisitorId().tntId(tntId);
+    }
+
+    private String locationHint(String host) {
+        String lowerCaseHost = host.toLowerCase();
+        if (lowerCaseHost.startsWith(CLUSTER_PREFIX)) {
+            int end = lowerCaseHost.indexOf('.');
+            String hint = lowerCaseHost.substring(CLUSTER_PREFIX.length(), end < 0 ? lowerCaseHost.length() : end);
+            if (!hint.isEmpty()) {
+                return hint;
+            }
+        }
+        return DEFAULT_LOCATION_HINT;
+    }
+
+    private MockRequest toMockRequest(String requestLine, Map<String, String> headers, byte[] body) {
+        String[] parts = requestLine.split(" ");
+        String target = parts.length > 1 ? parts[1] : "/";
+        int queryStart = target.indexOf('?');
+        String path = queryStart < 0 ? target : target.substring(0, queryStart);
+        Map<String, String> queryParams = queryStart < 0
+                ? Collections.emptyMap()
+                : parseQuery(target.substring(queryStart + 1));
+        String host = headers.getOrDefault("host", domain);
+        int portStart = host.lastIndexOf(':');
+        if (portStart > 0) {
+            host = host.substring(0, portStart);
+        }
+        String content = new String(body, StandardCharsets.UTF_8);
+        DeliveryRequest deliveryRequest = null;
+        if (!content.isEmpty()) {
+            try {
+                deliveryRequest = objectMapper.readValue(content, DeliveryRequest.class);
+            } catch (RuntimeException ignored) {
+                // served as is, responders can still look at the raw body
+            }
+        }
+        return new MockRequest(host, path, queryParams, headers, content, deliveryRequest);
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        for (String param : query.split("&")) {
+            if (param.isEmpty()) {
+                continue;
+            }
+            int separator = param.indexOf('=');
+            String name = separator < 0 ? param : param.substring(0, separator);
+            String value = separator < 0 ? "" : param.substring(separator + 1);
+            params.put(decode(name), decode(value));
+        }
+        return params;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void write(OutputStream out, MockResponse response, boolean keepAlive) throws IOException {
+        Object body = response.getBody();
+        String content = body == null ? "" : body instanceof String ? (String) body : objectMapper.writeValue(body);
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + response.getStatus() + " " + reason(response.getStatus()) + "\r\n" +
+                "Content-Type: application/json;charset=UTF-8\r\n" +
+                "Content-Length: " + bytes.length + "\r\n" +
+                (keepAlive ? "" : "Connection: close\r\n") +
+                "\r\n";
+        out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 429:
+                return "Too Many Requests";
+            case 500:
+                return "Internal Server Error";
+            case 502:
+                return "Bad Gateway";
+            case 503:
+                return "Service Unavailable";
+            case 504:
+                return "Gateway Timeout";
+            default:
+                return "Status " + status;
+        }
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int separator = line.indexOf(':');
+            if (separator > 0) {
+                headers.put(line.substring(0, separator).trim().toLowerCase(), line.substring(separator + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    private static byte[] readBody(InputStream in, Map<String, String> headers) throws IOException {
+        if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            while (true) {
+                String sizeLine = readLine(in);
+                if (sizeLine == null) {
+                    throw new EOFException();
+                }
+                int extension = sizeLine.indexOf(';');
+                int size = Integer.parseInt((extension < 0 ? sizeLine : sizeLine.substring(0, extension)).trim(), 16);
+                if (size == 0) {
+                    readHeaders(in);
+                    return body.toByteArray();
+                }
+                body.write(readFully(in, size));
+                readLine(in);
+            }
+        }
+        String contentLength = headers.get("content-length");
+        return contentLength == null ? new byte[0] : readFully(in, Integer.parseInt(contentLength));
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(bytes, offset, length - offset);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+        return bytes;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int next;
+        while ((next = in.read()) != -1) {
+            if (next == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) next);
+        }
+        return line.length() == 0 ? null : line.toString();
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static final class Builder {
+        private String serverDomain = DEFAULT_SERVER_DOMAIN;
+        private Function<MockRequest, MockResponse> responder;
+        private LatencyDistribution latency = LatencyDistribution.none();
+        private double errorRate;
+        private int errorStatus = 503;
+        private double resetRate;
+        private long seed = System.nanoTime();
+        private int backlog = 1024;
+
+        private Builder() {
+        }
+
+        public Builder serverDomain(String serverDomain) {
+            this.serverDomain = serverDomain;
+            return this;
+        }
+
+        public Builder responder(Function<MockRequest, MockResponse> responder) {
+            this.responder = responder;
+            return this;
+        }
+
+        public Builder latency(LatencyDistribution latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        public Builder errorRate(double errorRate, int errorStatus) {
+            this.errorRate = errorRate;
+            this.errorStatus = errorStatus;
+            return this;
+        }
+
+        public Builder resetRate(double resetRate) {
+            this.resetRate = resetRate;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder backlog(int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        public MockDeliveryEdge start() {
+            try {
+                return new MockDeliveryEdge(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot start mock delivery edge", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.testing;
+
+import com.adobe.target.delivery.v1.model.DeliveryRequest;
+
+import java.util.Map;
+
+/**
+ * A request received by {@link MockDeliveryEdge}. Header names are lower case.
+ */
+public final class MockRequest {
+
+    private final String host;
+    private final String path;
+    private final Map<String, String> queryParams;
+    private final Map<String, String> headers;
+    private final String body;
+    private final DeliveryRequest deliveryRequest;
+
+    MockRequest(String host, String path, Map<String, String> queryParams, Map<String, String> headers,
+                String body, DeliveryRequest deliveryRequest) {
+        this.host = host;
+        this.path = path;
+        this.queryParams = queryParams;
+        this.headers = headers;
+        this.body = body;
+        this.deliveryRequest = deliveryRequest;
+    }
+
+    /**
+     * Host name the client connected to, without the port, e.g. {@code mboxedge28.target.mock}.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Map<String, String> getQueryParams() {
+        return queryParams;
+    }
+
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase());
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public DeliveryRequest getDeliveryRequest() {
+        return deliveryRequest;
+    }
+
+    @Override
+    public String toString() {
+        return "MockRequest{" +
+                "host='" + host + '\'' +
+                ", path='" + path + '\'' +
+                ", queryParams=" + queryParams +
+                '}';
+    }
+}
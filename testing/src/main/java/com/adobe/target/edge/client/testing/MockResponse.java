@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Adobe. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.target.edge.client.testing;
+
+import com.adobe.target.delivery.v1.model.DeliveryResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link MockDeliveryEdge} does with a request: answer with a status and body, or reset the connection.
+ */
+public final class MockResponse {
+
+    private static final long NO_DELAY = -1;
+
+    private final int status;
+    private final Object body;
+    private final boolean reset;
+    private final long delayNanos;
+
+    private MockResponse(int status, Object body, boolean reset, long delayNanos) {
+        this.status = status;
+        this.body = body;
+        this.reset = reset;
+        this.delayNanos = delayNanos;
+    }
+
+    public static MockResponse ok(DeliveryResponse response) {
+        return new MockResponse(200, response, false, NO_DELAY);
+    }
+
+    public static MockResponse status(int status, String body) {
+        return new MockResponse(status, body, false, NO_DELAY);
+    }
+
+    public static MockResponse error(int status) {
+        return status(status, "{\"status\":" + status + ",\"message\":\"Mock delivery edge error\"}");
+    }
+
+    /**
+     * Aborts the connection with a TCP reset instead of answering.
+     */
+    public static MockResponse reset() {
+        return new MockResponse(0, null, true, NO_DELAY);
+    }
+
+    /**
+     * Uses a fixed delay instead of sampling the edge's {@link LatencyDistribution}.
+     */
+    public MockResponse delay(long delay, TimeUnit unit) {
+        return new MockResponse(status, body, reset, unit.toNanos(delay));
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Object getBody() {
+        return body;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    boolean hasDelay() {
+        return delayNanos != NO_DELAY;
+    }
+
+    long getDelayNanos() {
+        return delayNanos;
+    }
+}